@@ -31,11 +31,33 @@ public class AppConstants {
     public static final int DEFAULT_PAGE_SIZE = 10;
     public static final int MAX_PAGE_SIZE = 100;
     
+    // ==================== 批量读取 ====================
+    public static final int MAX_MULTI_GET_SIZE = 1000; // 一次批量读取的最大键数
+    public static final int MULTI_GET_CHUNK_SIZE = 500; // 未命中缓存的键每块查询的数量（IN 列表长度）
+    
+    // ==================== 热度排行 ====================
+    public static final int POPULAR_TOP_K = 100; // 全馆及每个分类保留的排行名次
+    public static final int CO_BORROW_NEIGHBOURS = 50; // 每本书保留的共同借阅相似图书数
+    public static final int CO_BORROW_MAX_BASKET = 200; // 每位读者参与共现统计的最多图书数（按借阅先后）
+    public static final int TRENDING_MAX_WINDOW_HOURS = 7 * 24; // 借阅趋势支持的最大窗口（小时）
+    
     // ==================== 借阅相关 ====================
     public static final int DEFAULT_BORROW_DAYS = 30;
     public static final int DEFAULT_MAX_BORROW_LIMIT = 5;
     public static final double DEFAULT_FINE_PER_DAY = 0.5; // 每天罚款金额
     
+    // ==================== 乐观锁重试 ====================
+    public static final int OPTIMISTIC_RETRY_MAX_ATTEMPTS = 3; // 版本冲突时每次调用最多执行的次数（含首次）
+    public static final long OPTIMISTIC_RETRY_BACKOFF_MS = 20; // 首次重试前的退避上限，之后每次翻倍
+    public static final long OPTIMISTIC_RETRY_MAX_BACKOFF_MS = 200; // 单次退避上限
+    
+    // ==================== 借还本地锁 ====================
+    public static final int CIRCULATION_LOCK_STRIPES = 1024; // 图书、读者各自散列到的锁分段数
+    public static final long CIRCULATION_LOCK_TIMEOUT_MS = 2000; // 等待本地锁的上限，超时后直接进入数据库
+    
+    // ==================== 热门图书库存分槽 ====================
+    public static final int HOT_INVENTORY_MAX_SLOTS = 64; // 一本书最多拆分的库存槽数
+    
     // ==================== 安全相关 ====================
     public static final String JWT_HEADER = "Authorization";
     public static final String JWT_PREFIX = "Bearer ";
@@ -43,10 +65,18 @@ public class AppConstants {
     public static final long JWT_REFRESH_EXPIRATION = 7 * 24 * 60 * 60 * 1000; // 7天
     
     // ==================== 缓存键 ====================
-    public static final String CACHE_BOOKS = "books";
-    public static final String CACHE_USERS = "users";
+    public static final String CACHE_BOOK_DTOS = "book_dtos";
+    public static final String CACHE_BOOKS_BY_ISBN = "books_by_isbn";
+    public static final String CACHE_USER_DTOS = "user_dtos";
     public static final String CACHE_BOOK_AVAILABLE = "book_available";
     
+    // ==================== 数据导出 ====================
+    public static final String EXPORT_FETCH_SIZE = "1000"; // JDBC 每批取回的行数（@QueryHint 只接受字符串）
+    public static final int EXPORT_CLEAR_INTERVAL = 1000; // 每写出多少行清空一次持久化上下文
+    
+    // ==================== 批量导入 ====================
+    public static final int IMPORT_BATCH_SIZE = 1000; // 每批去重、插入并提交断点的记录数
+    
     // ==================== 日期格式 ====================
     public static final String DATE_FORMAT = "yyyy-MM-dd";
     public static final String DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
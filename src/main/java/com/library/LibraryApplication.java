@@ -3,6 +3,7 @@ package com.library;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -59,7 +60,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  */
 @SpringBootApplication
 @EnableJpaAuditing                // 启用JPA审计功能（自动填充创建时间/更新时间）
-@EnableCaching                    // 启用缓存功能
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)  // 启用缓存功能（在事务之外，命中时不开启事务）
 @EnableTransactionManagement      // 启用事务管理
 @EnableScheduling                 // 启用定时任务（可选，用于定时发送提醒等）
 public class LibraryApplication {
@@ -0,0 +1,99 @@
+package com.library.aop;
+
+import com.library.dto.BorrowRequestDTO;
+import com.library.lock.StripedLockManager;
+import com.library.repository.BorrowRecordRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 借阅、归还、续借的本地排队
+ *
+ * 在事务开始之前按图书、读者加 {@link StripedLockManager} 的锁，事务提交之后才释放，
+ * 排队时不占数据库连接，下一个请求读到的一定是上一个已提交的结果。
+ * 排在乐观锁重试之内：退避等待期间不持有锁。
+ * 调用方不能处在外层事务中，否则锁在外层提交之前就已释放；
+ * 经 {@link com.library.service.LibraryService} 转发的借还续借因此不开事务。
+ * 批量借还一次锁住涉及的全部图书和该读者，加锁顺序由 {@link StripedLockManager} 统一排序。
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class CirculationLockAspect {
+
+    @Autowired
+    private StripedLockManager lockManager;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Around(value = "execution(* com.library.service.BorrowRecordService.createBorrowRecord(..)) && args(request)",
+            argNames = "joinPoint,request")
+    public Object lockBorrow(ProceedingJoinPoint joinPoint, BorrowRequestDTO request) throws Throwable {
+        try (StripedLockManager.Held held = lockManager.acquire("createBorrowRecord",
+                request.getBookId(), request.getUserId())) {
+            return joinPoint.proceed();
+        }
+    }
+
+    @Around(value = "execution(* com.library.service.BorrowRecordService.returnBook(..)) && args(recordId)",
+            argNames = "joinPoint,recordId")
+    public Object lockReturn(ProceedingJoinPoint joinPoint, Long recordId) throws Throwable {
+        return proceedLockingRecord(joinPoint, "returnBook", recordId);
+    }
+
+    @Around(value = "execution(* com.library.service.BorrowRecordService.renewBorrow(..)) && args(recordId, ..)",
+            argNames = "joinPoint,recordId")
+    public Object lockRenew(ProceedingJoinPoint joinPoint, Long recordId) throws Throwable {
+        return proceedLockingRecord(joinPoint, "renewBorrow", recordId);
+    }
+
+    @Around(value = "execution(* com.library.service.LibraryService.batchBorrowBooks(..)) && args(userId, bookIds)",
+            argNames = "joinPoint,userId,bookIds")
+    public Object lockBatchBorrow(ProceedingJoinPoint joinPoint, Long userId, List<Long> bookIds) throws Throwable {
+        try (StripedLockManager.Held held = lockManager.acquire("batchBorrowBooks",
+                bookIds != null ? bookIds : Collections.emptyList(), userIds(userId))) {
+            return joinPoint.proceed();
+        }
+    }
+
+    @Around(value = "execution(* com.library.service.LibraryService.batchReturnBooks(..)) && args(userId, recordIds)",
+            argNames = "joinPoint,userId,recordIds")
+    public Object lockBatchReturn(ProceedingJoinPoint joinPoint, Long userId, List<Long> recordIds) throws Throwable {
+        if (!lockManager.isEnabled() || recordIds == null || recordIds.isEmpty()) {
+            return joinPoint.proceed();
+        }
+        try (StripedLockManager.Held held = lockManager.acquire("batchReturnBooks",
+                borrowRecordRepository.findBookIdsByIdIn(recordIds), userIds(userId))) {
+            return joinPoint.proceed();
+        }
+    }
+
+    private static List<Long> userIds(Long userId) {
+        return userId != null ? List.of(userId) : Collections.emptyList();
+    }
+
+    // 归还、续借只传记录ID，先查出记录对应的读者和图书再加锁；记录不存在时不加锁，交给服务方法报错
+    private Object proceedLockingRecord(ProceedingJoinPoint joinPoint, String operation, Long recordId)
+            throws Throwable {
+        if (!lockManager.isEnabled() || recordId == null) {
+            return joinPoint.proceed();
+        }
+        List<Object[]> ids = borrowRecordRepository.findUserAndBookIds(recordId);
+        if (ids.isEmpty()) {
+            return joinPoint.proceed();
+        }
+        try (StripedLockManager.Held held = lockManager.acquire(operation,
+                (Long) ids.get(0)[1], (Long) ids.get(0)[0])) {
+            return joinPoint.proceed();
+        }
+    }
+}
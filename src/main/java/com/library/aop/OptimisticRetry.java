@@ -0,0 +1,36 @@
+package com.library.aop;
+
+import com.library.AppConstants;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 乐观锁冲突自动重试
+ *
+ * 标注在服务方法上，提交时发生版本冲突则退避后在新事务中重新执行整个方法，
+ * 方法需要能安全地重复执行（每次重新读取实体再修改）。由 {@link OptimisticRetryAspect} 处理。
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OptimisticRetry {
+
+    /**
+     * 每次调用最多执行的次数（含首次），用完后把冲突抛给调用方
+     */
+    int maxAttempts() default AppConstants.OPTIMISTIC_RETRY_MAX_ATTEMPTS;
+
+    /**
+     * 首次重试前的退避上限（毫秒），之后每次翻倍，实际等待在上限的一半到上限之间随机
+     */
+    long backoffMillis() default AppConstants.OPTIMISTIC_RETRY_BACKOFF_MS;
+
+    /**
+     * 单次退避上限（毫秒）
+     */
+    long maxBackoffMillis() default AppConstants.OPTIMISTIC_RETRY_MAX_BACKOFF_MS;
+}
@@ -0,0 +1,118 @@
+package com.library.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 乐观锁冲突重试切面
+ *
+ * 排在事务切面之外（最高优先级），每次重试都是一个新事务，重新读取实体后再修改；
+ * 冲突时按指数退避加随机抖动等待，避免冲突的请求同时醒来再次冲突。
+ * 调用时已处在外层事务中则不重试：持久化上下文里的实体已经过期，只能由外层整体重来。
+ * 因此转发到带重试方法的门面方法（如 LibraryService 的续借、超期罚款）不开事务，重试边界落在事务之外。
+ * 按方法统计调用、冲突、重试和重试用尽的次数。
+ *
+ * 切面排在 ExposeInvocationInterceptor 之前，拿不到切点匹配结果，不能用 @annotation(retry) 绑定注解，
+ * 改为从目标方法上读取。
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OptimisticRetryAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetryAspect.class);
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Around("@annotation(com.library.aop.OptimisticRetry)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        OptimisticRetry retry = retryConfig(joinPoint);
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        Counters operationCounters = counters.computeIfAbsent(operation, key -> new Counters());
+        operationCounters.calls.increment();
+
+        boolean nested = TransactionSynchronizationManager.isActualTransactionActive();
+        int maxAttempts = nested ? 1 : Math.max(1, retry.maxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                operationCounters.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    if (!nested) {
+                        operationCounters.exhausted.increment();
+                        logger.warn("{} 版本冲突，{} 次尝试后放弃", operation, attempt);
+                    }
+                    throw e;
+                }
+                operationCounters.retries.increment();
+                long backoff = backoffMillis(retry, attempt);
+                logger.debug("{} 版本冲突，{} ms 后第 {} 次重试", operation, backoff, attempt);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static OptimisticRetry retryConfig(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = joinPoint.getTarget() != null ? joinPoint.getTarget().getClass() : method.getDeclaringClass();
+        return AnnotatedElementUtils.findMergedAnnotation(AopUtils.getMostSpecificMethod(method, targetClass),
+                OptimisticRetry.class);
+    }
+
+    /**
+     * 各方法的重试统计
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        counters.forEach((operation, c) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("calls", c.calls.sum());
+            item.put("conflicts", c.conflicts.sum());
+            item.put("retries", c.retries.sum());
+            item.put("exhausted", c.exhausted.sum());
+            metrics.put(operation, item);
+        });
+        return metrics;
+    }
+
+    // 第 n 次重试的退避上限为 backoff * 2^(n-1)（不超过 maxBackoff），实际在上限的一半到上限之间随机
+    static long backoffMillis(OptimisticRetry retry, int attempt) {
+        long ceiling = retry.backoffMillis() << Math.min(attempt - 1, 20);
+        ceiling = Math.max(1, Math.min(ceiling, retry.maxBackoffMillis()));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling - ceiling / 2 + 1);
+    }
+
+    private static final class Counters {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.cache;
+
+import com.library.AppConstants;
+import com.library.entity.Book;
+import com.library.entity.User;
+import com.library.event.BookChangedEvent;
+import com.library.event.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 图书、用户读缓存的精确失效
+ *
+ * 监听写操作发布的变更事件，在事务提交后按ID（和ISBN）删除对应的缓存项。
+ * 放在提交之后是为了避免提交前删除、并发读又把旧数据装回缓存。
+ */
+@Component
+public class EntityCacheInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        evict(AppConstants.CACHE_BOOK_DTOS, book.getId());
+        evict(AppConstants.CACHE_BOOKS_BY_ISBN, book.getIsbn());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        User user = event.getUser();
+        evict(AppConstants.CACHE_USER_DTOS, user.getId());
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.library.cache;
+
+import com.library.AppConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 按键批量读取缓存
+ *
+ * 与单条读取共用同一个缓存（键相同），先逐个查缓存，未命中的键按块一次查询（IN 列表），
+ * 查到的结果写回缓存。批量接口因此和单条接口互相预热。
+ */
+@Component
+public class EntityCacheLoader {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 批量读取，结果按键的请求顺序排列；重复的键只返回一次，不存在的键跳过
+     *
+     * @param loader 按一块键查询，返回键到值的映射（只含查到的键）
+     */
+    public <K, V> List<V> getAll(String cacheName, Collection<K> keys, Class<V> type,
+                                 Function<List<K>, Map<K, V>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Map<K, V> found = new LinkedHashMap<>();
+        List<K> misses = new ArrayList<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            V cached = cache != null ? cache.get(key, type) : null;
+            found.put(key, cached);
+            if (cached == null) {
+                misses.add(key);
+            }
+        }
+
+        for (int from = 0; from < misses.size(); from += AppConstants.MULTI_GET_CHUNK_SIZE) {
+            List<K> chunk = misses.subList(from, Math.min(misses.size(), from + AppConstants.MULTI_GET_CHUNK_SIZE));
+            loader.apply(chunk).forEach((key, value) -> {
+                found.put(key, value);
+                if (cache != null) {
+                    cache.put(key, value);
+                }
+            });
+        }
+
+        List<V> result = new ArrayList<>(found.size());
+        for (V value : found.values()) {
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,334 @@
+package com.library.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.library.entity.Book;
+import com.library.event.BookChangedEvent;
+import com.library.util.PinyinUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图书搜索结果缓存
+ *
+ * 以规范化后的查询条件（去首尾空白、转小写）加分页和排序为键，缓存图书搜索和按分类查询的结果。
+ * 图书新增、修改、删除或库存变化后，只让过滤条件可能命中该图书（修改前或修改后）的条目失效，
+ * 其余查询的缓存不受影响。
+ *
+ * 每个过滤条件各有一个版本号，条目记下加载开始时的版本，读取时版本已变即视为未命中；
+ * 失效只需给受影响的过滤条件加版本，不扫描、不删除条目，也不加全局锁。
+ * 分类精确查询按规范化后的分类名索引，失效时直接定位；模糊搜索逐个检查不同的过滤条件（而不是每个分页、排序的条目）。
+ * 加载期间该过滤条件失效过，装入的条目带的是旧版本，下次读取不会命中，不影响其他过滤条件的加载。
+ */
+@Component
+public class SearchResultCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final Cache<Key, Entry> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .recordStats()
+            .build();
+
+    /**
+     * 分类精确查询的版本，键为规范化后的分类名
+     */
+    private final Cache<String, Generation> categoryGenerations = newGenerations();
+
+    /**
+     * 模糊搜索的版本
+     */
+    private final Cache<Filter, Generation> searchGenerations = newGenerations();
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    // 版本被淘汰后重新创建的是另一个对象，仍带着旧对象的条目不会命中
+    private static <K> Cache<K, Generation> newGenerations() {
+        return Caffeine.newBuilder()
+                .maximumSize(MAX_ENTRIES)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    /**
+     * 取缓存结果，未命中时调用 loader 加载
+     *
+     * @param variant 同一过滤条件下区分结果的其余参数，如分页、排序、检索模式
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Filter filter, String variant, Supplier<T> loader) {
+        Key key = new Key(filter, variant);
+        Generation generation = generationOf(filter);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (cached.generation == generation && cached.version == generation.version.get()) {
+                return (T) cached.value;
+            }
+            // 已失效的条目：移除并按未命中处理
+            staleHits.incrementAndGet();
+            if (cache.asMap().remove(key, cached)) {
+                invalidatedEntries.incrementAndGet();
+            }
+        }
+
+        long loadedAt = generation.version.get();
+        T value = loader.get();
+        if (value != null) {
+            cache.put(key, new Entry(generation, loadedAt, value));
+        }
+        return value;
+    }
+
+    /**
+     * 图书变更提交后，删除可能命中该图书的条目
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        Book previous = event.getPrevious();
+        invalidations.incrementAndGet();
+
+        Set<String> categories = new HashSet<>();
+        categories.add(categoryKey(book.getCategory()));
+        if (previous != null) {
+            categories.add(categoryKey(previous.getCategory()));
+        }
+        for (String category : categories) {
+            Generation generation = categoryGenerations.getIfPresent(category);
+            if (generation != null) {
+                generation.version.incrementAndGet();
+            }
+        }
+
+        searchGenerations.asMap().forEach((filter, generation) -> {
+            if (filter.matches(book) || (previous != null && filter.matches(previous))) {
+                generation.version.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * 清空全部条目（批量导入等绕过变更事件的写入之后调用）
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        // 先丢弃版本：正在加载的结果带着旧的版本对象装入，之后不会命中
+        categoryGenerations.invalidateAll();
+        searchGenerations.invalidateAll();
+        invalidatedEntries.addAndGet(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中率、条目数和按条件失效的条目数
+     */
+    public Map<String, Object> metrics() {
+        CacheStats stats = cache.stats();
+        // 读到已失效的条目时 Caffeine 记为命中，这里改记为未命中
+        long stale = staleHits.get();
+        long hits = stats.hitCount() - stale;
+        long requests = stats.requestCount();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.estimatedSize());
+        metrics.put("requests", requests);
+        metrics.put("hits", hits);
+        metrics.put("misses", stats.missCount() + stale);
+        metrics.put("hitRatio", requests == 0 ? 1.0 : (double) hits / requests);
+        metrics.put("evictions", stats.evictionCount());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("invalidatedEntries", invalidatedEntries.get());
+        return metrics;
+    }
+
+    private Generation generationOf(Filter filter) {
+        if (filter.exactCategory) {
+            return categoryGenerations.get(categoryKey(filter.category), category -> new Generation());
+        }
+        return searchGenerations.get(filter, key -> new Generation());
+    }
+
+    // 与 Filter.matches 的分类比较一致，空分类用空串
+    private static String categoryKey(String category) {
+        String normalized = normalize(category);
+        return normalized != null ? normalized : "";
+    }
+
+    // 小写并去掉重音符号，与 MySQL 不区分大小写、重音的比较保持一致（宁可多删）
+    private static String normalize(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    /**
+     * 查询的过滤条件，用于判断一本图书是否可能出现在结果里
+     */
+    public static final class Filter {
+        private final boolean exactCategory;
+        private final String title;
+        private final String author;
+        private final String category;
+        private final String publisher;
+
+        private Filter(boolean exactCategory, String title, String author, String category, String publisher) {
+            this.exactCategory = exactCategory;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.publisher = publisher;
+        }
+
+        /**
+         * 标题、作者、分类、出版社模糊匹配（标题、作者另按拼音前缀匹配）
+         */
+        public static Filter search(String title, String author, String category, String publisher) {
+            return new Filter(false, clean(title), clean(author), clean(category), clean(publisher));
+        }
+
+        /**
+         * 分类精确匹配
+         */
+        public static Filter category(String category) {
+            return new Filter(true, null, null, category, null);
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getPublisher() {
+            return publisher;
+        }
+
+        private boolean matches(Book book) {
+            if (exactCategory) {
+                return Objects.equals(normalize(category), normalize(book.getCategory()));
+            }
+            return matchesText(title, book.getTitle(), book.getTitlePinyin(), book.getTitleInitials())
+                    && matchesText(author, book.getAuthor(), book.getAuthorPinyin(), book.getAuthorInitials())
+                    && matchesText(category, book.getCategory(), null, null)
+                    && matchesText(publisher, book.getPublisher(), null, null);
+        }
+
+        private static boolean matchesText(String query, String text, String pinyin, String initials) {
+            if (query == null) {
+                return true;
+            }
+            String normalizedText = normalize(text);
+            if (normalizedText != null && normalizedText.contains(normalize(query))) {
+                return true;
+            }
+            String pinyinQuery = PinyinUtils.asPinyinQuery(query);
+            if (pinyinQuery == null || text == null) {
+                return false;
+            }
+            String fullPinyin = pinyin != null ? pinyin : PinyinUtils.toPinyin(text);
+            String firstLetters = initials != null ? initials : PinyinUtils.toInitials(text);
+            return fullPinyin.startsWith(pinyinQuery) || firstLetters.startsWith(pinyinQuery);
+        }
+
+        // 去首尾空白，空串视为无条件
+        private static String clean(String value) {
+            return StringUtils.hasText(value) ? value.trim().toLowerCase(Locale.ROOT) : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Filter)) {
+                return false;
+            }
+            Filter other = (Filter) o;
+            return exactCategory == other.exactCategory
+                    && Objects.equals(title, other.title)
+                    && Objects.equals(author, other.author)
+                    && Objects.equals(category, other.category)
+                    && Objects.equals(publisher, other.publisher);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(exactCategory, title, author, category, publisher);
+        }
+    }
+
+    /**
+     * 一个过滤条件的版本号，命中该条件的图书变更一次加一
+     */
+    private static final class Generation {
+        private final AtomicLong version = new AtomicLong();
+    }
+
+    /**
+     * 缓存条目：结果和加载开始时所属过滤条件的版本
+     */
+    private static final class Entry {
+        private final Generation generation;
+        private final long version;
+        private final Object value;
+
+        private Entry(Generation generation, long version, Object value) {
+            this.generation = generation;
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 缓存键：过滤条件 + 其余参数
+     */
+    private static final class Key {
+        private final Filter filter;
+        private final String variant;
+
+        private Key(Filter filter, String variant) {
+            this.filter = filter;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return filter.equals(other.filter) && variant.equals(other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * filter.hashCode() + variant.hashCode();
+        }
+    }
+}
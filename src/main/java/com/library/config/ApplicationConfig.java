@@ -1,10 +1,12 @@
 package com.library.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.time.format.DateTimeFormatter;
@@ -12,6 +14,17 @@ import java.time.format.DateTimeFormatter;
 @Configuration
 public class ApplicationConfig implements WebMvcConfigurer {
     
+    @Autowired
+    private SqlStatementInterceptor sqlStatementInterceptor;
+    
+    /**
+     * 按请求统计 SQL 语句数
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatementInterceptor).addPathPatterns("/api/**");
+    }
+    
     /**
      * CORS配置（跨域资源共享）
      */
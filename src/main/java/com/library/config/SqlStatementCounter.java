@@ -0,0 +1,101 @@
+package com.library.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL 语句计数
+ *
+ * 作为 Hibernate 的 StatementInspector 注册（见 {@link JpaConfig}），Hibernate 每准备一条 SQL 就给当前线程的计数加一；
+ * {@link SqlStatementInterceptor} 按接口汇总每个请求执行的语句数，超过阈值时记录警告。
+ * 主键号段分配直接走 JDBC，不经过 Hibernate，不计入。
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementCounter.class);
+    
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+    
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    
+    @Value("${library.sql.request-warn-threshold:20}")
+    private int warnThreshold = 20;
+    
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get()[0]++;
+        return sql;
+    }
+    
+    /**
+     * 当前线程累计执行的语句数，前后两次读取相减即为期间执行的语句数
+     */
+    public long current() {
+        return STATEMENTS.get()[0];
+    }
+    
+    /**
+     * 执行一段操作，返回期间当前线程执行的语句数
+     */
+    public long count(Runnable action) {
+        long before = current();
+        action.run();
+        return current() - before;
+    }
+    
+    /**
+     * 记录一个请求执行的语句数
+     */
+    public void record(String endpoint, long statements) {
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointStats()).record(statements);
+        if (statements > warnThreshold) {
+            logger.warn("{} 执行了 {} 条 SQL，超过阈值 {}", endpoint, statements, warnThreshold);
+        }
+    }
+    
+    /**
+     * 各接口的请求数、平均和最大语句数
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> metrics.put(endpoint, stats.snapshot()));
+        return metrics;
+    }
+    
+    public void resetMetrics() {
+        endpoints.clear();
+    }
+    
+    private static final class EndpointStats {
+        
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        
+        void record(long count) {
+            requests.increment();
+            statements.add(count);
+            maxStatements.accumulate(count);
+        }
+        
+        Map<String, Object> snapshot() {
+            long n = requests.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("requests", n);
+            item.put("meanStatements", n == 0 ? 0.0 : Math.round(statements.sum() * 100.0 / n) / 100.0);
+            item.put("maxStatements", maxStatements.get());
+            return item;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.library.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 按请求统计 SQL 语句数
+ *
+ * 进入处理方法前记下当前线程的语句计数，请求完成后相减，按“方法 + 路径模板”汇总到 {@link SqlStatementCounter}。
+ */
+@Component
+public class SqlStatementInterceptor implements HandlerInterceptor {
+    
+    private static final String START_ATTRIBUTE = SqlStatementInterceptor.class.getName() + ".start";
+    
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, sqlStatementCounter.current());
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        sqlStatementCounter.record(endpoint, sqlStatementCounter.current() - (Long) start);
+    }
+}
@@ -1,15 +1,23 @@
 package com.library.controller;
 
 import com.library.ApiResponse;
+import com.library.AppConstants;
 import com.library.dto.BookDTO;
+import com.library.dto.BookFacetSearchDTO;
+import com.library.dto.BookSuggestionDTO;
+import com.library.dto.BookSummary;
+import com.library.dto.CursorSlice;
 import com.library.entity.Book;
+import com.library.entity.BookInventorySlot;
 import com.library.exception.BusinessException;
+import com.library.service.BookInventoryService;
 import com.library.service.BookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +41,9 @@ public class BookController {
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private BookInventoryService bookInventoryService;
+    
     @PostMapping
     @Operation(summary = "添加新图书", description = "添加一本新图书到图书馆")
     public ResponseEntity<ApiResponse<Book>> addBook(
@@ -62,14 +74,34 @@ public class BookController {
     
     @GetMapping("/isbn/{isbn}")
     @Operation(summary = "根据ISBN获取图书", description = "根据ISBN号获取图书信息")
-    public ResponseEntity<ApiResponse<Book>> getBookByIsbn(
+    public ResponseEntity<ApiResponse<BookDTO>> getBookByIsbn(
             @Parameter(description = "ISBN号", required = true, example = "978-7-111-55674-7")
             @PathVariable String isbn) {
         
-        Book book = bookService.getBookByIsbn(isbn)
+        BookDTO bookDTO = bookService.getBookDTOByIsbn(isbn)
                 .orElseThrow(() -> BusinessException.notFound("图书"));
         
-        return ResponseEntity.ok(ApiResponse.success(book));
+        return ResponseEntity.ok(ApiResponse.success(bookDTO));
+    }
+    
+    @GetMapping(params = "ids")
+    @Operation(summary = "批量获取图书", description = "按ID列表批量获取图书，按请求顺序返回，不存在的ID跳过")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getBooksByIds(
+            @Parameter(description = "图书ID列表，逗号分隔", required = true, example = "1,2,3")
+            @RequestParam List<Long> ids) {
+        
+        checkMultiGetSize(ids.size());
+        return ResponseEntity.ok(ApiResponse.success(bookService.getBookDTOsByIds(ids)));
+    }
+    
+    @GetMapping(value = "/isbn", params = "isbns")
+    @Operation(summary = "根据ISBN批量获取图书", description = "按ISBN列表批量获取图书，按请求顺序返回，不存在的ISBN跳过")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getBooksByIsbns(
+            @Parameter(description = "ISBN列表，逗号分隔", required = true, example = "978-7-111-55674-7,978-7-115-42802-8")
+            @RequestParam List<String> isbns) {
+        
+        checkMultiGetSize(isbns.size());
+        return ResponseEntity.ok(ApiResponse.success(bookService.getBookDTOsByIsbns(isbns)));
     }
     
     @PutMapping("/{bookId}")
@@ -98,8 +130,8 @@ public class BookController {
     }
     
     @GetMapping
-    @Operation(summary = "获取图书列表", description = "分页获取所有图书，支持排序")
-    public ResponseEntity<ApiResponse<Page<Book>>> getBooks(
+    @Operation(summary = "获取图书列表", description = "分页获取所有图书摘要（不含简介，详情见 /{bookId}），支持排序")
+    public ResponseEntity<ApiResponse<Page<BookSummary>>> getBooks(
             @Parameter(description = "页码", example = "0")
             @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小", example = "10")
@@ -112,55 +144,184 @@ public class BookController {
                 ? Sort.Direction.DESC : Sort.Direction.ASC;
         
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortParams[0]));
-        Page<Book> books = bookService.getBooks(pageable);
+        Page<BookSummary> books = bookService.getBooks(pageable);
         
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
+    @GetMapping(params = "cursor")
+    @Operation(summary = "游标分页获取图书列表", description = "按游标获取下一页图书，游标为空表示第一页；深分页时无需 OFFSET 扫描")
+    public ResponseEntity<ApiResponse<CursorSlice<BookSummary>>> getBooksByCursor(
+            @Parameter(description = "上一页返回的 nextCursor")
+            @RequestParam String cursor,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "排序字段，如：createdAt,desc", example = "id,desc")
+            @RequestParam(defaultValue = "id,desc") String sort) {
+        
+        try {
+            CursorSlice<BookSummary> books = bookService.getBooksAfter(cursor, clampSize(size), parseOrder(sort));
+            return ResponseEntity.ok(ApiResponse.success(books));
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest(e.getMessage());
+        }
+    }
+    
+    @GetMapping(value = "/search", params = "cursor")
+    @Operation(summary = "游标分页搜索图书", description = "按游标获取下一页搜索结果，游标为空表示第一页")
+    public ResponseEntity<ApiResponse<CursorSlice<BookSummary>>> searchBooksByCursor(
+            @Parameter(description = "图书标题")
+            @RequestParam(required = false) String title,
+            @Parameter(description = "作者")
+            @RequestParam(required = false) String author,
+            @Parameter(description = "分类")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "上一页返回的 nextCursor")
+            @RequestParam String cursor,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "排序字段，如：title,asc", example = "id,desc")
+            @RequestParam(defaultValue = "id,desc") String sort) {
+        
+        try {
+            CursorSlice<BookSummary> books = bookService.searchBooksAfter(title, author, category,
+                    cursor, clampSize(size), parseOrder(sort));
+            return ResponseEntity.ok(ApiResponse.success(books));
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest(e.getMessage());
+        }
+    }
+    
     @GetMapping("/search")
-    @Operation(summary = "搜索图书", description = "根据条件搜索图书（支持按标题、作者、分类搜索）")
-    public ResponseEntity<ApiResponse<Page<Book>>> searchBooks(
+    @Operation(summary = "搜索图书", description = "根据条件搜索图书（支持按标题、作者、分类搜索，默认按相关度排序，fuzzy=true 时容忍拼写错误）")
+    public ResponseEntity<ApiResponse<Page<BookSummary>>> searchBooks(
+            @Parameter(description = "图书标题")
+            @RequestParam(required = false) String title,
+            @Parameter(description = "作者")
+            @RequestParam(required = false) String author,
+            @Parameter(description = "分类")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "是否容错匹配标题和作者（结果按编辑距离排序）", example = "false")
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @Parameter(description = "容错匹配时每个词允许的最大编辑距离（0~2）", example = "2")
+            @RequestParam(defaultValue = "2") int maxEdits,
+            @Parameter(description = "页码", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "排序：relevance（相关度）或字段排序，如：id,desc", example = "relevance")
+            @RequestParam(defaultValue = "relevance") String sort) {
+        
+        Page<BookSummary> books;
+        if (fuzzy) {
+            books = bookService.fuzzySearchBooks(title, author, category, Math.max(0, Math.min(maxEdits, 2)),
+                    PageRequest.of(page, size));
+        } else if ("relevance".equalsIgnoreCase(sort)) {
+            books = bookService.searchBooksByRelevance(title, author, category, PageRequest.of(page, size));
+        } else {
+            books = bookService.searchBooks(title, author, category, PageRequest.of(page, size, Sort.by(parseOrder(sort))));
+        }
+        
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/search/facets")
+    @Operation(summary = "分面搜索图书", description = "搜索图书，并返回检索结果按分类、出版社、状态的数量分布")
+    public ResponseEntity<ApiResponse<BookFacetSearchDTO>> searchBooksWithFacets(
             @Parameter(description = "图书标题")
             @RequestParam(required = false) String title,
             @Parameter(description = "作者")
             @RequestParam(required = false) String author,
             @Parameter(description = "分类")
             @RequestParam(required = false) String category,
+            @Parameter(description = "出版社")
+            @RequestParam(required = false) String publisher,
             @Parameter(description = "页码", example = "0")
             @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小", example = "10")
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
-        Page<Book> books = bookService.searchBooks(title, author, category, pageable);
+        BookFacetSearchDTO result = bookService.searchBooksWithFacets(title, author, category, publisher, pageable);
         
-        return ResponseEntity.ok(ApiResponse.success(books));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+    
+    @GetMapping("/suggest")
+    @Operation(summary = "输入提示", description = "按前缀补全图书标题、作者和ISBN，按借阅次数排序")
+    public ResponseEntity<ApiResponse<List<BookSuggestionDTO>>> suggestBooks(
+            @Parameter(description = "输入前缀", required = true, example = "红楼")
+            @RequestParam String prefix,
+            @Parameter(description = "返回数量", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<BookSuggestionDTO> suggestions = bookService.suggestBooks(prefix, Math.min(limit, 50));
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
     }
     
     @GetMapping("/available")
-    @Operation(summary = "获取可借阅的图书", description = "获取所有当前可借阅的图书")
-    public ResponseEntity<ApiResponse<List<Book>>> getAvailableBooks() {
-        List<Book> books = bookService.getAvailableBooks();
+    @Operation(summary = "获取可借阅的图书", description = "分页获取当前可借阅的图书，按ID排序")
+    public ResponseEntity<ApiResponse<Page<BookSummary>>> getAvailableBooks(
+            @Parameter(description = "页码", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        
+        Page<BookSummary> books = bookService.getAvailableBooks(PageRequest.of(page, size, Sort.by("id")));
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
     @GetMapping("/category/{category}")
     @Operation(summary = "按分类获取图书", description = "根据分类获取图书列表")
-    public ResponseEntity<ApiResponse<List<Book>>> getBooksByCategory(
+    public ResponseEntity<ApiResponse<List<BookSummary>>> getBooksByCategory(
             @Parameter(description = "图书分类", required = true, example = "计算机")
             @PathVariable String category) {
         
-        List<Book> books = bookService.getBooksByCategory(category);
+        List<BookSummary> books = bookService.getBooksByCategory(category);
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
     @GetMapping("/popular")
-    @Operation(summary = "获取热门图书", description = "获取热门推荐图书")
-    public ResponseEntity<ApiResponse<List<Book>>> getPopularBooks(
-            @Parameter(description = "返回数量", example = "10")
+    @Operation(summary = "获取热门图书", description = "按借阅次数降序获取热门图书，可限定分类")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getPopularBooks(
+            @Parameter(description = "图书分类，为空时为全馆排行", example = "计算机")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "返回数量（最多 " + AppConstants.POPULAR_TOP_K + "）", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<BookDTO> books = bookService.getPopularBooks(category,
+                Math.max(1, Math.min(limit, AppConstants.POPULAR_TOP_K)));
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/trending")
+    @Operation(summary = "获取近期趋势图书", description = "按最近一段时间内的借阅次数降序获取图书，窗口最长 7 天")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getTrendingBooks(
+            @Parameter(description = "统计窗口，如 6h、24h、7d", example = "24h")
+            @RequestParam(defaultValue = "7d") String window,
+            @Parameter(description = "返回数量（最多 " + AppConstants.POPULAR_TOP_K + "）", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        try {
+            Duration duration = DurationStyle.detectAndParse(window);
+            List<BookDTO> books = bookService.getTrendingBooks(duration,
+                    Math.max(1, Math.min(limit, AppConstants.POPULAR_TOP_K)));
+            return ResponseEntity.ok(ApiResponse.success(books));
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/{bookId}/also-borrowed")
+    @Operation(summary = "借过这本书的读者还借了", description = "按共同借阅相似度降序返回相关图书")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getAlsoBorrowedBooks(
+            @Parameter(description = "图书ID", required = true, example = "1")
+            @PathVariable Long bookId,
+            @Parameter(description = "返回数量（最多 " + AppConstants.CO_BORROW_NEIGHBOURS + "）", example = "10")
             @RequestParam(defaultValue = "10") int limit) {
         
-        List<Book> books = bookService.getPopularBooks(limit);
+        List<BookDTO> books = bookService.getAlsoBorrowedBooks(bookId,
+                Math.max(1, Math.min(limit, AppConstants.CO_BORROW_NEIGHBOURS)));
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
@@ -212,6 +373,39 @@ public class BookController {
         return ResponseEntity.ok(ApiResponse.success("库存更新成功", book));
     }
     
+    @GetMapping("/{bookId}/inventory-slots")
+    @Operation(summary = "查看库存分槽", description = "热门图书各库存槽的可借册数，未开启分槽时为空")
+    public ResponseEntity<ApiResponse<List<BookInventorySlot>>> getInventorySlots(
+            @Parameter(description = "图书ID", required = true, example = "1")
+            @PathVariable Long bookId) {
+        
+        List<BookInventorySlot> slots = bookInventoryService.getInventorySlots(bookId);
+        return ResponseEntity.ok(ApiResponse.success(slots));
+    }
+    
+    @PutMapping("/{bookId}/inventory-slots")
+    @Operation(summary = "开启库存分槽", description = "把热门图书的可借册数拆到多个槽中，并发借阅分散到多行扣减；" +
+            "图书的可借册数改为定时汇总（最终一致）")
+    public ResponseEntity<ApiResponse<Book>> enableInventorySlots(
+            @Parameter(description = "图书ID", required = true, example = "1")
+            @PathVariable Long bookId,
+            @Parameter(description = "分槽数（2 到 " + AppConstants.HOT_INVENTORY_MAX_SLOTS + "）")
+            @RequestParam(defaultValue = "8") int slots) {
+        
+        Book book = bookInventoryService.enableInventorySlots(bookId, slots);
+        return ResponseEntity.ok(ApiResponse.success("库存分槽已开启", book));
+    }
+    
+    @DeleteMapping("/{bookId}/inventory-slots")
+    @Operation(summary = "关闭库存分槽", description = "各槽可借册数汇总写回图书并删除分槽")
+    public ResponseEntity<ApiResponse<Book>> disableInventorySlots(
+            @Parameter(description = "图书ID", required = true, example = "1")
+            @PathVariable Long bookId) {
+        
+        Book book = bookInventoryService.disableInventorySlots(bookId);
+        return ResponseEntity.ok(ApiResponse.success("库存分槽已关闭", book));
+    }
+    
     @GetMapping("/statistics")
     @Operation(summary = "图书统计信息", description = "获取图书相关的统计信息")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getBookStatistics() {
@@ -226,9 +420,26 @@ public class BookController {
     }
     
     @GetMapping("/low-stock")
-    @Operation(summary = "获取库存不足的图书", description = "获取库存少于3本的图书")
-    public ResponseEntity<ApiResponse<List<Book>>> getLowStockBooks() {
-        List<Book> books = bookService.getLowStockBooks();
+    @Operation(summary = "获取库存不足的图书", description = "分页获取库存少于3本的图书，按ID排序")
+    public ResponseEntity<ApiResponse<Page<BookSummary>>> getLowStockBooks(
+            @Parameter(description = "页码", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        
+        Page<BookSummary> books = bookService.getLowStockBooks(PageRequest.of(page, size, Sort.by("id")));
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/out-of-stock")
+    @Operation(summary = "获取无库存的图书", description = "分页获取可借册数为0的图书，按ID排序")
+    public ResponseEntity<ApiResponse<Page<BookSummary>>> getOutOfStockBooks(
+            @Parameter(description = "页码", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        
+        Page<BookSummary> books = bookService.getOutOfStockBooks(PageRequest.of(page, size, Sort.by("id")));
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
@@ -239,4 +450,24 @@ public class BookController {
         // 为了简单，我们返回一个空的列表
         return ResponseEntity.ok(ApiResponse.success(List.of()));
     }
+    
+    // 辅助方法：解析 "字段,方向" 形式的排序参数
+    private Sort.Order parseOrder(String sort) {
+        String[] sortParams = sort.split(",");
+        Sort.Direction direction = sortParams.length > 1 && "desc".equalsIgnoreCase(sortParams[1])
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return new Sort.Order(direction, sortParams[0]);
+    }
+    
+    // 辅助方法：限制批量获取的数量
+    private void checkMultiGetSize(int size) {
+        if (size > AppConstants.MAX_MULTI_GET_SIZE) {
+            throw BusinessException.badRequest("一次最多获取 " + AppConstants.MAX_MULTI_GET_SIZE + " 条");
+        }
+    }
+    
+    // 辅助方法：限制游标分页的每页大小
+    private int clampSize(int size) {
+        return Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+    }
 }
\ No newline at end of file
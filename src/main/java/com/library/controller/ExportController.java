@@ -0,0 +1,82 @@
+package com.library.controller;
+
+import com.library.exception.BusinessException;
+import com.library.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * 数据导出控制器
+ *
+ * 响应体边读边写，不在内存中组装完整结果，用于夜间同步等全量导出场景。
+ */
+@RestController
+@RequestMapping("/api/export")
+@Tag(name = "数据导出", description = "图书目录、用户、借阅记录的全量流式导出（NDJSON / CSV）")
+public class ExportController {
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @GetMapping("/books")
+    @Operation(summary = "导出图书目录", description = "按ID顺序流式导出全部图书")
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @Parameter(description = "导出格式：ndjson 或 csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        
+        ExportService.Format exportFormat = parseFormat(format);
+        return streaming("books", exportFormat, out -> exportService.exportBooks(exportFormat, out));
+    }
+    
+    @GetMapping("/users")
+    @Operation(summary = "导出用户列表", description = "按ID顺序流式导出全部用户（不含密码）")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @Parameter(description = "导出格式：ndjson 或 csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        
+        ExportService.Format exportFormat = parseFormat(format);
+        return streaming("users", exportFormat, out -> exportService.exportUsers(exportFormat, out));
+    }
+    
+    @GetMapping("/borrow-records")
+    @Operation(summary = "导出借阅历史", description = "按ID顺序流式导出全部借阅记录")
+    public ResponseEntity<StreamingResponseBody> exportBorrowRecords(
+            @Parameter(description = "导出格式：ndjson 或 csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format) {
+        
+        ExportService.Format exportFormat = parseFormat(format);
+        return streaming("borrow-records", exportFormat, out -> exportService.exportBorrowRecords(exportFormat, out));
+    }
+    
+    // 辅助方法：按格式设置响应头；导出在异步线程中执行，事务由导出服务自己开启
+    private ResponseEntity<StreamingResponseBody> streaming(String name, ExportService.Format format,
+                                                           StreamingResponseBody body) {
+        boolean csv = format == ExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+                .body(body);
+    }
+    
+    private ExportService.Format parseFormat(String format) {
+        try {
+            return ExportService.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest("不支持的导出格式: " + format);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.library.controller;
+
+import com.library.ApiResponse;
+import com.library.entity.ImportJob;
+import com.library.exception.BusinessException;
+import com.library.service.BookImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图书批量导入控制器
+ *
+ * 上传后立即返回任务，导入在后台执行；通过任务接口查询进度，失败后可从断点继续。
+ */
+@RestController
+@RequestMapping("/api/import")
+@Tag(name = "批量导入", description = "图书目录批量导入（CSV / MARC）及任务进度")
+public class ImportController {
+    
+    @Autowired
+    private BookImportService bookImportService;
+    
+    @PostMapping(value = "/books", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "批量导入图书", description = "上传 CSV（表头与导出一致）或 MARC（ISO 2709）文件，后台按批导入，ISBN 已存在的跳过")
+    public ResponseEntity<ApiResponse<ImportJob>> importBooks(
+            @Parameter(description = "导入文件", required = true)
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "文件格式：csv 或 marc", example = "csv")
+            @RequestParam(defaultValue = "csv") String format) {
+        
+        ImportJob.Format importFormat = parseFormat(format);
+        if (file.isEmpty()) {
+            throw BusinessException.badRequest("导入文件为空");
+        }
+        
+        ImportJob job;
+        try (InputStream content = file.getInputStream()) {
+            job = bookImportService.createJob(file.getOriginalFilename(), importFormat, content);
+        } catch (IOException e) {
+            throw new IllegalStateException("保存导入文件失败: " + e.getMessage(), e);
+        }
+        bookImportService.startJob(job.getId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("导入任务已开始", job));
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "查询导入进度", description = "返回已处理、新增、重复、无效记录数，完成百分比和每秒处理条数")
+    public ResponseEntity<ApiResponse<ImportJob>> getJob(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable Long jobId) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(bookImportService.getJob(jobId)));
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.notFound("导入任务");
+        }
+    }
+    
+    @GetMapping("/jobs")
+    @Operation(summary = "导入任务列表", description = "分页查询导入任务，最近创建的在前")
+    public ResponseEntity<ApiResponse<Page<ImportJob>>> getJobs(
+            @Parameter(description = "页码（从0开始）", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        
+        return ResponseEntity.ok(ApiResponse.success(bookImportService.getJobs(PageRequest.of(page, size))));
+    }
+    
+    @PostMapping("/jobs/{jobId}/resume")
+    @Operation(summary = "继续导入", description = "从上次提交的断点继续执行失败或中断的任务")
+    public ResponseEntity<ApiResponse<ImportJob>> resumeJob(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable Long jobId) {
+        
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("导入任务已继续", bookImportService.startJob(jobId)));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw BusinessException.badRequest(e.getMessage());
+        }
+    }
+    
+    private ImportJob.Format parseFormat(String format) {
+        try {
+            return ImportJob.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest("不支持的导入格式: " + format);
+        }
+    }
+}
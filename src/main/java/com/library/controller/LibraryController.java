@@ -1,6 +1,9 @@
 package com.library.controller;
 
 import com.library.ApiResponse;
+import com.library.AppConstants;
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BookDTO;
 import com.library.dto.BorrowRequestDTO;
 import com.library.entity.Book;
 import com.library.entity.BorrowRecord;
@@ -78,16 +81,16 @@ public class LibraryController {
     
     @PostMapping("/batch-borrow")
     @Operation(summary = "批量借阅", description = "批量借阅多本图书")
-    public ResponseEntity<ApiResponse<List<BorrowRecord>>> batchBorrow(
+    public ResponseEntity<ApiResponse<List<BatchItemResultDTO>>> batchBorrow(
             @Parameter(description = "用户ID", required = true, example = "1")
             @RequestParam Long userId,
             @Parameter(description = "图书ID列表", required = true)
             @RequestParam List<Long> bookIds) {
         
         try {
-            List<BorrowRecord> records = libraryService.batchBorrowBooks(userId, bookIds);
+            List<BatchItemResultDTO> results = libraryService.batchBorrowBooks(userId, bookIds);
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(ApiResponse.success("批量借阅成功", records));
+                    .body(ApiResponse.success(batchMessage("批量借阅", results), results));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
@@ -111,21 +114,26 @@ public class LibraryController {
     
     @PostMapping("/batch-return")
     @Operation(summary = "批量归还", description = "批量归还多本图书")
-    public ResponseEntity<ApiResponse<List<BorrowRecord>>> batchReturn(
+    public ResponseEntity<ApiResponse<List<BatchItemResultDTO>>> batchReturn(
             @Parameter(description = "用户ID", required = true, example = "1")
             @RequestParam Long userId,
             @Parameter(description = "借阅记录ID列表", required = true)
             @RequestParam List<Long> recordIds) {
         
         try {
-            List<BorrowRecord> records = libraryService.batchReturnBooks(userId, recordIds);
-            return ResponseEntity.ok(ApiResponse.success("批量归还成功", records));
+            List<BatchItemResultDTO> results = libraryService.batchReturnBooks(userId, recordIds);
+            return ResponseEntity.ok(ApiResponse.success(batchMessage("批量归还", results), results));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    private String batchMessage(String operation, List<BatchItemResultDTO> results) {
+        long succeeded = results.stream().filter(BatchItemResultDTO::isSuccess).count();
+        return operation + "完成：成功 " + succeeded + " 本，失败 " + (results.size() - succeeded) + " 本";
+    }
+    
     @PostMapping("/renew/{recordId}")
     @Operation(summary = "续借图书", description = "续借已借阅的图书")
     public ResponseEntity<ApiResponse<BorrowRecord>> renewBook(
@@ -186,11 +194,24 @@ public class LibraryController {
     
     @GetMapping("/recommendations")
     @Operation(summary = "获取推荐图书", description = "获取热门推荐图书")
-    public ResponseEntity<ApiResponse<List<Book>>> getRecommendedBooks(
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getRecommendedBooks(
+            @Parameter(description = "返回数量", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<BookDTO> books = libraryService.getRecommendedBooks(Math.max(1, Math.min(limit, AppConstants.POPULAR_TOP_K)));
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/user/{userId}/recommendations")
+    @Operation(summary = "获取读者个性化推荐", description = "根据读者借过的图书按共同借阅推荐，没有借阅历史时返回热门图书")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> getRecommendedBooksForUser(
+            @Parameter(description = "用户ID", required = true, example = "1")
+            @PathVariable Long userId,
             @Parameter(description = "返回数量", example = "10")
             @RequestParam(defaultValue = "10") int limit) {
         
-        List<Book> books = libraryService.getRecommendedBooks(limit);
+        List<BookDTO> books = libraryService.getRecommendedBooksForUser(userId,
+                Math.max(1, Math.min(limit, AppConstants.POPULAR_TOP_K)));
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
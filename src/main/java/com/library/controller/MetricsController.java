@@ -0,0 +1,103 @@
+package com.library.controller;
+
+import com.library.ApiResponse;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.library.aop.OptimisticRetryAspect;
+import com.library.cache.SearchResultCache;
+import com.library.config.SqlStatementCounter;
+import com.library.lock.StripedLockManager;
+import com.library.search.ExistenceFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标控制器
+ */
+@RestController
+@RequestMapping("/api/metrics")
+@Tag(name = "运行指标", description = "内存索引、过滤器等组件的运行指标")
+public class MetricsController {
+    
+    @Autowired
+    private ExistenceFilter existenceFilter;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Autowired
+    private OptimisticRetryAspect optimisticRetryAspect;
+    
+    @Autowired
+    private StripedLockManager stripedLockManager;
+    
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    
+    @GetMapping("/bloom-filters")
+    @Operation(summary = "存在性过滤器指标", description = "ISBN、用户名、邮箱布隆过滤器的误判率、内存占用和拦截次数")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getBloomFilterMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(existenceFilter.metrics()));
+    }
+    
+    @GetMapping("/caches")
+    @Operation(summary = "缓存指标", description = "各缓存的命中率、淘汰次数和当前条目数")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache)) {
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+            CacheStats stats = nativeCache.stats();
+            
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("size", nativeCache.estimatedSize());
+            item.put("requests", stats.requestCount());
+            item.put("hits", stats.hitCount());
+            item.put("misses", stats.missCount());
+            item.put("hitRatio", stats.hitRate());
+            item.put("evictions", stats.evictionCount());
+            metrics.put(name, item);
+        }
+        return ResponseEntity.ok(ApiResponse.success(metrics));
+    }
+    
+    @GetMapping("/search-cache")
+    @Operation(summary = "搜索结果缓存指标", description = "图书搜索结果缓存的命中率、条目数和按条件失效的条目数")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSearchCacheMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(searchResultCache.metrics()));
+    }
+    
+    @GetMapping("/optimistic-retries")
+    @Operation(summary = "乐观锁重试指标", description = "各服务方法的调用次数、版本冲突次数、重试次数和重试用尽次数")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOptimisticRetryMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(optimisticRetryAspect.metrics()));
+    }
+    
+    @GetMapping("/circulation-locks")
+    @Operation(summary = "借还本地锁指标", description = "借阅、归还、续借等待本地锁的次数、超时次数和等待时间分布")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCirculationLockMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(stripedLockManager.metrics()));
+    }
+    
+    @GetMapping("/sql-statements")
+    @Operation(summary = "SQL语句数指标", description = "各接口的请求数和每个请求执行的平均、最大 SQL 语句数")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSqlStatementMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(sqlStatementCounter.metrics()));
+    }
+}
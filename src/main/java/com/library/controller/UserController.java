@@ -1,6 +1,7 @@
 package com.library.controller;
 
 import com.library.ApiResponse;
+import com.library.AppConstants;
 import com.library.dto.UserDTO;
 import com.library.entity.User;
 import com.library.exception.BusinessException;
@@ -60,6 +61,18 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(userDTO));
     }
     
+    @GetMapping(params = "ids")
+    @Operation(summary = "批量获取用户", description = "按ID列表批量获取用户，按请求顺序返回，不存在的ID跳过")
+    public ResponseEntity<ApiResponse<List<UserDTO>>> getUsersByIds(
+            @Parameter(description = "用户ID列表，逗号分隔", required = true, example = "1,2,3")
+            @RequestParam List<Long> ids) {
+        
+        if (ids.size() > AppConstants.MAX_MULTI_GET_SIZE) {
+            throw BusinessException.badRequest("一次最多获取 " + AppConstants.MAX_MULTI_GET_SIZE + " 条");
+        }
+        return ResponseEntity.ok(ApiResponse.success(userService.getUserDTOsByIds(ids)));
+    }
+    
     @PutMapping("/{userId}")
     @Operation(summary = "更新用户信息", description = "更新指定用户的信息")
     public ResponseEntity<ApiResponse<User>> updateUser(
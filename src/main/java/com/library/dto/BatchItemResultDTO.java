@@ -0,0 +1,51 @@
+package com.library.dto;
+
+import com.library.entity.BorrowRecord;
+import lombok.Data;
+
+/**
+ * 批量借还中单项的处理结果数据传输对象
+ */
+@Data
+public class BatchItemResultDTO {
+    
+    private Long id;                // 批量借阅时为图书ID，批量归还时为借阅记录ID
+    private boolean success;
+    private FailureReason reason;   // 成功时为空
+    private String message;
+    private BorrowRecord record;    // 成功时为新建或已归还的借阅记录
+    
+    /**
+     * 失败原因
+     */
+    public enum FailureReason {
+        DUPLICATE_IN_BATCH,     // 同一批中重复出现
+        BOOK_NOT_FOUND,         // 图书不存在或已删除
+        RECORD_NOT_FOUND,       // 借阅记录不存在
+        NOT_OWNER,              // 借阅记录不属于该用户
+        ALREADY_BORROWED,       // 用户已借阅该书
+        ALREADY_RETURNED,       // 图书已归还
+        USER_NOT_ALLOWED,       // 用户被禁用或有未缴罚款
+        BORROW_LIMIT_REACHED,   // 超出用户剩余借阅名额
+        BOOK_UNAVAILABLE,       // 图书无可借库存、不可借或正在切换库存模式
+        CONFLICT                // 写入时与其他事务冲突
+    }
+    
+    public BatchItemResultDTO() {}
+    
+    public static BatchItemResultDTO success(Long id, BorrowRecord record) {
+        BatchItemResultDTO result = new BatchItemResultDTO();
+        result.id = id;
+        result.success = true;
+        result.record = record;
+        return result;
+    }
+    
+    public static BatchItemResultDTO failure(Long id, FailureReason reason, String message) {
+        BatchItemResultDTO result = new BatchItemResultDTO();
+        result.id = id;
+        result.reason = reason;
+        result.message = message;
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package com.library.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * 分面搜索结果：当前页图书 + 整个检索结果在各分面上的计数
+ */
+@Data
+public class BookFacetSearchDTO {
+
+    private Page<BookSummary> books;
+
+    /**
+     * 分面名（category / publisher / status） -> 取值 -> 图书数量，按数量降序
+     */
+    private Map<String, Map<String, Integer>> facets;
+
+    public BookFacetSearchDTO() {}
+
+    public BookFacetSearchDTO(Page<BookSummary> books, Map<String, Map<String, Integer>> facets) {
+        this.books = books;
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,24 @@
+package com.library.dto;
+
+import lombok.Data;
+
+/**
+ * 图书输入提示数据传输对象
+ */
+@Data
+public class BookSuggestionDTO {
+
+    private String text;
+    private String type;       // TITLE / AUTHOR / ISBN
+    private Long bookId;       // 作者提示不对应单本图书，为空
+    private Long borrowCount;
+
+    public BookSuggestionDTO() {}
+
+    public BookSuggestionDTO(String text, String type, Long bookId, Long borrowCount) {
+        this.text = text;
+        this.type = type;
+        this.bookId = bookId;
+        this.borrowCount = borrowCount;
+    }
+}
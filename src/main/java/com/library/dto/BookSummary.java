@@ -0,0 +1,62 @@
+package com.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.library.entity.Book;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图书列表摘要（只读投影）
+ * 由 JPQL 构造表达式直接生成，不含简介（TEXT）和拼音检索列，不进入持久化上下文；
+ * 列表接口使用，完整信息通过图书详情获取。
+ * 创建、更新时间只在游标分页时填充（用作游标的排序值），其余列表为空
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookSummary {
+    
+    private Long id;
+    private String isbn;
+    private String title;
+    private String author;
+    private String publisher;
+    private String publishDate;
+    private String category;
+    private Integer totalCopies;
+    private Integer availableCopies;
+    private String location;
+    private Book.BookStatus status;
+    private Double price;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    
+    public BookSummary() {}
+    
+    public BookSummary(Long id, String isbn, String title, String author, String publisher,
+                       String publishDate, String category, Integer totalCopies, Integer availableCopies,
+                       String location, Book.BookStatus status, Double price) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.publisher = publisher;
+        this.publishDate = publishDate;
+        this.category = category;
+        this.totalCopies = totalCopies;
+        this.availableCopies = availableCopies;
+        this.location = location;
+        this.status = status;
+        this.price = price;
+    }
+
+    public BookSummary(Long id, String isbn, String title, String author, String publisher,
+                       String publishDate, String category, Integer totalCopies, Integer availableCopies,
+                       String location, Book.BookStatus status, Double price,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, isbn, title, author, publisher, publishDate, category, totalCopies, availableCopies,
+                location, status, price);
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果（不含总数，避免额外的 COUNT 查询）
+ */
+@Data
+public class CursorSlice<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;   // 没有下一页时为空
+
+    public CursorSlice() {}
+
+    public CursorSlice(List<T> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = content.size();
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -14,8 +14,11 @@ import java.time.LocalDateTime;
 @MappedSuperclass
 public class BaseEntity {
     
+    /**
+     * 主键，按号段预分配（见 {@link PooledId}），新增实体的 INSERT 可以批量执行
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId
     private Long id;
     
     @CreatedDate
@@ -1,5 +1,7 @@
 package com.library.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.library.util.PinyinUtils;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -85,6 +87,48 @@ public class Book extends BaseEntity {
     @Column(columnDefinition = "TEXT")
     private String description;
     
+    /**
+     * 标题全拼（保存时生成，用于拼音检索）
+     */
+    @JsonIgnore
+    @Column(name = "title_pinyin", length = 1200)
+    private String titlePinyin;
+    
+    /**
+     * 标题拼音首字母
+     */
+    @JsonIgnore
+    @Column(name = "title_initials", length = 200)
+    private String titleInitials;
+    
+    /**
+     * 作者全拼
+     */
+    @JsonIgnore
+    @Column(name = "author_pinyin", length = 600)
+    private String authorPinyin;
+    
+    /**
+     * 作者拼音首字母
+     */
+    @JsonIgnore
+    @Column(name = "author_initials", length = 100)
+    private String authorInitials;
+    
+    /**
+     * 库存分槽数：0 为普通模式；大于 0 为热门图书，借还扣减 book_inventory_slots 中的各槽，
+     * 可借册数由定时任务汇总各槽得到（最终一致）
+     */
+    @Column(name = "inventory_slots", nullable = false)
+    private Integer inventorySlots = 0;
+    
+    /**
+     * 乐观锁版本号：每次更新加一，提交时与读取时的版本不一致说明已被其他事务修改
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+    
     /**
      * 图书状态枚举
      */
@@ -105,6 +149,13 @@ public class Book extends BaseEntity {
         return availableCopies > 0 && status == BookStatus.AVAILABLE;
     }
     
+    /**
+     * 是否已开启库存分槽
+     */
+    public boolean isHotTitle() {
+        return inventorySlots != null && inventorySlots > 0;
+    }
+    
     /**
      * 借出一本书
      */
@@ -129,6 +180,18 @@ public class Book extends BaseEntity {
         }
     }
     
+    /**
+     * 保存前根据标题、作者生成拼音检索字段
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updatePinyin() {
+        titlePinyin = PinyinUtils.toPinyin(title);
+        titleInitials = PinyinUtils.toInitials(title);
+        authorPinyin = PinyinUtils.toPinyin(author);
+        authorInitials = PinyinUtils.toInitials(author);
+    }
+    
     /**
      * 获取图书摘要信息
      */
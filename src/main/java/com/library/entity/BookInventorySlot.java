@@ -0,0 +1,46 @@
+package com.library.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 热门图书的库存槽
+ *
+ * 开启库存分槽后，一本书的可借册数拆到若干行中，每行一个槽，借还只对其中一行做条件更新，
+ * 并发借阅分散到多个行锁上。图书的 availableCopies 由定时任务汇总各槽得到。
+ */
+@Entity
+@Table(name = "book_inventory_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_book_inventory_slots_book_slot", columnNames = {"book_id", "slot_no"})
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class BookInventorySlot extends BaseEntity {
+    
+    /**
+     * 所属图书ID
+     */
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+    
+    /**
+     * 槽号，从 0 开始
+     */
+    @Column(name = "slot_no", nullable = false)
+    private Integer slotNo;
+    
+    /**
+     * 本槽的可借册数
+     */
+    @Column(name = "available_copies", nullable = false)
+    private Integer availableCopies = 0;
+    
+    public BookInventorySlot(Long bookId, Integer slotNo, Integer availableCopies) {
+        this.bookId = bookId;
+        this.slotNo = slotNo;
+        this.availableCopies = availableCopies;
+    }
+}
@@ -1,5 +1,6 @@
 package com.library.entity;
 
+import com.library.AppConstants;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -10,7 +11,9 @@ import java.time.LocalDate;
  * 借阅记录实体类
  */
 @Entity
-@Table(name = "borrow_records")
+@Table(name = "borrow_records", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_borrow_records_active_loan", columnNames = {"user_id", "book_id", "active_loan"})
+})
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class BorrowRecord extends BaseEntity {
@@ -60,12 +63,26 @@ public class BorrowRecord extends BaseEntity {
     @Column(name = "fine_amount")
     private Double fineAmount = 0.0;
     
+    /**
+     * 借阅中标记：借阅中为 true，归还后置为 NULL。
+     * 与用户、图书组成唯一约束，同一用户同一本书最多一条借阅中的记录（NULL 不参与唯一比较，已归还的记录不受限制）
+     */
+    @Column(name = "active_loan")
+    private Boolean activeLoan = true;
+    
     /**
      * 备注
      */
     @Column(columnDefinition = "TEXT")
     private String notes;
     
+    /**
+     * 乐观锁版本号：每次更新加一，提交时与读取时的版本不一致说明已被其他事务修改
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+    
     /**
      * 借阅状态枚举
      */
@@ -107,12 +124,21 @@ public class BorrowRecord extends BaseEntity {
         return (int) java.time.temporal.ChronoUnit.DAYS.between(dueDate, now);
     }
     
+    /**
+     * 计算超期罚款：超期天数乘以每日罚款（AppConstants.DEFAULT_FINE_PER_DAY），未超期为 0。
+     * 单本归还、批量归还和罚款计算都按这条规则
+     */
+    public double calculateOverdueFine() {
+        return getOverdueDays() * AppConstants.DEFAULT_FINE_PER_DAY;
+    }
+    
     /**
      * 归还图书
      */
     public void returnBook() {
         this.returnDate = LocalDate.now();
         this.status = BorrowStatus.RETURNED;
+        this.activeLoan = null;
         
         // 归还图书时检查是否超期
         if (isOverdue()) {
@@ -0,0 +1,32 @@
+package com.library.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * 主键号段表
+ *
+ * 每个实体表一行，next_value 为下一个未分配号段的起始值。由 {@link PooledIdGenerator}
+ * 用 JDBC 直接读写，这里映射出来只是为了让表结构随实体一起建立和校验。
+ */
+@Entity
+@Table(name = "id_blocks")
+@Data
+public class IdBlock {
+    
+    /**
+     * 实体表名
+     */
+    @Id
+    @Column(name = "segment_name", length = 64)
+    private String segmentName;
+    
+    /**
+     * 下一个号段的起始值
+     */
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+}
@@ -0,0 +1,139 @@
+package com.library.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图书批量导入任务
+ *
+ * 记录导入进度和断点：processedRecords 与本批插入的图书在同一事务中提交，
+ * 中断后从这里继续，已提交的记录不会重复导入。
+ */
+@Entity
+@Table(name = "import_jobs")
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ImportJob extends BaseEntity {
+    
+    /**
+     * 上传的原始文件名
+     */
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+    
+    /**
+     * 服务器上保存的文件路径
+     */
+    @JsonIgnore
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+    
+    /**
+     * 文件大小（字节）
+     */
+    @Column(name = "file_size")
+    private Long fileSize = 0L;
+    
+    /**
+     * 文件格式
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Format format;
+    
+    /**
+     * 任务状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+    
+    /**
+     * 已处理的记录数（断点）
+     */
+    @Column(name = "processed_records")
+    private Long processedRecords = 0L;
+    
+    /**
+     * 断点处已读取的字节数
+     */
+    @Column(name = "bytes_read")
+    private Long bytesRead = 0L;
+    
+    /**
+     * 新增的图书数
+     */
+    @Column(name = "inserted_count")
+    private Long insertedCount = 0L;
+    
+    /**
+     * ISBN 已存在（库中或文件中重复）而跳过的记录数
+     */
+    @Column(name = "duplicate_count")
+    private Long duplicateCount = 0L;
+    
+    /**
+     * 格式错误或缺少必填字段的记录数
+     */
+    @Column(name = "invalid_count")
+    private Long invalidCount = 0L;
+    
+    /**
+     * 累计执行时间（毫秒，不含中断期间）
+     */
+    @Column(name = "active_millis")
+    private Long activeMillis = 0L;
+    
+    /**
+     * 最近一条错误信息
+     */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    /**
+     * 文件格式枚举
+     */
+    public enum Format {
+        CSV,    // 带表头的 CSV，列名与导出一致
+        MARC    // ISO 2709（MARC 21 / CNMARC）
+    }
+    
+    /**
+     * 任务状态枚举
+     */
+    public enum Status {
+        PENDING,    // 等待执行
+        RUNNING,    // 执行中
+        COMPLETED,  // 已完成
+        FAILED      // 失败（可从断点继续）
+    }
+    
+    // 辅助方法
+    
+    /**
+     * 平均每秒处理的记录数
+     */
+    public double getRecordsPerSecond() {
+        return activeMillis == null || activeMillis == 0 ? 0.0 : processedRecords * 1000.0 / activeMillis;
+    }
+    
+    /**
+     * 按字节估算的完成百分比
+     */
+    public double getProgressPercent() {
+        if (status == Status.COMPLETED) {
+            return 100.0;
+        }
+        return fileSize == null || fileSize == 0 ? 0.0 : Math.min(100.0, bytesRead * 100.0 / fileSize);
+    }
+}
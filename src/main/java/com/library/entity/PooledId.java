@@ -0,0 +1,25 @@
+package com.library.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 分段分配的主键
+ *
+ * 主键在 persist 时由 {@link PooledIdGenerator} 从本节点预留的号段中取出，不依赖数据库自增列，
+ * INSERT 可以延迟到 flush 时按 jdbc.batch_size 批量执行。
+ */
+@IdGeneratorType(PooledIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledId {
+    
+    /**
+     * 每次向 id_blocks 表预留的号段长度
+     */
+    int blockSize() default 100;
+}
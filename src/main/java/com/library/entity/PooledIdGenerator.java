@@ -0,0 +1,225 @@
+package com.library.entity;
+
+import jakarta.persistence.Table;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 号段（hi-lo）主键生成器
+ *
+ * 每个实体表在 id_blocks 中有一行，节点每次锁定该行把 next_value 加上 blockSize，
+ * 取得 [next_value, next_value + blockSize) 一整段主键在内存中依次发放，号段用完再预留下一段。
+ * 多个节点各自持有不相交的号段，同一节点内的主键递增，节点之间不保证全局有序。
+ *
+ * 预留号段在独立事务中完成并立即提交，业务事务回滚不会退回号段（留下空洞），
+ * 也不会让 id_blocks 的行锁持有到业务事务结束。独立事务使用启动时从连接池取出、专门留给号段预留的一个连接：
+ * 等待号段的线程都在业务事务中占着连接，预留时再向连接池借连接，并发插入的线程占满连接池后会一起等到获取连接超时
+ * （Hibernate 自带的表生成器同样是这种借法）。预留在号段的锁之外进行，同一个表同时只有一个线程预留，其余线程等它的结果。
+ *
+ * 某个表第一次预留时从 1 开始；已有自增数据的表上线前需要先在 id_blocks 中插入 (表名, MAX(id) + 1)。
+ */
+public class PooledIdGenerator implements IdentifierGenerator {
+    
+    private static final String SELECT_SQL = "SELECT next_value FROM id_blocks WHERE segment_name = ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE id_blocks SET next_value = ? WHERE segment_name = ?";
+    private static final String INSERT_SQL = "INSERT INTO id_blocks (segment_name, next_value) VALUES (?, ?)";
+    private static final long INITIAL_VALUE = 1;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    
+    /**
+     * 每个连接池一个预留连接，同一个 SessionFactory 的各个实体共用
+     */
+    private static final Map<ConnectionProvider, BlockReserver> RESERVERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private final int blockSize;
+    private final BlockReserver reserver;
+    private final Map<Class<?>, Segment> segments = new ConcurrentHashMap<>();
+    
+    public PooledIdGenerator(PooledId config, Member member, CustomIdGeneratorCreationContext context) {
+        if (config.blockSize() < 1) {
+            throw new IllegalArgumentException("号段长度必须大于0: " + config.blockSize());
+        }
+        this.blockSize = config.blockSize();
+        ConnectionProvider connectionProvider = context.getServiceRegistry().requireService(ConnectionProvider.class);
+        this.reserver = RESERVERS.computeIfAbsent(connectionProvider, BlockReserver::new);
+    }
+    
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Segment segment = segments.computeIfAbsent(object.getClass(), type -> new Segment(tableName(type)));
+        return segment.next();
+    }
+    
+    private static String tableName(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            Table table = current.getAnnotation(Table.class);
+            if (table != null && !table.name().isEmpty()) {
+                return table.name();
+            }
+        }
+        return type.getSimpleName().toLowerCase();
+    }
+    
+    /**
+     * 一个实体表的号段：[next, limit) 为本节点尚未发放的主键
+     */
+    private final class Segment {
+        private final String table;
+        private long next;
+        private long limit;
+        private CompletableFuture<Long> refill;
+        
+        private Segment(String table) {
+            this.table = table;
+        }
+        
+        private long next() {
+            while (true) {
+                CompletableFuture<Long> pending;
+                boolean reserving = false;
+                synchronized (this) {
+                    if (next < limit) {
+                        return next++;
+                    }
+                    if (refill == null) {
+                        refill = new CompletableFuture<>();
+                        reserving = true;
+                    }
+                    pending = refill;
+                }
+                if (reserving) {
+                    reserve(pending);
+                } else {
+                    await(pending);
+                }
+            }
+        }
+        
+        // 不持有号段的锁去预留，完成后装入新号段并唤醒等待的线程
+        private void reserve(CompletableFuture<Long> pending) {
+            try {
+                long start = reserver.reserve(table, blockSize);
+                synchronized (this) {
+                    next = start;
+                    limit = start + blockSize;
+                    refill = null;
+                }
+                pending.complete(start);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    refill = null;
+                }
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        
+        private void await(CompletableFuture<Long> pending) {
+            try {
+                pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new HibernateException("预留主键号段失败: " + table, e.getCause());
+            }
+        }
+    }
+    
+    /**
+     * 持有一个专用连接，在其上逐个执行号段预留（各表的预留在这里排队，每次只是一次加锁读和一次更新）
+     */
+    private static final class BlockReserver {
+        private final ConnectionProvider connectionProvider;
+        private Connection connection;
+        
+        // 在 SessionFactory 创建时取出连接，此时还没有业务事务占用连接池
+        private BlockReserver(ConnectionProvider connectionProvider) {
+            this.connectionProvider = connectionProvider;
+            try {
+                this.connection = open();
+            } catch (SQLException e) {
+                throw new HibernateException("获取主键号段连接失败", e);
+            }
+        }
+        
+        private synchronized long reserve(String table, int blockSize) {
+            try {
+                // 连接被数据库断开（如 MySQL 的 wait_timeout）后换一个
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    discard();
+                    connection = open();
+                }
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        long start = reserve(table, blockSize, connection);
+                        connection.commit();
+                        return start;
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        // 两个节点同时初始化同一个表时，后插入的一方主键冲突，重试即可读到对方插入的行
+                        if (attempt >= MAX_ATTEMPTS || e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                            throw e;
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new HibernateException("预留主键号段失败: " + table, e);
+            }
+        }
+        
+        private Connection open() throws SQLException {
+            Connection opened = connectionProvider.getConnection();
+            opened.setAutoCommit(false);
+            return opened;
+        }
+        
+        private void discard() {
+            try {
+                connectionProvider.closeConnection(connection);
+            } catch (SQLException ignored) {
+                // 连接已经失效，归还失败不影响换新连接
+            }
+        }
+        
+        private static long reserve(String table, int blockSize, Connection connection) throws SQLException {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+                select.setString(1, table);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        long start = rs.getLong(1);
+                        try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                            update.setLong(1, start + blockSize);
+                            update.setString(2, table);
+                            update.executeUpdate();
+                        }
+                        return start;
+                    }
+                }
+            }
+            
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                insert.setString(1, table);
+                insert.setLong(2, INITIAL_VALUE + blockSize);
+                insert.executeUpdate();
+            }
+            return INITIAL_VALUE;
+        }
+    }
+}
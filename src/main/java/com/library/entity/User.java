@@ -1,5 +1,7 @@
 package com.library.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.library.util.PinyinUtils;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -9,7 +11,10 @@ import java.time.LocalDateTime;
  * 用户实体类
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_real_name_pinyin", columnList = "real_name_pinyin"),
+        @Index(name = "idx_users_real_name_initials", columnList = "real_name_initials")
+})
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class User extends BaseEntity {
@@ -44,6 +49,20 @@ public class User extends BaseEntity {
     @Column(name = "real_name", length = 50)
     private String realName;
     
+    /**
+     * 真实姓名全拼（保存时生成，用于拼音检索）
+     */
+    @JsonIgnore
+    @Column(name = "real_name_pinyin", length = 300)
+    private String realNamePinyin;
+    
+    /**
+     * 真实姓名拼音首字母
+     */
+    @JsonIgnore
+    @Column(name = "real_name_initials", length = 50)
+    private String realNameInitials;
+    
     /**
      * 用户角色
      * ADMIN: 管理员
@@ -85,6 +104,13 @@ public class User extends BaseEntity {
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
     
+    /**
+     * 乐观锁版本号：每次更新加一，提交时与读取时的版本不一致说明已被其他事务修改
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+    
     /**
      * 用户角色枚举
      */
@@ -105,6 +131,16 @@ public class User extends BaseEntity {
     
     // 辅助方法
     
+    /**
+     * 保存前根据真实姓名生成拼音检索字段
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updatePinyin() {
+        realNamePinyin = PinyinUtils.toPinyin(realName);
+        realNameInitials = PinyinUtils.toInitials(realName);
+    }
+    
     /**
      * 检查用户是否可以借阅更多书籍
      */
@@ -0,0 +1,20 @@
+package com.library.event;
+
+import lombok.Getter;
+
+/**
+ * 图书借出事件
+ *
+ * 借阅记录创建后发布，供借阅热度相关的内存结构在事务提交后增量更新。
+ */
+@Getter
+public class BookBorrowedEvent {
+
+    private final Long userId;
+    private final Long bookId;
+
+    public BookBorrowedEvent(Long userId, Long bookId) {
+        this.userId = userId;
+        this.bookId = bookId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.library.event;
+
+import com.library.entity.Book;
+import lombok.Getter;
+
+/**
+ * 图书变更事件
+ *
+ * 由图书写操作发布，内存索引在事务提交后监听并增量更新。
+ */
+@Getter
+public class BookChangedEvent {
+
+    private final Book book;
+
+    /**
+     * 图书是否已被删除
+     */
+    private final boolean removed;
+
+    /**
+     * 修改前的图书（仅修改标题、作者等检索字段时提供，其余情况为 null）
+     */
+    private final Book previous;
+
+    private BookChangedEvent(Book book, boolean removed, Book previous) {
+        this.book = book;
+        this.removed = removed;
+        this.previous = previous;
+    }
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book, false, null);
+    }
+
+    public static BookChangedEvent updated(Book previous, Book book) {
+        return new BookChangedEvent(book, false, previous);
+    }
+
+    public static BookChangedEvent removed(Book book) {
+        return new BookChangedEvent(book, true, null);
+    }
+}
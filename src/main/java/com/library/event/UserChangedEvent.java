@@ -0,0 +1,19 @@
+package com.library.event;
+
+import com.library.entity.User;
+import lombok.Getter;
+
+/**
+ * 用户变更事件
+ *
+ * 由用户信息、借阅数量、罚款等写操作发布，缓存在事务提交后监听并失效。
+ */
+@Getter
+public class UserChangedEvent {
+
+    private final User user;
+
+    public UserChangedEvent(User user) {
+        this.user = user;
+    }
+}
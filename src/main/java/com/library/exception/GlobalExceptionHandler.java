@@ -4,6 +4,7 @@ import com.library.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -119,6 +120,23 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
     
+    /**
+     * 处理乐观锁冲突（重试用尽后仍与其他请求冲突）
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse<String>> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex, HttpServletRequest request) {
+        
+        logger.warn("乐观锁冲突: {}", ex.getMessage());
+        
+        ApiResponse<String> response = ApiResponse.error(
+            "数据已被其他请求修改，请稍后重试", 
+            HttpStatus.CONFLICT.value()
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    
     /**
      * 处理所有其他异常
      */
@@ -0,0 +1,46 @@
+package com.library.importer;
+
+import com.library.entity.Book;
+import com.library.entity.ImportJob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图书导入文件读取器
+ *
+ * 逐条解析导入文件，不把整个文件读进内存。单条记录格式错误时抛出 IllegalArgumentException，
+ * 该记录已被读过，调用方可以计数后继续读下一条。
+ */
+public interface BookRecordReader extends Closeable {
+    
+    /**
+     * 读取下一条记录，文件结束时返回 null
+     *
+     * @throws IllegalArgumentException 当前记录格式错误
+     */
+    Book next() throws IOException;
+    
+    /**
+     * 跳过 count 条记录（从断点继续时使用），格式错误的记录同样计入
+     */
+    default void skip(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            try {
+                if (next() == null) {
+                    return;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // 断点之前已经计过数
+            }
+        }
+    }
+    
+    /**
+     * 按格式创建读取器
+     */
+    static BookRecordReader open(ImportJob.Format format, InputStream in) throws IOException {
+        return format == ImportJob.Format.MARC ? new MarcBookReader(in) : new CsvBookReader(in);
+    }
+}
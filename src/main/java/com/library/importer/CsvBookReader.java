@@ -0,0 +1,140 @@
+package com.library.importer;
+
+import com.library.entity.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV 图书读取器（RFC 4180）
+ *
+ * 第一行为表头，列名不区分大小写，下划线和空格忽略（publish_date 与 publishDate 等价），
+ * 与导出的列名一致；未知列忽略。isbn、title、author 三列必须存在。
+ * 引号内的字段可以包含逗号和换行，引号双写表示一个引号。
+ */
+public final class CsvBookReader implements BookRecordReader {
+    
+    private static final String[] REQUIRED_COLUMNS = {"isbn", "title", "author"};
+    
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long recordNumber;
+    
+    public CsvBookReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV 文件为空");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.putIfAbsent(columnKey(name), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV 表头缺少列: " + required);
+            }
+        }
+    }
+    
+    @Override
+    public Book next() throws IOException {
+        List<String> fields;
+        do {
+            fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+        recordNumber++;
+        
+        Book book = new Book();
+        book.setIsbn(field(fields, "isbn"));
+        book.setTitle(field(fields, "title"));
+        book.setAuthor(field(fields, "author"));
+        book.setPublisher(field(fields, "publisher"));
+        book.setPublishDate(field(fields, "publishdate"));
+        book.setCategory(field(fields, "category"));
+        book.setLocation(field(fields, "location"));
+        book.setDescription(field(fields, "description"));
+        try {
+            String totalCopies = field(fields, "totalcopies");
+            book.setTotalCopies(totalCopies == null ? null : Integer.valueOf(totalCopies));
+            String price = field(fields, "price");
+            book.setPrice(price == null ? null : Double.valueOf(price));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("第 " + recordNumber + " 条记录数字格式错误: " + e.getMessage());
+        }
+        return book;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    // 取列值，空串视为无值
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    // 读取一条记录，文件结束时返回 null
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("第 " + (recordNumber + 1) + " 条记录引号未闭合");
+                }
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next != '"') {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c < 0 || c == '\n') {
+                break;
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static String columnKey(String name) {
+        return name.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+}
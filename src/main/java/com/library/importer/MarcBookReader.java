@@ -0,0 +1,189 @@
+package com.library.importer;
+
+import com.library.entity.Book;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MARC 图书读取器（ISO 2709，UTF-8 编码）
+ *
+ * 按记录结束符逐条读取，用头标区的数据基地址和目次区定位各字段。
+ * 有 245 字段的按 MARC 21 取值（020 ISBN、245 题名、100/110/700 责任者、264/260 出版、650/082 分类、520 提要），
+ * 只有 200 字段的按 CNMARC 取值（010 ISBN 和价格、200 题名和责任者、701 责任者、210 出版、690 中图分类号、330 提要）。
+ * 题名、责任者末尾的 ISBD 标点（/ : ; , . =）去掉。
+ */
+public final class MarcBookReader implements BookRecordReader {
+    
+    private static final int RECORD_TERMINATOR = 0x1D;
+    private static final byte FIELD_TERMINATOR = 0x1E;
+    private static final String SUBFIELD_DELIMITER = "\u001F";
+    private static final int LEADER_LENGTH = 24;
+    private static final int DIRECTORY_ENTRY_LENGTH = 12;
+    
+    private static final Pattern ISBN = Pattern.compile("[0-9Xx-]{10,17}");
+    private static final Pattern PRICE = Pattern.compile("\\d+(\\.\\d+)?");
+    
+    private final InputStream in;
+    private long recordNumber;
+    
+    public MarcBookReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+    
+    @Override
+    public Book next() throws IOException {
+        byte[] record = readRecord();
+        if (record == null) {
+            return null;
+        }
+        recordNumber++;
+        
+        Map<String, List<String>> fields;
+        try {
+            fields = parseFields(record);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("第 " + recordNumber + " 条 MARC 记录结构错误: " + e.getMessage());
+        }
+        
+        Book book = new Book();
+        if (!fields.containsKey("245") && fields.containsKey("200")) {
+            book.setIsbn(isbn(subfield(fields, "010", 'a')));
+            book.setTitle(title(subfield(fields, "200", 'a'), subfield(fields, "200", 'e')));
+            book.setAuthor(first(subfield(fields, "200", 'f'), subfield(fields, "701", 'a')));
+            book.setPublisher(subfield(fields, "210", 'c'));
+            book.setPublishDate(subfield(fields, "210", 'd'));
+            book.setCategory(subfield(fields, "690", 'a'));
+            book.setDescription(subfield(fields, "330", 'a'));
+            book.setPrice(price(subfield(fields, "010", 'd')));
+        } else {
+            book.setIsbn(isbn(subfield(fields, "020", 'a')));
+            book.setTitle(title(subfield(fields, "245", 'a'), subfield(fields, "245", 'b')));
+            book.setAuthor(first(subfield(fields, "100", 'a'), subfield(fields, "110", 'a'),
+                    subfield(fields, "700", 'a')));
+            book.setPublisher(first(subfield(fields, "264", 'b'), subfield(fields, "260", 'b')));
+            book.setPublishDate(first(subfield(fields, "264", 'c'), subfield(fields, "260", 'c')));
+            book.setCategory(first(subfield(fields, "650", 'a'), subfield(fields, "082", 'a')));
+            book.setDescription(subfield(fields, "520", 'a'));
+        }
+        return book;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    // 读到记录结束符为止；记录之间的换行忽略，文件结束时返回 null
+    private byte[] readRecord() throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(2048);
+        int b;
+        while ((b = in.read()) >= 0 && b != RECORD_TERMINATOR) {
+            if (record.size() == 0 && (b == '\r' || b == '\n')) {
+                continue;
+            }
+            record.write(b);
+        }
+        return record.size() == 0 && b < 0 ? null : record.toByteArray();
+    }
+    
+    // 按目次区切出各字段（字段标识 -> 字段内容，不含字段结束符）
+    private Map<String, List<String>> parseFields(byte[] record) {
+        if (record.length < LEADER_LENGTH) {
+            throw new IllegalArgumentException("记录长度不足");
+        }
+        int base = Integer.parseInt(ascii(record, 12, 5));
+        if (base > record.length) {
+            throw new IllegalArgumentException("数据基地址超出记录范围");
+        }
+        Map<String, List<String>> fields = new HashMap<>();
+        for (int pos = LEADER_LENGTH; pos + DIRECTORY_ENTRY_LENGTH <= base && record[pos] != FIELD_TERMINATOR;
+             pos += DIRECTORY_ENTRY_LENGTH) {
+            String tag = ascii(record, pos, 3);
+            int length = Integer.parseInt(ascii(record, pos + 3, 4));
+            int from = base + Integer.parseInt(ascii(record, pos + 7, 5));
+            int to = Math.min(record.length, from + length);
+            if (from > record.length) {
+                throw new IllegalArgumentException("字段 " + tag + " 超出记录范围");
+            }
+            if (to > from && record[to - 1] == FIELD_TERMINATOR) {
+                to--;
+            }
+            fields.computeIfAbsent(tag, t -> new ArrayList<>())
+                    .add(new String(record, from, to - from, StandardCharsets.UTF_8));
+        }
+        return fields;
+    }
+    
+    // 第一个 tag 字段中第一个 code 子字段的值
+    private static String subfield(Map<String, List<String>> fields, String tag, char code) {
+        List<String> values = fields.get(tag);
+        if (values == null) {
+            return null;
+        }
+        String[] parts = values.get(0).split(SUBFIELD_DELIMITER);
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].isEmpty() && parts[i].charAt(0) == code) {
+                return clean(parts[i].substring(1));
+            }
+        }
+        return null;
+    }
+    
+    // 去掉首尾空白和末尾的 ISBD 标点
+    private static String clean(String value) {
+        int end = value.length();
+        while (end > 0 && " /:;,.=".indexOf(value.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String cleaned = value.substring(0, end).trim();
+        return cleaned.isEmpty() ? null : cleaned;
+    }
+    
+    private static String title(String main, String remainder) {
+        if (main == null || remainder == null) {
+            return main;
+        }
+        return main + ": " + remainder;
+    }
+    
+    // 子字段里的 ISBN 常带限定说明，如 "9787111213826 (平装)"
+    private static String isbn(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = ISBN.matcher(value);
+        return matcher.find() ? matcher.group() : value;
+    }
+    
+    // 价格子字段如 "CNY45.00"
+    private static Double price(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = PRICE.matcher(value);
+        return matcher.find() ? Double.valueOf(matcher.group()) : null;
+    }
+    
+    private static String first(String... values) {
+        for (String value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    private static String ascii(byte[] record, int offset, int length) {
+        return new String(record, offset, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,227 @@
+package com.library.lock;
+
+import com.library.AppConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 借还操作的进程内分段锁
+ *
+ * 同一本热门图书的并发借阅先在本机内存中排队，再逐个进入数据库，而不是一起去争 books 表的同一行锁
+ * （在数据库里等行锁要占着连接，排队的请求一多连接池就被占满）。
+ * 图书ID、用户ID分别散列到固定数量的分段上，加锁顺序固定为图书段在前、用户段在后、同类按段号升序，
+ * 所有线程顺序一致，不会死锁。等待超时则放弃本地锁直接进入数据库，正确性仍由条件更新保证。
+ * 只在单个节点内排队，多节点之间仍由数据库协调。按操作统计等待时间分布。
+ */
+@Component
+public class StripedLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedLockManager.class);
+
+    private static final Held NONE = new Held(new ReentrantLock[0]);
+
+    // [0, stripes) 为图书段，[stripes, 2 * stripes) 为用户段
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final long timeoutNanos;
+    private final Map<String, WaitHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Value("${library.borrow.local-locks:true}")
+    private volatile boolean enabled = true;
+
+    public StripedLockManager() {
+        this(AppConstants.CIRCULATION_LOCK_STRIPES, AppConstants.CIRCULATION_LOCK_TIMEOUT_MS);
+    }
+
+    StripedLockManager(int stripes, long timeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.mask = size - 1;
+        this.locks = new ReentrantLock[2 * size];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * 锁住一本书和一位读者（为空的ID跳过），用 try-with-resources 释放
+     */
+    public Held acquire(String operation, Long bookId, Long userId) {
+        return acquire(operation,
+                bookId != null ? List.of(bookId) : Collections.emptyList(),
+                userId != null ? List.of(userId) : Collections.emptyList());
+    }
+
+    /**
+     * 锁住多本书和多位读者；超时或被中断时不持有任何锁直接返回
+     */
+    public Held acquire(String operation, Collection<Long> bookIds, Collection<Long> userIds) {
+        if (!enabled || (bookIds.isEmpty() && userIds.isEmpty())) {
+            return NONE;
+        }
+        int[] stripes = stripesInOrder(bookIds, userIds);
+        WaitHistogram histogram = histograms.computeIfAbsent(operation, key -> new WaitHistogram());
+        ReentrantLock[] held = new ReentrantLock[stripes.length];
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            for (int stripe : stripes) {
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (!locks[stripe].tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                held[count++] = locks[stripe];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long waited = System.nanoTime() - start;
+        if (count < stripes.length) {
+            new Held(Arrays.copyOf(held, count)).close();
+            histogram.timeout(waited);
+            logger.warn("{} 等待本地锁 {} ms 超时，直接进入数据库", operation, TimeUnit.NANOSECONDS.toMillis(waited));
+            return NONE;
+        }
+        histogram.record(waited);
+        return new Held(held);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 关闭后所有操作不再本地排队（用于和纯数据库加锁对比）
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 各操作的锁等待次数、超时次数、平均/最大等待时间和按 2 的幂分桶的等待时间分布
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        histograms.forEach((operation, histogram) -> metrics.put(operation, histogram.snapshot()));
+        return metrics;
+    }
+
+    public void resetMetrics() {
+        histograms.clear();
+    }
+
+    // 去重后按段号升序：图书段固定排在用户段前面
+    int[] stripesInOrder(Collection<Long> bookIds, Collection<Long> userIds) {
+        int offset = mask + 1;
+        int[] stripes = new int[bookIds.size() + userIds.size()];
+        int n = 0;
+        for (Long bookId : bookIds) {
+            stripes[n++] = stripe(bookId);
+        }
+        for (Long userId : userIds) {
+            stripes[n++] = offset + stripe(userId);
+        }
+        Arrays.sort(stripes);
+        int unique = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[unique++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, unique);
+    }
+
+    private int stripe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * 已持有的一组锁，按加锁的相反顺序释放
+     */
+    public static final class Held implements AutoCloseable {
+
+        private final ReentrantLock[] locks;
+
+        private Held(ReentrantLock[] locks) {
+            this.locks = locks;
+        }
+
+        public boolean isLocked() {
+            return locks.length > 0;
+        }
+
+        @Override
+        public void close() {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * 等待时间分布：第 i 个桶统计 (2^(i-1), 2^i] 微秒的等待，最后一个桶收容更长的等待
+     */
+    static final class WaitHistogram {
+
+        static final int BUCKETS = 24;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        void timeout(long nanos) {
+            timeouts.increment();
+            maxNanos.accumulate(nanos);
+        }
+
+        long count(int bucket) {
+            return buckets.get(bucket);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.sum();
+            Map<String, Long> distribution = new LinkedHashMap<>();
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = buckets.get(i);
+                if (c > 0) {
+                    distribution.put(i < BUCKETS - 1 ? "<=" + (1L << i) + "us" : ">" + (1L << (i - 1)) + "us", c);
+                }
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("acquired", n);
+            item.put("timeouts", timeouts.sum());
+            item.put("meanWaitMicros", n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / n));
+            item.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+            item.put("waitHistogram", distribution);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.library.repository;
+
+import com.library.entity.BookInventorySlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 热门图书库存槽数据访问接口
+ */
+@Repository
+public interface BookInventorySlotRepository extends BaseRepository<BookInventorySlot, Long> {
+    
+    /**
+     * 按槽号顺序查询一本书的全部库存槽
+     */
+    List<BookInventorySlot> findByBookIdOrderBySlotNo(Long bookId);
+    
+    /**
+     * 按槽号顺序锁住一本书的全部库存槽（汇总、重新均分和关闭分槽时使用，加锁顺序固定不会互相死锁）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BookInventorySlot s WHERE s.bookId = :bookId ORDER BY s.slotNo")
+    List<BookInventorySlot> lockByBookId(@Param("bookId") Long bookId);
+    
+    /**
+     * 仍有余量的槽号，余量多的在前
+     */
+    @Query("SELECT s.slotNo FROM BookInventorySlot s WHERE s.bookId = :bookId AND s.availableCopies > 0 " +
+            "ORDER BY s.availableCopies DESC")
+    List<Integer> findSlotsWithStock(@Param("bookId") Long bookId);
+    
+    /**
+     * 一本书各槽余量之和，未开启分槽时为 null
+     */
+    @Query("SELECT SUM(s.availableCopies) FROM BookInventorySlot s WHERE s.bookId = :bookId")
+    Long sumAvailableCopies(@Param("bookId") Long bookId);
+    
+    /**
+     * 条件扣减一个槽：仍有余量时减一，返回更新行数
+     */
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.availableCopies = s.availableCopies - 1 " +
+            "WHERE s.bookId = :bookId AND s.slotNo = :slotNo AND s.availableCopies > 0")
+    int decrementAvailableCopies(@Param("bookId") Long bookId, @Param("slotNo") Integer slotNo);
+    
+    /**
+     * 一个槽加一，槽不存在时返回 0
+     */
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.availableCopies = s.availableCopies + 1 " +
+            "WHERE s.bookId = :bookId AND s.slotNo = :slotNo")
+    int incrementAvailableCopies(@Param("bookId") Long bookId, @Param("slotNo") Integer slotNo);
+    
+    /**
+     * 删除一本书的全部库存槽
+     */
+    @Modifying
+    @Query("DELETE FROM BookInventorySlot s WHERE s.bookId = :bookId")
+    int deleteByBookId(@Param("bookId") Long bookId);
+}
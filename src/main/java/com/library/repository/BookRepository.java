@@ -1,20 +1,61 @@
 package com.library.repository;
 
+import com.library.AppConstants;
+import com.library.dto.BookSummary;
 import com.library.entity.Book;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 图书数据访问接口
  */
 @Repository
-public interface BookRepository extends BaseRepository<Book, Long> {
+public interface BookRepository extends BaseRepository<Book, Long>, BookRepositoryCustom {
+    
+    /**
+     * 列表摘要投影：只取列表需要的列（不含 TEXT 简介和拼音列），结果不进入持久化上下文
+     */
+    String SUMMARY_SELECT = "SELECT new com.library.dto.BookSummary(b.id, b.isbn, b.title, b.author, " +
+            "b.publisher, b.publishDate, b.category, b.totalCopies, b.availableCopies, b.location, " +
+            "b.status, b.price) FROM Book b";
+    
+    /**
+     * 多条件搜索的过滤条件（实体查询与摘要投影共用，不含已删除）
+     */
+    String SEARCH_WHERE = " WHERE b.isDeleted = false AND " +
+            "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%')) " +
+            "OR b.titlePinyin LIKE LOWER(CONCAT(:title, '%')) OR b.titleInitials LIKE LOWER(CONCAT(:title, '%'))) AND " +
+            "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%')) " +
+            "OR b.authorPinyin LIKE LOWER(CONCAT(:author, '%')) OR b.authorInitials LIKE LOWER(CONCAT(:author, '%'))) AND " +
+            "(:category IS NULL OR LOWER(b.category) LIKE LOWER(CONCAT('%', :category, '%'))) AND " +
+            "(:publisher IS NULL OR LOWER(b.publisher) LIKE LOWER(CONCAT('%', :publisher, '%')))";
+    
+    String AVAILABLE_WHERE = " WHERE b.availableCopies > 0 AND b.status = 'AVAILABLE' AND b.isDeleted = false";
+    
+    String LOW_STOCK_WHERE = " WHERE b.availableCopies < 3 AND b.availableCopies > 0 AND b.isDeleted = false";
+    
+    String OUT_OF_STOCK_WHERE = " WHERE b.availableCopies = 0 AND b.isDeleted = false";
+    
+    /**
+     * 按汇总后的可借册数 :copies 调整状态：借完时可借改为已借出，有余量时已借出恢复为可借
+     */
+    String STATUS_BY_COPIES = "b.status = CASE WHEN :copies = 0 AND b.status = :available THEN :borrowed " +
+            "WHEN :copies > 0 AND b.status = :borrowed THEN :available ELSE b.status END";
     
     /**
      * 根据ISBN查找图书
@@ -26,6 +67,18 @@ public interface BookRepository extends BaseRepository<Book, Long> {
      */
     boolean existsByIsbn(String isbn);
     
+    /**
+     * 所有已删除图书的ID
+     */
+    @Query("SELECT b.id FROM Book b WHERE b.isDeleted = true")
+    List<Long> findDeletedIds();
+    
+    /**
+     * 分批读取所有ISBN（用于构建存在性过滤器）
+     */
+    @Query("SELECT b.isbn FROM Book b")
+    Slice<String> findIsbns(Pageable pageable);
+    
     /**
      * 根据标题查找图书
      */
@@ -71,26 +124,197 @@ public interface BookRepository extends BaseRepository<Book, Long> {
      */
     List<Book> findByAvailableCopiesGreaterThanAndStatus(Integer availableCopies, Book.BookStatus status);
     
+    /**
+     * 条件扣减库存：仍有可借副本且状态可借时减一，借出最后一本时状态改为已借出，返回更新行数。
+     * 判断和扣减在同一条 UPDATE 里完成，并发借阅同一本书不会超借。
+     * SET 中先改状态再改数量：MySQL 按从左到右求值，后面的赋值会读到前面已改的新值。
+     * 批量 UPDATE 不经过实体，需要显式递增版本号，否则同时读出实体修改的事务察觉不到这次变更。
+     * 开启库存分槽的图书不在这里扣减（见 {@link com.library.service.BookInventoryService}）。
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.status = CASE WHEN b.availableCopies = 1 THEN :borrowed ELSE b.status END, " +
+            "b.availableCopies = b.availableCopies - 1, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+            "WHERE b.id = :id AND b.availableCopies > 0 AND b.status = :available AND b.inventorySlots = 0")
+    int decrementAvailableCopies(@Param("id") Long id,
+                                 @Param("available") Book.BookStatus available,
+                                 @Param("borrowed") Book.BookStatus borrowed);
+    
+    /**
+     * 条件增加库存：加一，原为已借出状态时恢复为可借，返回更新行数（开启库存分槽的图书不更新）
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.status = CASE WHEN b.status = :borrowed THEN :available ELSE b.status END, " +
+            "b.availableCopies = b.availableCopies + 1, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+            "WHERE b.id = :id AND b.inventorySlots = 0")
+    int incrementAvailableCopies(@Param("id") Long id,
+                                 @Param("available") Book.BookStatus available,
+                                 @Param("borrowed") Book.BookStatus borrowed);
+    
+    /**
+     * 借出一本，库存不足或图书不可借时返回 false（持久化上下文中的实体不会更新，需要时自行 refresh）
+     */
+    default boolean borrowOne(Long id) {
+        return decrementAvailableCopies(id, Book.BookStatus.AVAILABLE, Book.BookStatus.BORROWED) > 0;
+    }
+    
+    /**
+     * 归还一本，图书不存在或已开启库存分槽时返回 false
+     */
+    default boolean returnOne(Long id) {
+        return incrementAvailableCopies(id, Book.BookStatus.AVAILABLE, Book.BookStatus.BORROWED) > 0;
+    }
+    
+    /**
+     * 按ID列表查找并锁住图书行（批量借还时使用），按ID顺序加锁，并发的批量操作之间不会死锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> lockByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 开启了库存分槽的图书ID
+     */
+    @Query("SELECT b.id FROM Book b WHERE b.inventorySlots > 0")
+    List<Long> findHotTitleIds();
+    
+    /**
+     * 给定图书中开启了库存分槽的ID（批量借还时这些图书不锁图书行，只走槽）
+     */
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids AND b.inventorySlots > 0")
+    List<Long> findHotTitleIdsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 开启库存分槽，已开启时返回 0
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.inventorySlots = :slots, b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+            "WHERE b.id = :id AND b.inventorySlots = 0")
+    int enableInventorySlots(@Param("id") Long id, @Param("slots") Integer slots);
+    
+    /**
+     * 关闭库存分槽并写回各槽汇总的可借册数
+     */
+    @Modifying
+    @Query("UPDATE Book b SET " + STATUS_BY_COPIES + ", b.availableCopies = :copies, b.inventorySlots = 0, " +
+            "b.version = b.version + 1, b.updatedAt = LOCAL DATETIME WHERE b.id = :id AND b.inventorySlots > 0")
+    int mergeInventorySlots(@Param("id") Long id,
+                            @Param("copies") Integer copies,
+                            @Param("available") Book.BookStatus available,
+                            @Param("borrowed") Book.BookStatus borrowed);
+    
+    /**
+     * 写回分槽图书的可借册数，数量没有变化时不更新
+     */
+    @Modifying
+    @Query("UPDATE Book b SET " + STATUS_BY_COPIES + ", b.availableCopies = :copies, " +
+            "b.version = b.version + 1, b.updatedAt = LOCAL DATETIME " +
+            "WHERE b.id = :id AND b.inventorySlots > 0 AND b.availableCopies <> :copies")
+    int updateHotTitleCopies(@Param("id") Long id,
+                             @Param("copies") Integer copies,
+                             @Param("available") Book.BookStatus available,
+                             @Param("borrowed") Book.BookStatus borrowed);
+    
+    /**
+     * 关闭库存分槽，图书未开启分槽时返回 false
+     */
+    default boolean disableInventorySlots(Long id, int copies) {
+        return mergeInventorySlots(id, copies, Book.BookStatus.AVAILABLE, Book.BookStatus.BORROWED) > 0;
+    }
+    
+    /**
+     * 写回分槽图书的可借册数，有变化时返回 true
+     */
+    default boolean syncHotTitleCopies(Long id, int copies) {
+        return updateHotTitleCopies(id, copies, Book.BookStatus.AVAILABLE, Book.BookStatus.BORROWED) > 0;
+    }
+    
     /**
      * 查找所有可借阅的图书
      */
     @Query("SELECT b FROM Book b WHERE b.availableCopies > 0 AND b.status = 'AVAILABLE'")
     List<Book> findAvailableBooks();
     
+    /**
+     * 分页查找可借阅的图书（不含已删除）
+     */
+    @Query("SELECT b FROM Book b" + AVAILABLE_WHERE)
+    Page<Book> findAvailableBooks(Pageable pageable);
+    
+    /**
+     * 统计可借阅的图书数量（不含已删除）
+     */
+    @Query("SELECT COUNT(b) FROM Book b" + AVAILABLE_WHERE)
+    long countAvailableBooks();
+    
     /**
      * 根据多个条件搜索图书（分页）
      */
-    @Query("SELECT b FROM Book b WHERE " +
-           "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
-           "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
-           "(:category IS NULL OR LOWER(b.category) LIKE LOWER(CONCAT('%', :category, '%'))) AND " +
-           "(:publisher IS NULL OR LOWER(b.publisher) LIKE LOWER(CONCAT('%', :publisher, '%')))")
+    @Query("SELECT b FROM Book b" + SEARCH_WHERE)
     Page<Book> searchBooks(@Param("title") String title,
                           @Param("author") String author,
                           @Param("category") String category,
                           @Param("publisher") String publisher,
                           Pageable pageable);
     
+    /**
+     * 根据多个条件搜索图书摘要（分页）
+     */
+    @Query(value = SUMMARY_SELECT + SEARCH_WHERE,
+           countQuery = "SELECT COUNT(b) FROM Book b" + SEARCH_WHERE)
+    Page<BookSummary> searchBookSummaries(@Param("title") String title,
+                                          @Param("author") String author,
+                                          @Param("category") String category,
+                                          @Param("publisher") String publisher,
+                                          Pageable pageable);
+    
+    /**
+     * 分页获取图书摘要
+     */
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookSummary> findAllSummaries(Pageable pageable);
+    
+    /**
+     * 按ID列表获取图书摘要（不保证顺序，由调用方按索引顺序重排）
+     */
+    @Query(SUMMARY_SELECT + " WHERE b.id IN :ids")
+    List<BookSummary> findSummariesByIdIn(@Param("ids") List<Long> ids);
+    
+    /**
+     * 根据分类获取图书摘要（不含已删除）
+     */
+    @Query(SUMMARY_SELECT + " WHERE b.category = :category AND b.isDeleted = false")
+    List<BookSummary> findSummariesByCategory(@Param("category") String category);
+    
+    /**
+     * 获取全部可借阅的图书摘要（不含已删除）
+     */
+    @Query(SUMMARY_SELECT + AVAILABLE_WHERE)
+    List<BookSummary> findAvailableSummaries();
+    
+    /**
+     * 分页获取可借阅的图书摘要（不含已删除）
+     */
+    @Query(value = SUMMARY_SELECT + AVAILABLE_WHERE, countQuery = "SELECT COUNT(b) FROM Book b" + AVAILABLE_WHERE)
+    Page<BookSummary> findAvailableSummaries(Pageable pageable);
+    
+    /**
+     * 获取全部库存不足的图书摘要（不含已删除）
+     */
+    @Query(SUMMARY_SELECT + LOW_STOCK_WHERE)
+    List<BookSummary> findLowStockSummaries();
+    
+    /**
+     * 分页获取库存不足的图书摘要（不含已删除）
+     */
+    @Query(value = SUMMARY_SELECT + LOW_STOCK_WHERE, countQuery = "SELECT COUNT(b) FROM Book b" + LOW_STOCK_WHERE)
+    Page<BookSummary> findLowStockSummaries(Pageable pageable);
+    
+    /**
+     * 分页获取无库存的图书摘要（不含已删除）
+     */
+    @Query(value = SUMMARY_SELECT + OUT_OF_STOCK_WHERE, countQuery = "SELECT COUNT(b) FROM Book b" + OUT_OF_STOCK_WHERE)
+    Page<BookSummary> findOutOfStockSummaries(Pageable pageable);
+    
     /**
      * 统计各类别图书数量
      */
@@ -115,14 +339,48 @@ public interface BookRepository extends BaseRepository<Book, Long> {
     @Query("SELECT b FROM Book b WHERE b.availableCopies < 3 AND b.availableCopies > 0")
     List<Book> findLowStockBooks();
     
+    /**
+     * 分页查找库存不足的图书（不含已删除）
+     */
+    @Query("SELECT b FROM Book b" + LOW_STOCK_WHERE)
+    Page<Book> findLowStockBooks(Pageable pageable);
+    
+    /**
+     * 统计库存不足的图书数量（不含已删除）
+     */
+    @Query("SELECT COUNT(b) FROM Book b" + LOW_STOCK_WHERE)
+    long countLowStockBooks();
+    
     /**
      * 查找无库存的图书
      */
     @Query("SELECT b FROM Book b WHERE b.availableCopies = 0")
     List<Book> findOutOfStockBooks();
     
+    /**
+     * 分页查找无库存的图书（不含已删除）
+     */
+    @Query("SELECT b FROM Book b" + OUT_OF_STOCK_WHERE)
+    Page<Book> findOutOfStockBooks(Pageable pageable);
+    
+    /**
+     * 统计无库存的图书数量（不含已删除）
+     */
+    @Query("SELECT COUNT(b) FROM Book b" + OUT_OF_STOCK_WHERE)
+    long countOutOfStockBooks();
+    
     /**
      * 根据ISBN列表查找图书
      */
     List<Book> findByIsbnIn(List<String> isbnList);
+    
+    /**
+     * 按ID顺序流式读取全部图书（用于导出，需在事务中使用并关闭流）
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAllForExport();
 }
\ No newline at end of file
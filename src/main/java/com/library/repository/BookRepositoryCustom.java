@@ -0,0 +1,19 @@
+package com.library.repository;
+
+import com.library.dto.BookSummary;
+
+import java.util.List;
+
+/**
+ * 图书自定义查询接口（由 {@link BookRepositoryImpl} 实现）
+ */
+public interface BookRepositoryCustom {
+    
+    /**
+     * 键集分页查询：按 sortProperty + id 排序，返回位于 (lastValue, lastId) 之后的至多 limit 条记录。
+     * lastId 为空表示从第一条开始；查询条件与 searchBooks 相同，为空则不过滤，已删除的图书不返回。返回图书摘要投影。
+     */
+    List<BookSummary> findAfter(String title, String author, String category, String publisher,
+                         String sortProperty, boolean descending,
+                         Object lastValue, Long lastId, int limit);
+}
@@ -0,0 +1,88 @@
+package com.library.repository;
+
+import com.library.dto.BookSummary;
+import com.library.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 图书自定义查询实现
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<BookSummary> findAfter(String title, String author, String category, String publisher,
+                                       String sortProperty, boolean descending,
+                                       Object lastValue, Long lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookSummary> query = cb.createQuery(BookSummary.class);
+        Root<Book> book = query.from(Book.class);
+        // BookRepository.SUMMARY_SELECT 的列加上创建、更新时间（可能作为游标的排序值）
+        query.select(cb.construct(BookSummary.class, book.get("id"), book.get("isbn"), book.get("title"),
+                book.get("author"), book.get("publisher"), book.get("publishDate"), book.get("category"),
+                book.get("totalCopies"), book.get("availableCopies"), book.get("location"), book.get("status"),
+                book.get("price"), book.get("createdAt"), book.get("updatedAt")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isFalse(book.get("isDeleted")));
+        addContains(cb, book, "title", title, predicates, "titlePinyin", "titleInitials");
+        addContains(cb, book, "author", author, predicates, "authorPinyin", "authorInitials");
+        addContains(cb, book, "category", category, predicates);
+        addContains(cb, book, "publisher", publisher, predicates);
+
+        Path<Long> id = book.get("id");
+        boolean byId = "id".equals(sortProperty);
+        if (lastId != null) {
+            Predicate afterId = descending ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+            if (byId) {
+                predicates.add(afterId);
+            } else {
+                Expression<Comparable> key = book.get(sortProperty);
+                Comparable value = (Comparable) lastValue;
+                Predicate afterKey = descending ? cb.lessThan(key, value) : cb.greaterThan(key, value);
+                predicates.add(cb.or(afterKey, cb.and(cb.equal(key, value), afterId)));
+            }
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        if (byId) {
+            query.orderBy(descending ? cb.desc(id) : cb.asc(id));
+        } else {
+            Path<?> key = book.get(sortProperty);
+            query.orderBy(descending ? cb.desc(key) : cb.asc(key), descending ? cb.desc(id) : cb.asc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // 与 BookRepository.SEARCH_WHERE 一致：LOWER(col) LIKE '%x%'，或任一拼音列 LIKE 'x%'
+    private void addContains(CriteriaBuilder cb, Root<Book> book, String property, String value,
+                             List<Predicate> predicates, String... pinyinProperties) {
+        if (!StringUtils.hasText(value)) {
+            return;
+        }
+        String keyword = value.toLowerCase();
+        List<Predicate> matches = new ArrayList<>();
+        matches.add(cb.like(cb.lower(book.<String>get(property)), "%" + keyword + "%"));
+        for (String pinyinProperty : pinyinProperties) {
+            matches.add(cb.like(book.<String>get(pinyinProperty), keyword + "%"));
+        }
+        predicates.add(matches.size() == 1 ? matches.get(0) : cb.or(matches.toArray(new Predicate[0])));
+    }
+}
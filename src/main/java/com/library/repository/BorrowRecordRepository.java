@@ -1,15 +1,25 @@
 package com.library.repository;
 
+import com.library.AppConstants;
 import com.library.entity.BorrowRecord;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 借阅记录数据访问接口
@@ -83,6 +93,110 @@ public interface BorrowRecordRepository extends BaseRepository<BorrowRecord, Lon
     @Query("SELECT br FROM BorrowRecord br WHERE br.user.id = :userId AND br.status != 'BORROWED'")
     List<BorrowRecord> findHistoryBorrowsByUserId(@Param("userId") Long userId);
     
+    /**
+     * 统计每本图书的借阅次数
+     */
+    @Query("SELECT br.book.id, COUNT(br) FROM BorrowRecord br GROUP BY br.book.id")
+    List<Object[]> countBorrowsGroupByBook();
+    
+    /**
+     * 借阅次数最多的图书ID（可按分类过滤，不含已删除图书）
+     */
+    @Query("SELECT br.book.id FROM BorrowRecord br " +
+           "WHERE br.book.isDeleted = false AND (:category IS NULL OR br.book.category = :category) " +
+           "GROUP BY br.book.id ORDER BY COUNT(br) DESC, br.book.id")
+    List<Long> findMostBorrowedBookIds(@Param("category") String category, Pageable pageable);
+    
+    /**
+     * 按借阅记录ID键集分页读取（记录ID, 读者ID, 图书ID），用于构建共同借阅推荐
+     */
+    @Query("SELECT br.id, br.user.id, br.book.id FROM BorrowRecord br WHERE br.id > :afterId ORDER BY br.id")
+    List<Object[]> findUserBookPairsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * 借阅记录对应的（用户ID, 图书ID），记录不存在时为空列表
+     */
+    @Query("SELECT br.user.id, br.book.id FROM BorrowRecord br WHERE br.id = :id")
+    List<Object[]> findUserAndBookIds(@Param("id") Long id);
+    
+    /**
+     * 借阅前一次取回（用户, 图书, 该用户借阅中的这本书的记录数），用户或图书不存在时为空列表
+     */
+    @Query("SELECT u, b, (SELECT COUNT(br) FROM BorrowRecord br " +
+           "WHERE br.user.id = u.id AND br.book.id = b.id AND br.status = :borrowed) " +
+           "FROM User u, Book b WHERE u.id = :userId AND b.id = :bookId")
+    List<Object[]> findBorrowState(@Param("userId") Long userId,
+                                   @Param("bookId") Long bookId,
+                                   @Param("borrowed") BorrowRecord.BorrowStatus borrowed);
+    
+    /**
+     * 按ID查找借阅记录，同一条查询取回用户和图书
+     */
+    @Query("SELECT br FROM BorrowRecord br JOIN FETCH br.user JOIN FETCH br.book WHERE br.id = :id")
+    Optional<BorrowRecord> findWithUserAndBookById(@Param("id") Long id);
+    
+    /**
+     * 按ID列表查找并锁住借阅记录（批量归还时使用），按ID顺序加锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT br FROM BorrowRecord br WHERE br.id IN :ids ORDER BY br.id")
+    List<BorrowRecord> lockByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 借阅记录列表对应的图书ID（去重）
+     */
+    @Query("SELECT DISTINCT br.book.id FROM BorrowRecord br WHERE br.id IN :ids")
+    List<Long> findBookIdsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 给定图书中该用户处于指定状态（借阅中）的图书ID
+     */
+    @Query("SELECT br.book.id FROM BorrowRecord br " +
+           "WHERE br.user.id = :userId AND br.book.id IN :bookIds AND br.status = :status")
+    List<Long> findBookIdsByUserAndStatus(@Param("userId") Long userId,
+                                          @Param("bookIds") Collection<Long> bookIds,
+                                          @Param("status") BorrowRecord.BorrowStatus status);
+    
+    /**
+     * 条件归还：只更新尚未归还的记录并清除借阅中标记，fine 为空时保留原罚款，返回更新行数。
+     * 并发重复归还同一条记录时只有一个能成功。
+     */
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.status = :returned, br.returnDate = :returnDate, " +
+           "br.fineAmount = COALESCE(:fine, br.fineAmount), br.activeLoan = NULL, br.version = br.version + 1, " +
+           "br.updatedAt = LOCAL DATETIME " +
+           "WHERE br.id = :id AND br.status <> :returned")
+    int markReturned(@Param("id") Long id,
+                     @Param("returnDate") LocalDate returnDate,
+                     @Param("fine") Double fine,
+                     @Param("returned") BorrowRecord.BorrowStatus returned);
+    
+    /**
+     * 未归还但借阅中标记为空的记录数（借阅中标记加入之前借出的记录）
+     */
+    @Query("SELECT COUNT(br) FROM BorrowRecord br WHERE br.status <> :returned AND br.activeLoan IS NULL")
+    long countUnmarkedLoans(@Param("returned") BorrowRecord.BorrowStatus returned);
+    
+    /**
+     * 所有未归还的记录（记录ID, 用户ID, 图书ID, 借阅中标记），按ID升序
+     */
+    @Query("SELECT br.id, br.user.id, br.book.id, br.activeLoan FROM BorrowRecord br " +
+           "WHERE br.status <> :returned ORDER BY br.id")
+    List<Object[]> findOpenLoans(@Param("returned") BorrowRecord.BorrowStatus returned);
+    
+    /**
+     * 为给定记录补上借阅中标记，已有标记的不动，返回更新行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BorrowRecord br SET br.activeLoan = true WHERE br.id IN :ids AND br.activeLoan IS NULL")
+    int markActiveLoans(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 某时间之后的每条借阅（图书ID, 借出时间），用于回填借阅趋势
+     */
+    @Query("SELECT br.book.id, br.createdAt FROM BorrowRecord br WHERE br.createdAt >= :since")
+    List<Object[]> findBorrowTimesSince(@Param("since") LocalDateTime since);
+    
     /**
      * 统计每日借阅数量
      */
@@ -115,4 +229,14 @@ public interface BorrowRecordRepository extends BaseRepository<BorrowRecord, Lon
                                           @Param("startDate") LocalDate startDate,
                                           @Param("endDate") LocalDate endDate,
                                           Pageable pageable);
+    
+    /**
+     * 按ID顺序流式读取全部借阅记录，同时取出用户和图书（用于导出，需在事务中使用并关闭流）
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT br FROM BorrowRecord br JOIN FETCH br.user JOIN FETCH br.book ORDER BY br.id")
+    Stream<BorrowRecord> streamAllForExport();
 }
\ No newline at end of file
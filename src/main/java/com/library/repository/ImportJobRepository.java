@@ -0,0 +1,18 @@
+package com.library.repository;
+
+import com.library.entity.ImportJob;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 导入任务数据访问接口
+ */
+@Repository
+public interface ImportJobRepository extends BaseRepository<ImportJob, Long> {
+    
+    /**
+     * 按创建时间倒序分页查询
+     */
+    Page<ImportJob> findAllByOrderByCreatedAtDesc(Pageable pageable);
+}
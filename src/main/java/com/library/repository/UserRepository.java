@@ -1,15 +1,25 @@
 package com.library.repository;
 
+import com.library.AppConstants;
 import com.library.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 用户数据访问接口
@@ -27,6 +37,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
     
+    /**
+     * 根据ID列表批量查找用户（批量读取时回源使用）
+     */
+    List<User> findByIdIn(Collection<Long> ids);
+    
     /**
      * 根据用户名或邮箱查找用户
      */
@@ -43,6 +58,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
     
+    /**
+     * 分批读取所有用户名（用于构建存在性过滤器）
+     */
+    @Query("SELECT u.username FROM User u")
+    Slice<String> findUsernames(Pageable pageable);
+    
+    /**
+     * 分批读取所有邮箱（用于构建存在性过滤器）
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IS NOT NULL")
+    Slice<String> findEmails(Pageable pageable);
+    
     /**
      * 根据角色查找用户
      */
@@ -101,4 +128,61 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     List<User> findByUsernameContainingIgnoreCaseOrRealNameContainingIgnoreCase(
             String username, String realName);
+    
+    /**
+     * 按用户名、真实姓名模糊搜索，或按真实姓名的全拼、拼音首字母前缀搜索（分页）
+     */
+    @Query("SELECT u FROM User u WHERE " +
+           "LOWER(u.username) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(u.realName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "(:pinyin IS NOT NULL AND (u.realNamePinyin LIKE CONCAT(:pinyin, '%') " +
+           "OR u.realNameInitials LIKE CONCAT(:pinyin, '%')))")
+    Page<User> searchByKeywordOrPinyin(@Param("keyword") String keyword,
+                                       @Param("pinyin") String pinyin,
+                                       Pageable pageable);
+    
+    /**
+     * 按ID顺序流式读取全部用户（用于导出，需在事务中使用并关闭流）
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAllForExport();
+    
+    /**
+     * 条件占用借阅名额：账户正常、无未缴罚款且未达上限时借阅数加一，返回更新行数。
+     * 判断和累加在同一条 UPDATE 里完成，并发借阅不会超过上限。
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.currentBorrowed = u.currentBorrowed + 1, u.version = u.version + 1, " +
+           "u.updatedAt = LOCAL DATETIME " +
+           "WHERE u.id = :id AND u.status = :active AND u.currentBorrowed < u.maxBorrowLimit " +
+           "AND u.fineAmount = 0")
+    int incrementCurrentBorrowed(@Param("id") Long id, @Param("active") User.Status active);
+    
+    /**
+     * 释放借阅名额并累加罚款（借阅数不会减到负数），返回更新行数
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.currentBorrowed = CASE WHEN u.currentBorrowed > 0 " +
+           "THEN u.currentBorrowed - 1 ELSE 0 END, " +
+           "u.fineAmount = COALESCE(u.fineAmount, 0) + :fine, u.version = u.version + 1, " +
+           "u.updatedAt = LOCAL DATETIME WHERE u.id = :id")
+    int decrementCurrentBorrowed(@Param("id") Long id, @Param("fine") double fine);
+    
+    /**
+     * 占用一个借阅名额，用户不可借或已达上限时返回 false（持久化上下文中的实体不会更新，需要时自行 refresh）
+     */
+    default boolean acquireBorrowSlot(Long id) {
+        return incrementCurrentBorrowed(id, User.Status.ACTIVE) > 0;
+    }
+    
+    /**
+     * 按ID查找并锁住用户行（SELECT ... FOR UPDATE，批量借还时使用，直到事务结束）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> lockById(@Param("id") Long id);
 }
\ No newline at end of file
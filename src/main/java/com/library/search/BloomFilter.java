@@ -0,0 +1,130 @@
+package com.library.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器
+ *
+ * 按预期元素数和目标误判率确定位数 m 和哈希次数 k；对 64 位哈希拆成两半做双重哈希
+ * （h1 + i*h2）得到 k 个位置。位数组用 AtomicLongArray 按位 CAS 置位，读写都不加锁。
+ * 返回 false 时元素一定不存在；返回 true 时可能误判，需要回源确认。
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong insertions = new AtomicLong();
+
+    BloomFilter(long expectedInsertions, double targetFpp) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(targetFpp) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (m + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+        this.capacity = n;
+    }
+
+    /**
+     * 加入元素
+     */
+    void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashes; i++) {
+            changed |= setBit(index(h1, h2, i));
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 元素是否可能存在
+     */
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按当前元素数估算的误判率 (1 - e^(-kn/m))^k
+     */
+    double expectedFpp() {
+        return Math.pow(1 - Math.exp(-hashes * (double) insertions.get() / bitSize), hashes);
+    }
+
+    /**
+     * 元素数是否已超过构建时的预期容量（误判率会随之上升）
+     */
+    boolean isSaturated() {
+        return insertions.get() > capacity;
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    long bitSize() {
+        return bitSize;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private long index(int h1, int h2, int i) {
+        long combined = h1 + (long) i * h2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % bitSize;
+    }
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // 64 位 FNV-1a，再做一次 murmur3 的 fmix64 打散
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53a85ec8a4dL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
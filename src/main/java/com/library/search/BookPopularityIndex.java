@@ -0,0 +1,272 @@
+package com.library.search;
+
+import com.library.AppConstants;
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图书借阅热度排行
+ *
+ * 每本书的累计借阅次数存放在原始类型哈希表中，全馆和每个分类各维护一个前 K 名小顶堆；
+ * 借书后通过 {@link BookBorrowedEvent} 增量更新计数并调整排行，热门图书接口直接读堆，不查询数据库。
+ * 启动时从借阅记录重建计数。已删除的图书不进入排行。
+ */
+@Component
+public class BookPopularityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookPopularityIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 不属于任何分类（全馆排行）
+     */
+    private static final int NO_CATEGORY = -1;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final int topK;
+    private final LongLongHashMap borrowCounts = new LongLongHashMap();
+    private final LongLongHashMap categoryOf = new LongLongHashMap();   // 图书ID -> 分类编号
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final List<TopKHeap> categoryRankings = new ArrayList<>();
+    private final TopKHeap overallRanking;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public BookPopularityIndex() {
+        this(AppConstants.POPULAR_TOP_K);
+    }
+
+    BookPopularityIndex(int topK) {
+        this.topK = topK;
+        this.overallRanking = new TopKHeap(topK);
+    }
+
+    /**
+     * 启动后从借阅记录全量重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Object[]> borrowRows = borrowRecordRepository.countBorrowsGroupByBook();
+        lock.writeLock().lock();
+        try {
+            borrowCounts.clear();
+            categoryOf.clear();
+            categoryIds.clear();
+            categoryRankings.clear();
+            overallRanking.clear();
+            for (Object[] row : borrowRows) {
+                borrowCounts.put((Long) row[0], (Long) row[1]);
+            }
+
+            int pageNumber = 0;
+            Page<Book> page;
+            do {
+                page = bookRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                page.forEach(this::doIndex);
+            } while (page.hasNext());
+
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("图书热度排行构建完成: {} 本, {} 个分类, 耗时 {} ms",
+                categoryOf.size(), categoryIds.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 事务提交后更新图书的分类或移出排行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (event.isRemoved()) {
+            remove(book.getId());
+        } else {
+            index(book);
+        }
+    }
+
+    /**
+     * 借阅提交后计数加一并调整排行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookBorrowed(BookBorrowedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long bookId = event.getBookId();
+            long count = borrowCounts.addTo(bookId, 1);
+            int category = (int) categoryOf.get(bookId, NO_CATEGORY);
+            if (category != NO_CATEGORY) {
+                overallRanking.offer(bookId, count);
+                categoryRankings.get(category).offer(bookId, count);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 排行是否已构建完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 添加或更新一本图书（已删除的图书移出排行）
+     */
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            doIndex(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 将图书移出排行（借阅计数保留）
+     */
+    public void remove(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            doRemove(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 图书的累计借阅次数
+     */
+    public long borrowCount(Long bookId) {
+        if (bookId == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return borrowCounts.get(bookId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 借阅次数最多的图书ID（按次数降序，次数相同按ID升序）；category 为空时为全馆排行
+     */
+    public long[] topIds(String category, int limit) {
+        lock.readLock().lock();
+        try {
+            if (!StringUtils.hasText(category)) {
+                return overallRanking.top(limit);
+            }
+            Integer id = categoryIds.get(category);
+            return id == null ? new long[0] : categoryRankings.get(id).top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 排行容量（topIds 最多返回的数量）
+     */
+    public int capacity() {
+        return topK;
+    }
+
+    // ==================== 内部实现（调用方需持有写锁） ====================
+
+    private void doIndex(Book book) {
+        if (Boolean.TRUE.equals(book.getIsDeleted())) {
+            doRemove(book.getId());
+            return;
+        }
+        long bookId = book.getId();
+        int category = categoryId(book.getCategory());
+        int previous = (int) categoryOf.get(bookId, NO_CATEGORY);
+        categoryOf.put(bookId, category);
+        if (previous != NO_CATEGORY && previous != category && categoryRankings.get(previous).remove(bookId)) {
+            refill(previous);
+        }
+        long count = borrowCounts.get(bookId, 0);
+        overallRanking.offer(bookId, count);
+        categoryRankings.get(category).offer(bookId, count);
+    }
+
+    private void doRemove(long bookId) {
+        int category = (int) categoryOf.get(bookId, NO_CATEGORY);
+        if (category == NO_CATEGORY) {
+            return;
+        }
+        categoryOf.remove(bookId);
+        if (overallRanking.remove(bookId)) {
+            refill(NO_CATEGORY);
+        }
+        if (categoryRankings.get(category).remove(bookId)) {
+            refill(category);
+        }
+    }
+
+    // 榜单中有书被移出后空出名次，扫描该范围内的图书补位（只在删除、改分类时发生）
+    private void refill(int category) {
+        TopKHeap ranking = category == NO_CATEGORY ? overallRanking : categoryRankings.get(category);
+        categoryOf.forEach((bookId, bookCategory) -> {
+            if (category == NO_CATEGORY || bookCategory == category) {
+                if (!ranking.contains(bookId)) {
+                    ranking.offer(bookId, borrowCounts.get(bookId, 0));
+                }
+            }
+        });
+    }
+
+    private int categoryId(String category) {
+        String name = category == null ? "" : category;
+        Integer id = categoryIds.get(name);
+        if (id == null) {
+            id = categoryRankings.size();
+            categoryIds.put(name, id);
+            categoryRankings.add(new TopKHeap(topK));
+        }
+        return id;
+    }
+}
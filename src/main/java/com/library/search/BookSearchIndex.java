@@ -0,0 +1,734 @@
+package com.library.search;
+
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.util.PinyinUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 图书内存倒排索引
+ *
+ * 对标题、作者、分类、出版社建立倒排表，替代 LOWER(col) LIKE '%x%' 的全表扫描：
+ * 1. 中文按二元组检索，拉丁单词按前缀检索，得到候选集合
+ * 2. 候选集合再用规范化后的原文做 contains 校验，保证与原 LIKE 语义一致
+ *
+ * 另外对分类、出版社、状态按取值各维护一个以图书ID为元素的 {@link LongRoaringBitmap}，
+ * 检索结果与各取值位图求交集大小即得分面计数，不需要逐个分面执行 GROUP BY。
+ *
+ * 标题和作者的词表另建 {@link FuzzyDictionary}，支持编辑距离 1~2 的容错检索；
+ * 同时对保存时生成的全拼和拼音首字母建倒排表，字母查询串（如 "hlm"）可命中中文标题和作者。
+ *
+ * 相关度排序按 BM25 计算：标题、作者、简介分别打分后按字段权重加权，再叠加借阅次数的对数作为热度先验。
+ * 所需的文档频率、字段长度和借阅次数都在索引里维护，打分不访问数据库。
+ *
+ * 索引在应用启动后从 books 表构建，之后通过 {@link BookChangedEvent} 增量维护。
+ * 全量重建（启动、批量导入后）在锁外构建一份新索引，期间照常查询和增量维护旧索引，
+ * 同时记下这段时间的增量变更；构建完成后在写锁内把这些变更补到新索引上再整体替换，写锁只持有替换这一步。
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 每个查询词最多展开的近似词数量
+     */
+    private static final int MAX_FUZZY_TERMS = 50;
+
+    // BM25 参数及字段权重
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_BOOST = 3.0;
+    private static final double AUTHOR_BOOST = 2.0;
+    private static final double DESCRIPTION_BOOST = 1.0;
+    private static final double POPULARITY_WEIGHT = 0.5;
+
+    /**
+     * 简介只参与打分，索引中保留的最大长度
+     */
+    private static final int DESCRIPTION_LIMIT = 500;
+
+    /**
+     * 可检索字段
+     */
+    public enum Field {
+        TITLE, AUTHOR, CATEGORY, PUBLISHER, TITLE_PINYIN, AUTHOR_PINYIN
+    }
+
+    /**
+     * 分面（按原始取值精确分组）
+     */
+    public enum Facet {
+        CATEGORY, PUBLISHER, STATUS
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    // 以下索引数据由 lock 保护，重建时整体替换为新构建的一份
+    private Map<Field, NavigableMap<String, LongPostings>> postings = new EnumMap<>(Field.class);
+    private Map<Facet, Map<String, LongRoaringBitmap>> facets = new EnumMap<>(Facet.class);
+    private Map<Field, FuzzyDictionary> vocabularies = new EnumMap<>(Field.class);
+    private Map<Long, IndexedBook> documents = new HashMap<>();
+    private Map<String, Integer> descriptionFrequencies = new HashMap<>();
+    private Map<Long, Integer> borrowCounts = new HashMap<>();
+    private long titleLengthSum;
+    private long authorLengthSum;
+    private long descriptionLengthSum;
+    private LongPostings allIds = new LongPostings();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 重建期间记录的增量变更，替换前补到新索引上；不在重建时为空
+     */
+    private List<Consumer<BookSearchIndex>> pendingChanges;
+
+    private volatile boolean ready;
+
+    public BookSearchIndex() {
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+        }
+        for (Facet facet : Facet.values()) {
+            facets.put(facet, new HashMap<>());
+        }
+        resetVocabularies();
+    }
+
+    /**
+     * 启动后全量构建索引（同一时间只有一个重建）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        // 先开始记录增量变更再读库：读库之前已提交、之后才收到事件的变更会重放一次，按图书覆盖写入，结果不变
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        BookSearchIndex rebuilt = new BookSearchIndex();
+        try {
+            for (Object[] row : borrowRecordRepository.countBorrowsGroupByBook()) {
+                rebuilt.borrowCounts.put((Long) row[0], ((Long) row[1]).intValue());
+            }
+            int pageNumber = 0;
+            Page<Book> page;
+            do {
+                page = bookRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                page.forEach(book -> rebuilt.doIndex(book.getId(), indexed(book)));
+            } while (page.hasNext());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = pendingChanges.size();
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            pendingChanges = null;
+            replaceWith(rebuilt);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("图书检索索引构建完成: {} 本, 重放增量变更 {} 次, 耗时 {} ms",
+                rebuilt.documents.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 事务提交后增量更新索引
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isRemoved()) {
+            remove(event.getBook().getId());
+        } else {
+            index(event.getBook());
+        }
+    }
+
+    /**
+     * 借阅发生后更新热度
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookBorrowed(BookBorrowedEvent event) {
+        Long bookId = event.getBookId();
+        if (bookId == null) {
+            return;
+        }
+        apply(index -> index.borrowCounts.merge(bookId, 1, Integer::sum));
+    }
+
+    /**
+     * 索引是否已构建完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 已索引的图书数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 添加或更新一本图书
+     */
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Long bookId = book.getId();
+        IndexedBook doc = indexed(book);
+        apply(index -> index.doIndex(bookId, doc));
+    }
+
+    /**
+     * 从索引中移除一本图书
+     */
+    public void remove(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        apply(index -> index.doRemove(bookId));
+    }
+
+    /**
+     * 按条件检索，返回升序排列的图书ID；所有条件为空时返回全部图书
+     */
+    public long[] searchIds(String title, String author, String category, String publisher) {
+        Map<Field, String> criteria = new EnumMap<>(Field.class);
+        putIfHasText(criteria, Field.TITLE, title);
+        putIfHasText(criteria, Field.AUTHOR, author);
+        putIfHasText(criteria, Field.CATEGORY, category);
+        putIfHasText(criteria, Field.PUBLISHER, publisher);
+
+        lock.readLock().lock();
+        try {
+            long[] result = null;
+            for (Map.Entry<Field, String> entry : criteria.entrySet()) {
+                long[] matched = matchWithPinyin(entry.getKey(), entry.getValue());
+                result = result == null ? matched : LongPostings.intersect(result, matched);
+                if (result.length == 0) {
+                    return result;
+                }
+            }
+            return result == null ? allIds.toArray() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按相关度检索：命中集合与 {@link #searchIds} 相同，按 BM25 得分加热度降序排列（同分时ID大的在前）
+     */
+    public long[] rankedSearchIds(String title, String author, String category, String publisher) {
+        long[] ids = searchIds(title, author, category, publisher);
+        List<String> titleTokens = StringUtils.hasText(title)
+                ? TextTokenizer.queryTokens(TextTokenizer.normalize(title.trim()))
+                : List.of();
+        List<String> authorTokens = StringUtils.hasText(author)
+                ? TextTokenizer.queryTokens(TextTokenizer.normalize(author.trim()))
+                : List.of();
+
+        double[] scores = new double[ids.length];
+        lock.readLock().lock();
+        try {
+            int total = Math.max(1, documents.size());
+            double titleAverage = Math.max(1.0, (double) titleLengthSum / total);
+            double authorAverage = Math.max(1.0, (double) authorLengthSum / total);
+            double descriptionAverage = Math.max(1.0, (double) descriptionLengthSum / total);
+            double[] titleIdf = new double[titleTokens.size()];
+            double[] descriptionIdf = new double[titleTokens.size()];
+            double[] authorIdf = new double[authorTokens.size()];
+            for (int t = 0; t < titleTokens.size(); t++) {
+                titleIdf[t] = idf(total, lookup(Field.TITLE, titleTokens.get(t)).length);
+                descriptionIdf[t] = idf(total, descriptionFrequencies.getOrDefault(titleTokens.get(t), 0));
+            }
+            for (int t = 0; t < authorTokens.size(); t++) {
+                authorIdf[t] = idf(total, lookup(Field.AUTHOR, authorTokens.get(t)).length);
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                IndexedBook doc = documents.get(ids[i]);
+                if (doc == null) {
+                    // 两次加锁之间被删除
+                    scores[i] = Double.NEGATIVE_INFINITY;
+                    continue;
+                }
+                double score = 0;
+                for (int t = 0; t < titleTokens.size(); t++) {
+                    String token = titleTokens.get(t);
+                    score += TITLE_BOOST * bm25(titleIdf[t], countOf(doc.title, token), doc.titleLength, titleAverage);
+                    score += DESCRIPTION_BOOST * bm25(descriptionIdf[t], countOf(doc.description, token),
+                            doc.descriptionLength, descriptionAverage);
+                }
+                for (int t = 0; t < authorTokens.size(); t++) {
+                    score += AUTHOR_BOOST * bm25(authorIdf[t], countOf(doc.author, authorTokens.get(t)),
+                            doc.authorLength, authorAverage);
+                }
+                scores[i] = score + POPULARITY_WEIGHT * Math.log1p(borrowCounts.getOrDefault(ids[i], 0));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                ? Double.compare(scores[b], scores[a])
+                : Long.compare(ids[b], ids[a]));
+        long[] ranked = new long[ids.length];
+        int n = 0;
+        for (int i : order) {
+            if (scores[i] != Double.NEGATIVE_INFINITY) {
+                ranked[n++] = ids[i];
+            }
+        }
+        return n == ranked.length ? ranked : Arrays.copyOf(ranked, n);
+    }
+
+    /**
+     * 统计给定图书ID集合在各分面上的取值分布，按数量降序，不含数量为0的取值
+     */
+    public Map<Facet, Map<String, Integer>> facetCounts(long[] ids) {
+        LongRoaringBitmap filter = new LongRoaringBitmap();
+        for (long id : ids) {
+            filter.add(id);
+        }
+
+        Map<Facet, Map<String, Integer>> result = new EnumMap<>(Facet.class);
+        lock.readLock().lock();
+        try {
+            for (Facet facet : Facet.values()) {
+                List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+                for (Map.Entry<String, LongRoaringBitmap> entry : facets.get(facet).entrySet()) {
+                    int count = (int) entry.getValue().andCardinality(filter);
+                    if (count > 0) {
+                        counts.add(Map.entry(entry.getKey(), count));
+                    }
+                }
+                counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()));
+
+                Map<String, Integer> ordered = new LinkedHashMap<>();
+                counts.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+                result.put(facet, ordered);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 容错检索：标题、作者中的每个词允许一定的编辑距离（3~5 个字符的词 1 次，更长的词至多 maxEdits 次，
+     * 更短的词不容错），分类、出版社仍按原文匹配。按总编辑距离升序、ID 升序返回图书ID
+     */
+    public long[] fuzzySearchIds(String title, String author, String category, String publisher, int maxEdits) {
+        Map<Field, String> fuzzyCriteria = new EnumMap<>(Field.class);
+        putIfHasText(fuzzyCriteria, Field.TITLE, title);
+        putIfHasText(fuzzyCriteria, Field.AUTHOR, author);
+        if (fuzzyCriteria.isEmpty()) {
+            return searchIds(null, null, category, publisher);
+        }
+        long[] filter = StringUtils.hasText(category) || StringUtils.hasText(publisher)
+                ? searchIds(null, null, category, publisher)
+                : null;
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> distances = null;
+            for (Map.Entry<Field, String> entry : fuzzyCriteria.entrySet()) {
+                Map<Long, Integer> matched = fuzzyMatch(entry.getKey(), entry.getValue(), maxEdits);
+                distances = distances == null ? matched : intersectDistances(distances, matched);
+                if (distances.isEmpty()) {
+                    return new long[0];
+                }
+            }
+            if (filter != null) {
+                distances.keySet().removeIf(id -> Arrays.binarySearch(filter, id) < 0);
+            }
+            return distances.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 在写锁内应用一次增量变更；正在重建时一并记下，替换前补到新索引上
+    private void apply(Consumer<BookSearchIndex> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(this);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 已删除的图书不建索引，返回空
+    private static IndexedBook indexed(Book book) {
+        return Boolean.TRUE.equals(book.getIsDeleted()) ? null : new IndexedBook(book);
+    }
+
+    // ==================== 内部实现（调用方需持有锁，或操作的是尚未发布的新索引） ====================
+
+    // 换用重建好的索引数据
+    private void replaceWith(BookSearchIndex rebuilt) {
+        postings = rebuilt.postings;
+        facets = rebuilt.facets;
+        vocabularies = rebuilt.vocabularies;
+        documents = rebuilt.documents;
+        descriptionFrequencies = rebuilt.descriptionFrequencies;
+        borrowCounts = rebuilt.borrowCounts;
+        titleLengthSum = rebuilt.titleLengthSum;
+        authorLengthSum = rebuilt.authorLengthSum;
+        descriptionLengthSum = rebuilt.descriptionLengthSum;
+        allIds = rebuilt.allIds;
+    }
+
+    // doc 为空表示图书已删除，只移除旧条目
+    private void doIndex(Long bookId, IndexedBook doc) {
+        doRemove(bookId);
+        if (doc == null) {
+            return;
+        }
+
+        documents.put(doc.id, doc);
+        allIds.add(doc.id);
+        for (Field field : Field.values()) {
+            NavigableMap<String, LongPostings> dictionary = postings.get(field);
+            for (String token : TextTokenizer.indexTokens(doc.get(field))) {
+                dictionary.computeIfAbsent(token, key -> new LongPostings()).add(doc.id);
+            }
+        }
+        vocabularies.forEach((field, vocabulary) -> TextTokenizer.words(doc.get(field)).forEach(vocabulary::add));
+        TextTokenizer.indexTokens(doc.description).forEach(token -> descriptionFrequencies.merge(token, 1, Integer::sum));
+        titleLengthSum += doc.titleLength;
+        authorLengthSum += doc.authorLength;
+        descriptionLengthSum += doc.descriptionLength;
+        for (Facet facet : Facet.values()) {
+            String value = doc.facetValue(facet);
+            if (value != null) {
+                facets.get(facet).computeIfAbsent(value, key -> new LongRoaringBitmap()).add(doc.id);
+            }
+        }
+    }
+
+    private void doRemove(Long bookId) {
+        IndexedBook doc = documents.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        allIds.remove(bookId);
+        for (Field field : Field.values()) {
+            NavigableMap<String, LongPostings> dictionary = postings.get(field);
+            for (String token : TextTokenizer.indexTokens(doc.get(field))) {
+                LongPostings list = dictionary.get(token);
+                if (list != null) {
+                    list.remove(bookId);
+                    if (list.isEmpty()) {
+                        dictionary.remove(token);
+                    }
+                }
+            }
+        }
+        vocabularies.forEach((field, vocabulary) -> TextTokenizer.words(doc.get(field)).forEach(vocabulary::remove));
+        TextTokenizer.indexTokens(doc.description).forEach(token ->
+                descriptionFrequencies.computeIfPresent(token, (key, count) -> count == 1 ? null : count - 1));
+        titleLengthSum -= doc.titleLength;
+        authorLengthSum -= doc.authorLength;
+        descriptionLengthSum -= doc.descriptionLength;
+        if (vocabularies.values().stream().anyMatch(FuzzyDictionary::needsCompaction)) {
+            rebuildVocabularies();
+        }
+        for (Facet facet : Facet.values()) {
+            String value = doc.facetValue(facet);
+            LongRoaringBitmap bitmap = value == null ? null : facets.get(facet).get(value);
+            if (bitmap != null) {
+                bitmap.remove(bookId);
+                if (bitmap.isEmpty()) {
+                    facets.get(facet).remove(value);
+                }
+            }
+        }
+    }
+
+    // 单字段匹配：倒排表求候选，再用原文校验
+    private long[] match(Field field, String query) {
+        String normalized = TextTokenizer.normalize(query);
+        List<String> tokens = TextTokenizer.queryTokens(normalized);
+
+        long[] candidates = null;
+        for (String token : tokens) {
+            long[] ids = lookup(field, token);
+            candidates = candidates == null ? ids : LongPostings.intersect(candidates, ids);
+            if (candidates.length == 0) {
+                return candidates;
+            }
+        }
+        if (candidates == null) {
+            // 查询串只有标点等分隔符，退化为逐条比较
+            candidates = allIds.toArray();
+        }
+
+        long[] verified = new long[candidates.length];
+        int n = 0;
+        for (long id : candidates) {
+            if (documents.get(id).get(field).contains(normalized)) {
+                verified[n++] = id;
+            }
+        }
+        return Arrays.copyOf(verified, n);
+    }
+
+    // 标题、作者的查询串只含字母数字时，原文匹配与拼音匹配取并集
+    private long[] matchWithPinyin(Field field, String query) {
+        long[] matched = match(field, query);
+        Field pinyinField = field == Field.TITLE ? Field.TITLE_PINYIN
+                : field == Field.AUTHOR ? Field.AUTHOR_PINYIN
+                : null;
+        String pinyin = PinyinUtils.asPinyinQuery(query);
+        if (pinyinField == null || pinyin == null) {
+            return matched;
+        }
+        return LongPostings.union(List.of(matched, match(pinyinField, pinyin)));
+    }
+
+    // 单字段容错匹配：每个词的原文匹配与近似词匹配取并集（记最小编辑距离），各词之间求交（距离相加）
+    private Map<Long, Integer> fuzzyMatch(Field field, String query, int maxEdits) {
+        Map<Long, Integer> result = null;
+        for (String word : TextTokenizer.words(query)) {
+            Map<Long, Integer> matched = new HashMap<>();
+            for (long id : match(field, word)) {
+                matched.put(id, 0);
+            }
+            int edits = allowedEdits(word, maxEdits);
+            if (edits > 0) {
+                for (FuzzyDictionary.Match term : vocabularies.get(field).lookup(word, edits, MAX_FUZZY_TERMS)) {
+                    if (term.distance > 0) {
+                        for (long id : match(field, term.term)) {
+                            matched.merge(id, term.distance, Math::min);
+                        }
+                    }
+                }
+            }
+            result = result == null ? matched : intersectDistances(result, matched);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        if (result == null) {
+            // 查询串只有标点等分隔符，按原文匹配
+            result = new HashMap<>();
+            for (long id : match(field, query)) {
+                result.put(id, 0);
+            }
+        }
+        return result;
+    }
+
+    // 短词容错容易匹配到大量无关词，按词长限制编辑距离
+    private static int allowedEdits(String word, int maxEdits) {
+        int length = word.codePointCount(0, word.length());
+        int byLength = length <= 2 ? 0 : length <= 5 ? 1 : FuzzyDictionary.MAX_DISTANCE;
+        return Math.max(0, Math.min(maxEdits, byLength));
+    }
+
+    private static Map<Long, Integer> intersectDistances(Map<Long, Integer> left, Map<Long, Integer> right) {
+        Map<Long, Integer> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Integer> larger = smaller == left ? right : left;
+        Map<Long, Integer> result = new HashMap<>();
+        smaller.forEach((id, distance) -> {
+            Integer other = larger.get(id);
+            if (other != null) {
+                result.put(id, distance + other);
+            }
+        });
+        return result;
+    }
+
+    private void resetVocabularies() {
+        vocabularies.put(Field.TITLE, new FuzzyDictionary());
+        vocabularies.put(Field.AUTHOR, new FuzzyDictionary());
+    }
+
+    // 词表里失效的词过多时按现有文档重建，回收删除变体占用的内存
+    private void rebuildVocabularies() {
+        resetVocabularies();
+        for (IndexedBook doc : documents.values()) {
+            vocabularies.forEach((field, vocabulary) -> TextTokenizer.words(doc.get(field)).forEach(vocabulary::add));
+        }
+    }
+
+    // CJK词元精确查找；拉丁单词按前缀合并所有以其开头的词元
+    private long[] lookup(Field field, String token) {
+        NavigableMap<String, LongPostings> dictionary = postings.get(field);
+        if (TextTokenizer.isCjk(token.codePointAt(0))) {
+            LongPostings list = dictionary.get(token);
+            return list == null ? new long[0] : list.toArray();
+        }
+        List<long[]> matches = new ArrayList<>();
+        for (LongPostings list : dictionary.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+            matches.add(list.toArray());
+        }
+        return LongPostings.union(matches);
+    }
+
+    private static double idf(int total, int documentFrequency) {
+        return Math.log(1 + (total - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(double idf, int termFrequency, int length, double averageLength) {
+        if (termFrequency == 0) {
+            return 0;
+        }
+        return idf * termFrequency * (K1 + 1) / (termFrequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // 词元在字段原文中的出现次数（拉丁词元按前缀出现计数）
+    private static int countOf(String text, String token) {
+        int count = 0;
+        for (int from = text.indexOf(token); from >= 0; from = text.indexOf(token, from + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void putIfHasText(Map<Field, String> criteria, Field field, String value) {
+        if (StringUtils.hasText(value)) {
+            criteria.put(field, value.trim());
+        }
+    }
+
+    /**
+     * 索引中保存的图书字段（已规范化）
+     */
+    private static final class IndexedBook {
+        private final long id;
+        private final String title;
+        private final String author;
+        private final String category;
+        private final String publisher;
+        private final String titlePinyin;
+        private final String authorPinyin;
+        private final String description;
+        private final int titleLength;
+        private final int authorLength;
+        private final int descriptionLength;
+        private final String categoryValue;
+        private final String publisherValue;
+        private final String statusValue;
+
+        private IndexedBook(Book book) {
+            this.id = book.getId();
+            this.title = TextTokenizer.normalize(book.getTitle());
+            this.author = TextTokenizer.normalize(book.getAuthor());
+            this.category = TextTokenizer.normalize(book.getCategory());
+            this.publisher = TextTokenizer.normalize(book.getPublisher());
+            this.titlePinyin = pinyinText(book.getTitle(), book.getTitlePinyin(), book.getTitleInitials());
+            this.authorPinyin = pinyinText(book.getAuthor(), book.getAuthorPinyin(), book.getAuthorInitials());
+            String fullDescription = TextTokenizer.normalize(book.getDescription());
+            this.description = fullDescription.length() > DESCRIPTION_LIMIT
+                    ? fullDescription.substring(0, DESCRIPTION_LIMIT)
+                    : fullDescription;
+            this.titleLength = TextTokenizer.queryTokens(title).size();
+            this.authorLength = TextTokenizer.queryTokens(author).size();
+            this.descriptionLength = TextTokenizer.queryTokens(description).size();
+            this.categoryValue = book.getCategory();
+            this.publisherValue = StringUtils.hasText(book.getPublisher()) ? book.getPublisher() : null;
+            this.statusValue = book.getStatus() == null ? null : book.getStatus().name();
+        }
+
+        private String facetValue(Facet facet) {
+            switch (facet) {
+                case CATEGORY:
+                    return categoryValue;
+                case PUBLISHER:
+                    return publisherValue;
+                default:
+                    return statusValue;
+            }
+        }
+
+        private String get(Field field) {
+            switch (field) {
+                case TITLE:
+                    return title;
+                case AUTHOR:
+                    return author;
+                case CATEGORY:
+                    return category;
+                case PUBLISHER:
+                    return publisher;
+                case TITLE_PINYIN:
+                    return titlePinyin;
+                default:
+                    return authorPinyin;
+            }
+        }
+
+        // 全拼和首字母作为两个词建索引；旧数据尚未生成拼音字段时现场转换
+        private static String pinyinText(String text, String pinyin, String initials) {
+            if (pinyin == null || initials == null) {
+                pinyin = PinyinUtils.toPinyin(text);
+                initials = PinyinUtils.toInitials(text);
+            }
+            return pinyin + " " + initials;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.library.search;
+
+import com.library.entity.Book;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图书库存位图索引
+ *
+ * 按库存状态（可借、库存不足、无库存）各维护一个以图书ID为元素的 {@link RoaringBitmap}，
+ * 数量统计和可借判断不再查询数据库，列表接口直接在位图上按ID分页。
+ * 借还书、修改库存后通过 {@link BookChangedEvent} 增量维护，已删除的图书不计入。
+ */
+@Component
+public class BookStockIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookStockIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 库存不足阈值（与 BookRepository.findLowStockBooks 一致）
+     */
+    public static final int LOW_STOCK_THRESHOLD = 3;
+
+    /**
+     * 库存状态
+     */
+    public enum StockLevel {
+        AVAILABLE,      // 有库存且状态为可借
+        LOW_STOCK,      // 可借册数在 1 到阈值之间
+        OUT_OF_STOCK    // 可借册数为0
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final Map<StockLevel, RoaringBitmap> bitmaps = new EnumMap<>(StockLevel.class);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public BookStockIndex() {
+        for (StockLevel level : StockLevel.values()) {
+            bitmaps.put(level, new RoaringBitmap());
+        }
+    }
+
+    /**
+     * 启动后全量构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            bitmaps.values().forEach(RoaringBitmap::clear);
+
+            int pageNumber = 0;
+            Page<Book> page;
+            do {
+                page = bookRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                page.forEach(this::doUpdate);
+            } while (page.hasNext());
+
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("图书库存索引构建完成: 可借 {} 本, 库存不足 {} 本, 无库存 {} 本, 耗时 {} ms",
+                count(StockLevel.AVAILABLE), count(StockLevel.LOW_STOCK), count(StockLevel.OUT_OF_STOCK),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 事务提交后增量更新索引
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.isRemoved()) {
+                doRemove(book.getId());
+            } else {
+                doUpdate(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引是否已构建完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 某库存状态下的图书数量
+     */
+    public long count(StockLevel level) {
+        lock.readLock().lock();
+        try {
+            return bitmaps.get(level).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 图书是否处于某库存状态
+     */
+    public boolean contains(StockLevel level, Long bookId) {
+        if (bookId == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return bitmaps.get(level).contains(toBit(bookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按图书ID顺序分页取某库存状态下的图书ID
+     */
+    public long[] page(StockLevel level, long offset, int limit, boolean descending) {
+        int[] bits;
+        lock.readLock().lock();
+        try {
+            bits = bitmaps.get(level).select(offset, limit, descending);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long[] ids = new long[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            ids[i] = bits[i];
+        }
+        return ids;
+    }
+
+    // ==================== 内部实现（调用方需持有写锁） ====================
+
+    private void doUpdate(Book book) {
+        doRemove(book.getId());
+        if (Boolean.TRUE.equals(book.getIsDeleted())) {
+            return;
+        }
+
+        int bit = toBit(book.getId());
+        int copies = book.getAvailableCopies() == null ? 0 : book.getAvailableCopies();
+        if (copies > 0 && book.getStatus() == Book.BookStatus.AVAILABLE) {
+            bitmaps.get(StockLevel.AVAILABLE).add(bit);
+        }
+        if (copies > 0 && copies < LOW_STOCK_THRESHOLD) {
+            bitmaps.get(StockLevel.LOW_STOCK).add(bit);
+        }
+        if (copies == 0) {
+            bitmaps.get(StockLevel.OUT_OF_STOCK).add(bit);
+        }
+    }
+
+    private void doRemove(Long bookId) {
+        int bit = toBit(bookId);
+        for (RoaringBitmap bitmap : bitmaps.values()) {
+            bitmap.remove(bit);
+        }
+    }
+
+    // 图书ID为自增主键，直接作为位图元素
+    private static int toBit(long id) {
+        return Math.toIntExact(id);
+    }
+}
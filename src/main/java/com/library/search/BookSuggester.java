@@ -0,0 +1,300 @@
+package com.library.search;
+
+import com.library.dto.BookSuggestionDTO;
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图书输入提示（标题、作者、ISBN前缀补全）
+ *
+ * 主体是启动时从 books 表构建的 {@link SuggestionDictionary}；之后新增或修改的图书
+ * 先进入一个小的待合并列表，超过阈值再整体重建词典。借阅发生时按借阅次数调整权重，
+ * 作者提示的权重为该作者全部图书借阅次数之和。
+ */
+@Component
+public class BookSuggester {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggester.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MERGE_THRESHOLD = 2048;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, BookEntries> books = new HashMap<>();
+    private final Map<String, AuthorEntry> authors = new HashMap<>();
+    private final List<SuggestionDictionary.Entry> pending = new ArrayList<>();
+    private SuggestionDictionary dictionary = SuggestionDictionary.EMPTY;
+
+    /**
+     * 启动后从 books 表和借阅统计构建词典
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> borrowCounts = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.countBorrowsGroupByBook()) {
+            borrowCounts.put((Long) row[0], (Long) row[1]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            authors.clear();
+            pending.clear();
+
+            int pageNumber = 0;
+            Page<Book> page;
+            do {
+                page = bookRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                for (Book book : page) {
+                    if (!Boolean.TRUE.equals(book.getIsDeleted())) {
+                        addBook(book, borrowCounts.getOrDefault(book.getId(), 0L));
+                    }
+                }
+            } while (page.hasNext());
+
+            rebuildDictionary();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("图书输入提示词典构建完成: {} 条, 耗时 {} ms", dictionary.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 图书变更后同步提示词
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        lock.writeLock().lock();
+        try {
+            // 库存、状态等变化不影响提示词
+            boolean removed = event.isRemoved() || Boolean.TRUE.equals(book.getIsDeleted());
+            if (!removed && isUnchanged(books.get(book.getId()), book)) {
+                return;
+            }
+            BookEntries previous = removeBook(book.getId());
+            if (!removed) {
+                addBook(book, previous == null ? 0L : previous.borrowCount);
+            }
+            if (pending.size() > MERGE_THRESHOLD) {
+                rebuildDictionary();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 借阅发生后提升对应提示词的权重
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookBorrowed(BookBorrowedEvent event) {
+        lock.writeLock().lock();
+        try {
+            BookEntries entries = books.get(event.getBookId());
+            if (entries == null) {
+                return;
+            }
+            entries.borrowCount++;
+            increment(entries.title);
+            increment(entries.isbn);
+            AuthorEntry author = authors.get(entries.authorKey);
+            if (author != null) {
+                increment(author.entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按前缀返回借阅次数最高的前 limit 条提示
+     */
+    public List<BookSuggestionDTO> suggest(String prefix, int limit) {
+        if (!StringUtils.hasText(prefix) || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String key = normalizeKey(prefix);
+
+        List<SuggestionDictionary.Entry> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = new ArrayList<>(dictionary.top(key, limit * 2));
+            for (SuggestionDictionary.Entry entry : pending) {
+                if (!entry.removed && entry.key.startsWith(key)) {
+                    candidates.add(entry);
+                }
+            }
+            candidates.sort(Comparator.comparingLong((SuggestionDictionary.Entry e) -> -e.weight)
+                    .thenComparing(e -> e.key));
+
+            // 同类型同文本的提示只保留一条（如同名图书）
+            Map<String, BookSuggestionDTO> result = new LinkedHashMap<>();
+            for (SuggestionDictionary.Entry entry : candidates) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.putIfAbsent(entry.type + ":" + entry.text, new BookSuggestionDTO(
+                        entry.text, entry.type.name(), entry.bookId, entry.weight));
+            }
+            return new ArrayList<>(result.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 内部实现（调用方需持有写锁） ====================
+
+    private void addBook(Book book, long borrowCount) {
+        BookEntries entries = new BookEntries();
+        entries.borrowCount = borrowCount;
+        entries.title = newEntry(book.getTitle(), SuggestionDictionary.Type.TITLE, book.getId(), borrowCount);
+        entries.isbn = newEntry(book.getIsbn(), SuggestionDictionary.Type.ISBN, book.getId(), borrowCount);
+
+        if (StringUtils.hasText(book.getAuthor())) {
+            entries.authorKey = normalizeKey(book.getAuthor());
+            AuthorEntry author = authors.get(entries.authorKey);
+            if (author == null) {
+                author = new AuthorEntry();
+                author.entry = newEntry(book.getAuthor(), SuggestionDictionary.Type.AUTHOR, null, 0L);
+                authors.put(entries.authorKey, author);
+            }
+            author.books++;
+            author.entry.weight += borrowCount;
+            dictionary.refresh(author.entry);
+        }
+        books.put(book.getId(), entries);
+    }
+
+    private BookEntries removeBook(Long bookId) {
+        BookEntries entries = books.remove(bookId);
+        if (entries == null) {
+            return null;
+        }
+        markRemoved(entries.title);
+        markRemoved(entries.isbn);
+
+        AuthorEntry author = entries.authorKey == null ? null : authors.get(entries.authorKey);
+        if (author != null) {
+            author.books--;
+            author.entry.weight -= entries.borrowCount;
+            if (author.books <= 0) {
+                authors.remove(entries.authorKey);
+                markRemoved(author.entry);
+            } else {
+                dictionary.refresh(author.entry);
+            }
+        }
+        return entries;
+    }
+
+    private boolean isUnchanged(BookEntries entries, Book book) {
+        if (entries == null) {
+            return false;
+        }
+        String authorKey = StringUtils.hasText(book.getAuthor()) ? normalizeKey(book.getAuthor()) : null;
+        return sameText(entries.title, book.getTitle())
+                && sameText(entries.isbn, book.getIsbn())
+                && Objects.equals(entries.authorKey, authorKey);
+    }
+
+    private static boolean sameText(SuggestionDictionary.Entry entry, String text) {
+        if (entry == null) {
+            return !StringUtils.hasText(text);
+        }
+        return StringUtils.hasText(text) && entry.text.equals(text.trim());
+    }
+
+    private SuggestionDictionary.Entry newEntry(String text, SuggestionDictionary.Type type, Long bookId, long weight) {
+        if (!StringUtils.hasText(text)) {
+            return null;
+        }
+        SuggestionDictionary.Entry entry = new SuggestionDictionary.Entry(
+                normalizeKey(text), text.trim(), type, bookId, weight);
+        pending.add(entry);
+        return entry;
+    }
+
+    private void increment(SuggestionDictionary.Entry entry) {
+        if (entry != null) {
+            entry.weight++;
+            dictionary.refresh(entry);
+        }
+    }
+
+    private void markRemoved(SuggestionDictionary.Entry entry) {
+        if (entry != null) {
+            entry.removed = true;
+            dictionary.refresh(entry);
+        }
+    }
+
+    // 把所有有效条目（含待合并的）重建为新的词典
+    private void rebuildDictionary() {
+        List<SuggestionDictionary.Entry> live = new ArrayList<>();
+        for (BookEntries entries : books.values()) {
+            if (entries.title != null) {
+                live.add(entries.title);
+            }
+            if (entries.isbn != null) {
+                live.add(entries.isbn);
+            }
+        }
+        live.addAll(authors.values().stream().map(author -> author.entry).collect(Collectors.toList()));
+
+        dictionary = new SuggestionDictionary(live);
+        pending.clear();
+    }
+
+    // 规范化：小写、去首尾空白；ISBN形式的输入去掉连字符
+    private static String normalizeKey(String text) {
+        String key = TextTokenizer.normalize(text.trim());
+        if (key.matches("[0-9x\\- ]+")) {
+            key = key.replace("-", "").replace(" ", "");
+        }
+        return key;
+    }
+
+    private static final class BookEntries {
+        private SuggestionDictionary.Entry title;
+        private SuggestionDictionary.Entry isbn;
+        private String authorKey;
+        private long borrowCount;
+    }
+
+    private static final class AuthorEntry {
+        private SuggestionDictionary.Entry entry;
+        private int books;
+    }
+}
@@ -0,0 +1,171 @@
+package com.library.search;
+
+import com.library.AppConstants;
+import com.library.event.BookBorrowedEvent;
+import com.library.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近期借阅趋势（滑动时间窗口计数）
+ *
+ * 按小时分桶的环形数组，每个桶记录该小时内每本书的借阅次数，环的长度覆盖最大窗口。
+ * 写入时按当前小时定位槽位，槽位里是过期的旧桶则用 CAS 换成新桶；计数用 LongAdder 累加，全程不加锁。
+ * 查询时只汇总窗口内的桶，不再对借阅记录做 GROUP BY 统计。
+ * 启动时从最近一个最大窗口内的借阅记录回填。
+ */
+@Component
+public class BookTrendingIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookTrendingIndex.class);
+
+    private static final long MILLIS_PER_HOUR = Duration.ofHours(1).toMillis();
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final Clock clock;
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(AppConstants.TRENDING_MAX_WINDOW_HOURS);
+
+    public BookTrendingIndex() {
+        this(Clock.systemDefaultZone());
+    }
+
+    BookTrendingIndex(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 启动后回填最近一个最大窗口内的借阅
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now(clock).minusHours(AppConstants.TRENDING_MAX_WINDOW_HOURS);
+        List<Object[]> rows = borrowRecordRepository.findBorrowTimesSince(since);
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+        ZoneId zone = clock.getZone();
+        for (Object[] row : rows) {
+            long millis = ((LocalDateTime) row[1]).atZone(zone).toInstant().toEpochMilli();
+            record((Long) row[0], millis / MILLIS_PER_HOUR);
+        }
+        logger.info("借阅趋势回填完成: {} 次借阅, 耗时 {} ms", rows.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 借阅提交后计入当前小时
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookBorrowed(BookBorrowedEvent event) {
+        if (event.getBookId() != null) {
+            record(event.getBookId(), currentHour());
+        }
+    }
+
+    /**
+     * 最近 window 内借阅次数最多的图书ID（按次数降序，次数相同按ID升序）
+     */
+    public long[] topIds(Duration window, int limit) {
+        return topIds(window, limit, currentHour());
+    }
+
+    long[] topIds(Duration window, int limit, long nowHour) {
+        return windowCounts(window, nowHour).entrySet().stream()
+                .sorted((a, b) -> {
+                    int byCount = Long.compare(b.getValue(), a.getValue());
+                    return byCount != 0 ? byCount : Long.compare(a.getKey(), b.getKey());
+                })
+                .limit(Math.max(0, limit))
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+
+    /**
+     * 某本书最近 window 内的借阅次数
+     */
+    long borrowCount(long bookId, Duration window, long nowHour) {
+        return windowCounts(window, nowHour).getOrDefault(bookId, 0L);
+    }
+
+    /**
+     * 窗口换算为小时数（不足一小时按一小时计）
+     */
+    public static int windowHours(Duration window) {
+        if (window == null || window.isNegative() || window.isZero()
+                || window.toHours() > AppConstants.TRENDING_MAX_WINDOW_HOURS) {
+            throw new IllegalArgumentException("趋势窗口须在 1 到 " + AppConstants.TRENDING_MAX_WINDOW_HOURS + " 小时之间: " + window);
+        }
+        return (int) Math.min((window.toMillis() + MILLIS_PER_HOUR - 1) / MILLIS_PER_HOUR,
+                AppConstants.TRENDING_MAX_WINDOW_HOURS);
+    }
+
+    // 计入某小时的桶：槽位为空或是已过期的旧桶时用 CAS 换成新桶，竞争失败的线程使用胜出者的桶
+    void record(long bookId, long hour) {
+        int slot = slot(hour);
+        Bucket bucket = ring.get(slot);
+        while (bucket == null || bucket.hour < hour) {
+            Bucket fresh = new Bucket(hour);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                bucket = fresh;
+            } else {
+                bucket = ring.get(slot);
+            }
+        }
+        if (bucket.hour == hour) {
+            bucket.counts.computeIfAbsent(bookId, k -> new LongAdder()).increment();
+        }
+        // bucket.hour > hour：槽位已被更新的小时占用，这条借阅已超出最大窗口，丢弃
+    }
+
+    // 汇总窗口内各小时桶的计数，槽位里不是对应小时的桶（尚未写入或已被覆盖）跳过
+    private Map<Long, Long> windowCounts(Duration window, long nowHour) {
+        int hours = windowHours(window);
+        Map<Long, Long> counts = new HashMap<>();
+        for (long hour = nowHour - hours + 1; hour <= nowHour; hour++) {
+            Bucket bucket = ring.get(slot(hour));
+            if (bucket != null && bucket.hour == hour) {
+                bucket.counts.forEach((bookId, adder) -> counts.merge(bookId, adder.sum(), Long::sum));
+            }
+        }
+        return counts;
+    }
+
+    private long currentHour() {
+        return clock.millis() / MILLIS_PER_HOUR;
+    }
+
+    private int slot(long hour) {
+        return (int) Math.floorMod(hour, (long) ring.length());
+    }
+
+    /**
+     * 一小时内的借阅计数
+     */
+    private static final class Bucket {
+
+        final long hour;
+        final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+        Bucket(long hour) {
+            this.hour = hour;
+        }
+    }
+}
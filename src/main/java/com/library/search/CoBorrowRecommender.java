@@ -0,0 +1,497 @@
+package com.library.search;
+
+import com.library.AppConstants;
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "借过这本书的读者还借了"：基于共同借阅的图书相似度推荐
+ *
+ * 把每个读者借过的图书看作一个集合，两本书被同一读者借过即共现一次。
+ * 全量构建时用 fork/join 按读者分段并行统计稀疏的图书-图书共现矩阵，
+ * 再并行按余弦相似度（共现人数 / sqrt(两书各自的借阅人数之积)）为每本书保留前 K 个相似图书。
+ * 新的借阅通过 {@link BookBorrowedEvent} 增量更新共现计数和受影响图书的相似列表，查询时不访问数据库。
+ * 只统计每位读者最先借的若干本书，避免极少数大量借阅的账号带来平方级的共现对。
+ */
+@Component
+public class CoBorrowRecommender {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoBorrowRecommender.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    /**
+     * fork/join 中单个子任务处理的读者数
+     */
+    private static final int USERS_PER_TASK = 256;
+
+    /**
+     * fork/join 中单个子任务处理的图书数
+     */
+    private static final int BOOKS_PER_TASK = 512;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final int neighbourCount;
+    private final int maxBasketSize;
+
+    // 以下由 lock 保护；全量构建在锁外完成后整体替换
+    private Map<Long, LongPostings> baskets = new HashMap<>();           // 读者ID -> 借过的图书
+    private LongLongHashMap borrowerCounts = new LongLongHashMap();      // 图书ID -> 借阅人数
+    private Map<Long, LongLongHashMap> coCounts = new HashMap<>();       // 图书ID -> (图书ID -> 共同借阅人数)
+    private Map<Long, Neighbours> neighbours = new HashMap<>();          // 图书ID -> 相似图书
+    private final LongLongHashMap hidden = new LongLongHashMap();        // 已删除的图书，不出现在推荐中
+    private final List<BookBorrowedEvent> pending = new ArrayList<>();   // 构建期间到达的借阅
+    private boolean building;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    public CoBorrowRecommender() {
+        this(AppConstants.CO_BORROW_NEIGHBOURS, AppConstants.CO_BORROW_MAX_BASKET);
+    }
+
+    CoBorrowRecommender(int neighbourCount, int maxBasketSize) {
+        this.neighbourCount = neighbourCount;
+        this.maxBasketSize = maxBasketSize;
+    }
+
+    /**
+     * 启动后及每天定时从借阅记录全量重建（修正增量更新中未重算的相似度漂移）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${library.recommend.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long[] deletedIds = bookRepository.findDeletedIds().stream().mapToLong(Long::longValue).toArray();
+        lock.writeLock().lock();
+        try {
+            hidden.clear();
+            for (long id : deletedIds) {
+                hidden.put(id, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // 按借阅记录ID做键集分页，保持借阅先后顺序
+        List<long[]> pairs = new ArrayList<>();
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = borrowRecordRepository.findUserBookPairsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                pairs.add(new long[]{(Long) row[1], (Long) row[2]});
+            }
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+
+        rebuild(pairs);
+    }
+
+    /**
+     * 按借阅先后顺序的（读者ID, 图书ID）对全量重建
+     */
+    void rebuild(List<long[]> userBookPairs) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                return;
+            }
+            building = true;
+            pending.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, LongPostings> newBaskets = new HashMap<>();
+        Map<Long, LongPostings> counted = new HashMap<>();
+        LongLongHashMap newBorrowerCounts = new LongLongHashMap();
+        Map<Long, Neighbours> newNeighbours = new HashMap<>();
+        Map<Long, LongLongHashMap> newCoCounts = new HashMap<>();
+        boolean built = false;
+        try {
+            for (long[] pair : userBookPairs) {
+                LongPostings basket = newBaskets.computeIfAbsent(pair[0], k -> new LongPostings());
+                if (basket.contains(pair[1])) {
+                    continue;
+                }
+                if (basket.size() < maxBasketSize) {
+                    counted.computeIfAbsent(pair[0], k -> new LongPostings()).add(pair[1]);
+                }
+                basket.add(pair[1]);
+                newBorrowerCounts.addTo(pair[1], 1);
+            }
+
+            long[][] userBooks = counted.values().stream().map(LongPostings::toArray).toArray(long[][]::new);
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                newCoCounts = pool.invoke(new CoOccurrenceTask(userBooks, 0, userBooks.length));
+                long[] bookIds = newCoCounts.keySet().stream().mapToLong(Long::longValue).toArray();
+                Neighbours[] lists = new Neighbours[bookIds.length];
+                pool.invoke(new PruneTask(bookIds, lists, newCoCounts, newBorrowerCounts, 0, bookIds.length));
+                for (int i = 0; i < bookIds.length; i++) {
+                    newNeighbours.put(bookIds[i], lists[i]);
+                }
+            } finally {
+                pool.shutdown();
+            }
+            built = true;
+        } finally {
+            // 构建失败时保留原有数据，构建期间的借阅照常补上
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    baskets = newBaskets;
+                    borrowerCounts = newBorrowerCounts;
+                    coCounts = newCoCounts;
+                    neighbours = newNeighbours;
+                }
+                // 构建期间的借阅可能已包含在读出的记录中，重复的（读者, 图书）对在 doBorrow 中会被忽略
+                for (BookBorrowedEvent event : pending) {
+                    doBorrow(event.getUserId(), event.getBookId());
+                }
+                pending.clear();
+                building = false;
+                ready = ready || built;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("共同借阅推荐构建完成: {} 位读者, {} 本图书, 耗时 {} ms",
+                newBaskets.size(), newNeighbours.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 借阅提交后增量更新共现计数
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookBorrowed(BookBorrowedEvent event) {
+        if (event.getUserId() == null || event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pending.add(event);
+            } else {
+                doBorrow(event.getUserId(), event.getBookId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除的图书不再出现在推荐结果中
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.isRemoved() || Boolean.TRUE.equals(book.getIsDeleted())) {
+                hidden.put(book.getId(), 1);
+            } else {
+                hidden.remove(book.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 推荐是否已构建完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 借过这本书的读者还借了哪些书，按相似度降序
+     */
+    public long[] similarBooks(Long bookId, int limit) {
+        if (bookId == null || limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            Neighbours list = neighbours.get(bookId);
+            if (list == null) {
+                return new long[0];
+            }
+            long[] result = new long[Math.min(limit, list.ids.length)];
+            int size = 0;
+            for (int i = 0; i < list.ids.length && size < result.length; i++) {
+                if (!hidden.containsKey(list.ids[i])) {
+                    result[size++] = list.ids[i];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 为读者推荐图书：汇总其借过的每本书的相似图书得分，排除已借过的，按得分降序
+     */
+    public long[] recommendForUser(Long userId, int limit) {
+        if (userId == null || limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            LongPostings basket = baskets.get(userId);
+            if (basket == null) {
+                return new long[0];
+            }
+            Map<Long, Double> scores = new HashMap<>();
+            for (long bookId : basket.toArray()) {
+                Neighbours list = neighbours.get(bookId);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.ids.length; i++) {
+                    long candidate = list.ids[i];
+                    if (!basket.contains(candidate) && !hidden.containsKey(candidate)) {
+                        scores.merge(candidate, list.scores[i], Double::sum);
+                    }
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted((a, b) -> {
+                        int byScore = Double.compare(b.getValue(), a.getValue());
+                        return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+                    })
+                    .limit(limit)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    // 调用方需持有写锁
+    private void doBorrow(long userId, long bookId) {
+        LongPostings basket = baskets.computeIfAbsent(userId, k -> new LongPostings());
+        if (basket.contains(bookId)) {
+            return;
+        }
+        // 与全量构建一致：只有读者最先借的 maxBasketSize 本书参与共现统计
+        long[] others = basket.size() < maxBasketSize ? basket.toArray() : new long[0];
+        basket.add(bookId);
+        borrowerCounts.addTo(bookId, 1);
+
+        LongLongHashMap row = coCounts.computeIfAbsent(bookId, k -> new LongLongHashMap(16));
+        for (long other : others) {
+            row.addTo(other, 1);
+            coCounts.computeIfAbsent(other, k -> new LongLongHashMap(16)).addTo(bookId, 1);
+        }
+        if (row.size() > 0) {
+            neighbours.put(bookId, topNeighbours(row, borrowerCounts.get(bookId, 0), borrowerCounts, neighbourCount));
+        }
+        // 其他图书只调整本书在其相似列表中的位置，借阅人数变化对其余条目的影响留待下次全量构建
+        for (long other : others) {
+            double score = score(row.get(other, 0), borrowerCounts.get(bookId, 0), borrowerCounts.get(other, 0));
+            neighbours.put(other, neighbours.getOrDefault(other, Neighbours.EMPTY).with(bookId, score, neighbourCount));
+        }
+    }
+
+    private static double score(long coCount, long borrowersA, long borrowersB) {
+        return borrowersA == 0 || borrowersB == 0 ? 0 : coCount / Math.sqrt((double) borrowersA * borrowersB);
+    }
+
+    // 从一本书的共现计数中选出相似度最高的 k 本
+    private static Neighbours topNeighbours(LongLongHashMap row, long borrowers, LongLongHashMap borrowerCounts, int k) {
+        long[] ids = new long[row.size()];
+        double[] scores = new double[row.size()];
+        int[] size = {0};
+        row.forEach((other, coCount) -> {
+            ids[size[0]] = other;
+            scores[size[0]] = score(coCount, borrowers, borrowerCounts.get(other, 0));
+            size[0]++;
+        });
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Long.compare(ids[a], ids[b]);
+        });
+        int n = Math.min(k, order.length);
+        long[] topIds = new long[n];
+        double[] topScores = new double[n];
+        for (int i = 0; i < n; i++) {
+            topIds[i] = ids[order[i]];
+            topScores[i] = scores[order[i]];
+        }
+        return new Neighbours(topIds, topScores);
+    }
+
+    /**
+     * 一本书的相似图书列表（按相似度降序，不可变）
+     */
+    private static final class Neighbours {
+
+        static final Neighbours EMPTY = new Neighbours(new long[0], new double[0]);
+
+        final long[] ids;
+        final double[] scores;
+
+        Neighbours(long[] ids, double[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        /**
+         * 更新一本书的相似度后返回新列表，超过 k 个时去掉末尾
+         */
+        Neighbours with(long id, double score, int k) {
+            long[] newIds = new long[ids.length + 1];
+            double[] newScores = new double[ids.length + 1];
+            int size = 0;
+            boolean inserted = false;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    continue;
+                }
+                if (!inserted && (score > scores[i] || (score == scores[i] && id < ids[i]))) {
+                    newIds[size] = id;
+                    newScores[size++] = score;
+                    inserted = true;
+                }
+                newIds[size] = ids[i];
+                newScores[size++] = scores[i];
+            }
+            if (!inserted) {
+                newIds[size] = id;
+                newScores[size++] = score;
+            }
+            int n = Math.min(k, size);
+            return new Neighbours(Arrays.copyOf(newIds, n), Arrays.copyOf(newScores, n));
+        }
+    }
+
+    /**
+     * 按读者分段并行统计共现：叶子任务各自累加到局部矩阵，合并时把小矩阵并入大矩阵
+     */
+    private static final class CoOccurrenceTask extends RecursiveTask<Map<Long, LongLongHashMap>> {
+
+        private final long[][] userBooks;
+        private final int from;
+        private final int to;
+
+        CoOccurrenceTask(long[][] userBooks, int from, int to) {
+            this.userBooks = userBooks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, LongLongHashMap> compute() {
+            if (to - from <= USERS_PER_TASK) {
+                Map<Long, LongLongHashMap> matrix = new HashMap<>();
+                for (int u = from; u < to; u++) {
+                    long[] books = userBooks[u];
+                    for (int i = 0; i < books.length; i++) {
+                        LongLongHashMap row = matrix.computeIfAbsent(books[i], k -> new LongLongHashMap(16));
+                        for (int j = 0; j < books.length; j++) {
+                            if (i != j) {
+                                row.addTo(books[j], 1);
+                            }
+                        }
+                    }
+                }
+                return matrix;
+            }
+            int mid = (from + to) >>> 1;
+            CoOccurrenceTask left = new CoOccurrenceTask(userBooks, from, mid);
+            left.fork();
+            Map<Long, LongLongHashMap> right = new CoOccurrenceTask(userBooks, mid, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private static Map<Long, LongLongHashMap> merge(Map<Long, LongLongHashMap> a, Map<Long, LongLongHashMap> b) {
+            Map<Long, LongLongHashMap> into = a.size() >= b.size() ? a : b;
+            Map<Long, LongLongHashMap> from = into == a ? b : a;
+            from.forEach((bookId, row) -> {
+                LongLongHashMap target = into.get(bookId);
+                if (target == null) {
+                    into.put(bookId, row);
+                } else {
+                    row.forEach(target::addTo);
+                }
+            });
+            return into;
+        }
+    }
+
+    /**
+     * 按图书分段并行为每本书选出前 K 个相似图书
+     */
+    private final class PruneTask extends RecursiveAction {
+
+        private final long[] bookIds;
+        private final Neighbours[] lists;
+        private final Map<Long, LongLongHashMap> matrix;
+        private final LongLongHashMap counts;
+        private final int from;
+        private final int to;
+
+        PruneTask(long[] bookIds, Neighbours[] lists, Map<Long, LongLongHashMap> matrix,
+                  LongLongHashMap counts, int from, int to) {
+            this.bookIds = bookIds;
+            this.lists = lists;
+            this.matrix = matrix;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BOOKS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    lists[i] = topNeighbours(matrix.get(bookIds[i]), counts.get(bookIds[i], 0), counts, neighbourCount);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PruneTask(bookIds, lists, matrix, counts, from, mid),
+                    new PruneTask(bookIds, lists, matrix, counts, mid, to));
+        }
+    }
+}
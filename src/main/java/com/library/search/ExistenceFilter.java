@@ -0,0 +1,262 @@
+package com.library.search;
+
+import com.library.repository.BookRepository;
+import com.library.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * ISBN、用户名、邮箱的存在性过滤器
+ *
+ * 每类键一个布隆过滤器，放在 existsByXxx 查询前面：过滤器判定不存在时直接返回，
+ * 只有"可能存在"才回源查询数据库（用户名检查接口在注册表单每次输入时都会调用）。
+ *
+ * 启动时从数据库全量构建，新增时同步加入；元素数超过容量后由定时任务按两倍容量重建。
+ * 键统一做小写、去重音、去尾部空格处理，保证 MySQL 不区分大小写/重音的排序规则下
+ * 认为相等的值在过滤器里也命中（只会多误判，不会漏判）。
+ */
+@Component
+public class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    private static final long MIN_CAPACITY = 10_000;
+    private static final double TARGET_FPP = 0.01;
+
+    /**
+     * 过滤的键类型
+     */
+    public enum Key {
+        ISBN, USERNAME, EMAIL
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Key, Slot> slots = new EnumMap<>(Key.class);
+
+    public ExistenceFilter() {
+        for (Key key : Key.values()) {
+            slots.put(key, new Slot());
+        }
+    }
+
+    /**
+     * 启动后全量构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        for (Key key : Key.values()) {
+            rebuild(key);
+        }
+    }
+
+    /**
+     * 定时检查：元素数超过容量（误判率上升）的过滤器按两倍容量重建
+     */
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void rebuildSaturated() {
+        for (Key key : Key.values()) {
+            BloomFilter filter = slots.get(key).filter;
+            if (filter != null && filter.isSaturated()) {
+                rebuild(key);
+            }
+        }
+    }
+
+    /**
+     * 带过滤的存在性检查：过滤器判定不存在时不查询数据库
+     *
+     * @param source 回源查询，如 userRepository::existsByUsername
+     */
+    public boolean exists(Key key, String value, Predicate<String> source) {
+        Slot slot = slots.get(key);
+        slot.requests.incrementAndGet();
+        if (!mightExist(key, value)) {
+            slot.negatives.incrementAndGet();
+            return false;
+        }
+        boolean exists = source.test(value);
+        if (!exists && slot.isUsable()) {
+            slot.falsePositives.incrementAndGet();
+        }
+        return exists;
+    }
+
+    /**
+     * 值是否可能存在（过滤器尚未构建或正在重建时一律返回 true）
+     */
+    public boolean mightExist(Key key, String value) {
+        if (!StringUtils.hasText(value)) {
+            return true;
+        }
+        Slot slot = slots.get(key);
+        return !slot.isUsable() || slot.filter.mightContain(normalize(value));
+    }
+
+    /**
+     * 新增记录后加入过滤器；在事务中调用时提交后再补加一次，避免与重建交错时丢失
+     */
+    public void add(Key key, String value) {
+        if (!StringUtils.hasText(value)) {
+            return;
+        }
+        String normalized = normalize(value);
+        slots.get(key).put(normalized);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    slots.get(key).put(normalized);
+                }
+            });
+        }
+    }
+
+    /**
+     * 各过滤器的误判率、内存占用和命中统计
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Key key : Key.values()) {
+            Slot slot = slots.get(key);
+            BloomFilter filter = slot.filter;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ready", slot.isUsable());
+            long negatives = slot.negatives.get();
+            long falsePositives = slot.falsePositives.get();
+            item.put("requests", slot.requests.get());
+            item.put("definiteNegatives", negatives);
+            item.put("falsePositives", falsePositives);
+            item.put("observedFpp", negatives + falsePositives == 0
+                    ? 0.0 : (double) falsePositives / (negatives + falsePositives));
+            if (filter != null) {
+                item.put("expectedFpp", filter.expectedFpp());
+                item.put("insertions", filter.insertions());
+                item.put("saturated", filter.isSaturated());
+                item.put("bits", filter.bitSize());
+                item.put("hashes", filter.hashes());
+                item.put("memoryBytes", filter.memoryBytes());
+            }
+            metrics.put(key.name().toLowerCase(), item);
+        }
+        return metrics;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void rebuild(Key key) {
+        long start = System.currentTimeMillis();
+        Slot slot = slots.get(key);
+        slot.beginRebuild();
+        try {
+            List<String> values = new ArrayList<>();
+            int pageNumber = 0;
+            Slice<String> page;
+            do {
+                page = source(key).apply(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                page.forEach(value -> {
+                    if (StringUtils.hasText(value)) {
+                        values.add(normalize(value));
+                    }
+                });
+            } while (page.hasNext());
+
+            BloomFilter filter = new BloomFilter(Math.max(MIN_CAPACITY, values.size() * 2L), TARGET_FPP);
+            values.forEach(filter::put);
+            slot.finishRebuild(filter);
+            logger.info("存在性过滤器 {} 构建完成: {} 个键, {} KB, 耗时 {} ms", key, values.size(),
+                    filter.memoryBytes() / 1024, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            slot.abortRebuild();
+            logger.warn("存在性过滤器 {} 构建失败，回退为直接查询数据库", key, e);
+        }
+    }
+
+    private Function<Pageable, Slice<String>> source(Key key) {
+        switch (key) {
+            case ISBN:
+                return bookRepository::findIsbns;
+            case USERNAME:
+                return userRepository::findUsernames;
+            default:
+                return userRepository::findEmails;
+        }
+    }
+
+    // 小写、去掉重音符号和尾部空格
+    static String normalize(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        String stripped = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.replaceAll("\\s+$", "");
+    }
+
+    /**
+     * 单类键的过滤器及统计；重建期间新增的键先记下来，换上新过滤器时补加
+     */
+    private static final class Slot {
+        private volatile BloomFilter filter;
+        private volatile boolean rebuilding;
+        private final List<String> addedDuringRebuild = new ArrayList<>();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong negatives = new AtomicLong();
+        private final AtomicLong falsePositives = new AtomicLong();
+
+        private boolean isUsable() {
+            return filter != null && !rebuilding;
+        }
+
+        private synchronized void put(String normalized) {
+            if (filter != null) {
+                filter.put(normalized);
+            }
+            if (rebuilding) {
+                addedDuringRebuild.add(normalized);
+            }
+        }
+
+        private synchronized void beginRebuild() {
+            rebuilding = true;
+            addedDuringRebuild.clear();
+        }
+
+        private synchronized void finishRebuild(BloomFilter rebuilt) {
+            addedDuringRebuild.forEach(rebuilt::put);
+            addedDuringRebuild.clear();
+            filter = rebuilt;
+            rebuilding = false;
+        }
+
+        private synchronized void abortRebuild() {
+            addedDuringRebuild.clear();
+            rebuilding = false;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 容错词典（对称删除算法，SymSpell）
+ *
+ * 为词表中每个词预先生成删除至多 {@link #MAX_DISTANCE} 个字符后的所有变体，
+ * 查询时只需生成查询词的删除变体去表里查，命中的候选词再算一次真实编辑距离。
+ * 只对前 {@link #PREFIX_LENGTH} 个字符生成变体，变体数量与词长无关。
+ *
+ * 词按引用计数维护，计数归零的词查询时跳过；失效词过多时由调用方重建。
+ * 非线程安全，由 {@link BookSearchIndex} 负责加锁。
+ */
+final class FuzzyDictionary {
+
+    static final int MAX_DISTANCE = 2;
+    private static final int PREFIX_LENGTH = 7;
+
+    /**
+     * 一个匹配结果
+     */
+    static final class Match {
+        final String term;
+        final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+
+    private final List<String> terms = new ArrayList<>();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final LongIntMultimap deletes = new LongIntMultimap();
+    private int[] refCounts = new int[16];
+    private int liveTerms;
+
+    /**
+     * 词出现次数 +1
+     */
+    void add(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = terms.size();
+            terms.add(term);
+            termIds.put(term, id);
+            if (id == refCounts.length) {
+                refCounts = Arrays.copyOf(refCounts, id * 2);
+            }
+            for (String variant : deleteVariants(prefix(term.codePoints().toArray()), MAX_DISTANCE)) {
+                deletes.put(hash(variant), id);
+            }
+        }
+        if (refCounts[id]++ == 0) {
+            liveTerms++;
+        }
+    }
+
+    /**
+     * 词出现次数 -1
+     */
+    void remove(String term) {
+        Integer id = termIds.get(term);
+        if (id != null && refCounts[id] > 0 && --refCounts[id] == 0) {
+            liveTerms--;
+        }
+    }
+
+    /**
+     * 失效词是否已多于有效词（需要重建以回收内存）
+     */
+    boolean needsCompaction() {
+        return terms.size() > 1024 && terms.size() > liveTerms * 2;
+    }
+
+    /**
+     * 查找与 word 编辑距离不超过 maxDistance 的词，按距离升序，至多 limit 个
+     */
+    List<Match> lookup(String word, int maxDistance, int limit) {
+        int distanceLimit = Math.min(maxDistance, MAX_DISTANCE);
+        int[] query = word.codePoints().toArray();
+
+        Set<Integer> seen = new HashSet<>();
+        List<Match> matches = new ArrayList<>();
+        for (String variant : deleteVariants(prefix(query), distanceLimit)) {
+            deletes.forEach(hash(variant), id -> {
+                if (refCounts[id] == 0 || !seen.add(id)) {
+                    return;
+                }
+                int[] candidate = terms.get(id).codePoints().toArray();
+                if (Math.abs(candidate.length - query.length) > distanceLimit) {
+                    return;
+                }
+                int distance = distance(query, candidate, distanceLimit);
+                if (distance <= distanceLimit) {
+                    matches.add(new Match(terms.get(id), distance));
+                }
+            });
+        }
+        matches.sort(Comparator.comparingInt((Match m) -> m.distance).thenComparing(m -> m.term));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    // 删除至多 distance 个字符得到的所有变体（含原串）
+    private static Set<String> deleteVariants(int[] codePoints, int distance) {
+        Set<String> variants = new HashSet<>();
+        variants.add(new String(codePoints, 0, codePoints.length));
+        collectDeletes(codePoints, distance, variants);
+        return variants;
+    }
+
+    private static void collectDeletes(int[] codePoints, int distance, Set<String> variants) {
+        if (distance == 0 || codePoints.length <= 1) {
+            return;
+        }
+        for (int i = 0; i < codePoints.length; i++) {
+            int[] shorter = new int[codePoints.length - 1];
+            System.arraycopy(codePoints, 0, shorter, 0, i);
+            System.arraycopy(codePoints, i + 1, shorter, i, shorter.length - i);
+            if (variants.add(new String(shorter, 0, shorter.length))) {
+                collectDeletes(shorter, distance - 1, variants);
+            }
+        }
+    }
+
+    private static int[] prefix(int[] codePoints) {
+        return codePoints.length <= PREFIX_LENGTH ? codePoints : Arrays.copyOf(codePoints, PREFIX_LENGTH);
+    }
+
+    /**
+     * 限定上界的编辑距离（含相邻交换），超过上界时提前返回 limit + 1
+     */
+    static int distance(int[] a, int[] b, int limit) {
+        int[] previous2 = new int[b.length + 1];
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length; j++) {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a[i - 1] == b[j - 2] && a[i - 2] == b[j - 1]) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length];
+    }
+
+    // 变体的 64 位哈希（FNV-1a），冲突只会多出候选，最终以编辑距离校验
+    private static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
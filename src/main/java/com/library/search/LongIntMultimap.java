@@ -0,0 +1,102 @@
+package com.library.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * long 键到多个 int 值的哈希表（开放寻址 + 数组链表）
+ *
+ * 删除词典有上千万条"删除变体 -> 词ID"的映射，用原始类型数组存放，
+ * 避免 HashMap 中每条记录的装箱和节点对象开销。只支持添加，不支持删除。
+ */
+final class LongIntMultimap {
+
+    private static final int NONE = -1;
+
+    private long[] keys;
+    private int[] heads;       // 槽位 -> 链表头（值数组下标），NONE 表示空槽
+    private int[] values;
+    private int[] next;        // 值数组下标 -> 同键的下一个值
+    private int slotsUsed;
+    private int size;
+
+    LongIntMultimap() {
+        this(1024);
+    }
+
+    LongIntMultimap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedKeys * 2 - 1)) << 1;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, NONE);
+        values = new int[Math.max(16, expectedKeys)];
+        next = new int[values.length];
+    }
+
+    /**
+     * 为键追加一个值
+     */
+    void put(long key, int value) {
+        if (slotsUsed * 4 >= keys.length * 3) {
+            resize();
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        int slot = findSlot(keys, heads, key);
+        if (heads[slot] == NONE) {
+            keys[slot] = key;
+            slotsUsed++;
+        }
+        values[size] = value;
+        next[size] = heads[slot];
+        heads[slot] = size++;
+    }
+
+    /**
+     * 遍历键对应的所有值
+     */
+    void forEach(long key, IntConsumer action) {
+        int slot = findSlot(keys, heads, key);
+        for (int i = heads[slot]; i != NONE; i = next[i]) {
+            action.accept(values[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] newKeys = new long[keys.length * 2];
+        int[] newHeads = new int[heads.length * 2];
+        Arrays.fill(newHeads, NONE);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (heads[slot] != NONE) {
+                int target = findSlot(newKeys, newHeads, keys[slot]);
+                newKeys[target] = keys[slot];
+                newHeads[target] = heads[slot];
+            }
+        }
+        keys = newKeys;
+        heads = newHeads;
+    }
+
+    // 线性探测：返回键所在的槽位，或应插入的空槽位
+    private static int findSlot(long[] keys, int[] heads, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (heads[slot] != NONE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
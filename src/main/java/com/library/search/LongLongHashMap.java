@@ -0,0 +1,164 @@
+package com.library.search;
+
+import java.util.Arrays;
+
+/**
+ * long 键到 long 值的哈希表（开放寻址 + 线性探测）
+ *
+ * 图书借阅计数、图书所属分类等按图书ID索引的数据用原始类型数组存放，
+ * 避免 HashMap&lt;Long, Long&gt; 中每条记录的装箱和节点对象开销。
+ * 删除时把后续冲突链上的元素前移（不留墓碑），查找长度不会因删除而变长。
+ */
+final class LongLongHashMap {
+
+    /**
+     * 空槽标记，不能作为键
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    LongLongHashMap() {
+        this(1024);
+    }
+
+    LongLongHashMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedKeys * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * 取键对应的值，不存在时返回 defaultValue
+     */
+    long get(long key, long defaultValue) {
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY ? defaultValue : values[slot];
+    }
+
+    boolean containsKey(long key) {
+        return keys[findSlot(keys, key)] != EMPTY;
+    }
+
+    /**
+     * 设置键的值
+     */
+    void put(long key, long value) {
+        int slot = insertSlot(key);
+        values[slot] = value;
+    }
+
+    /**
+     * 键的值加上 delta（键不存在时视为0），返回相加后的值
+     */
+    long addTo(long key, long delta) {
+        int slot = insertSlot(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /**
+     * 删除键，返回是否存在
+     */
+    boolean remove(long key) {
+        int mask = keys.length - 1;
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            return false;
+        }
+        // 后移删除：把探测链上能填补空位的元素依次前移
+        int hole = slot;
+        for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = (int) mix(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有键值对（顺序不确定，遍历期间不能修改）
+     */
+    void forEach(EntryConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * 键值对遍历回调
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private int insertSlot(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("不支持的键: " + key);
+        }
+        if ((size + 1) * 4 >= keys.length * 3) {
+            resize();
+        }
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            values[slot] = 0;
+            size++;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int target = findSlot(keys, oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    // 线性探测：返回键所在的槽位，或应插入的空槽位
+    private static int findSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
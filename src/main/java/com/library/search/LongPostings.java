@@ -0,0 +1,120 @@
+package com.library.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 倒排表：按升序存放的图书ID数组
+ *
+ * 读多写少，插入/删除用二分查找后整体移动，查询时直接返回底层有序数组的副本做归并。
+ */
+final class LongPostings {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids = new long[4];
+    private int size;
+
+    /**
+     * 加入一个ID（已存在则忽略）
+     */
+    void add(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    /**
+     * 移除一个ID
+     */
+    void remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 返回有序ID数组的副本
+     */
+    long[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * 两个有序数组求交集
+     */
+    static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * 多个有序数组求并集
+     */
+    static long[] union(List<long[]> arrays) {
+        if (arrays.isEmpty()) {
+            return EMPTY;
+        }
+        if (arrays.size() == 1) {
+            return arrays.get(0);
+        }
+        int total = 0;
+        for (long[] array : arrays) {
+            total += array.length;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] array : arrays) {
+            System.arraycopy(array, 0, merged, offset, array.length);
+            offset += array.length;
+        }
+        Arrays.sort(merged);
+
+        int n = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (n == 0 || merged[n - 1] != merged[i]) {
+                merged[n++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, n);
+    }
+}
@@ -0,0 +1,77 @@
+package com.library.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 64位整数的压缩位图
+ *
+ * 按高32位分桶，每个桶是一个 {@link RoaringBitmap} 存放低32位。图书ID按号段分配，
+ * 同一时期的ID集中在一两个桶内，桶的个数很少；求交集大小时只在两边都有的桶上计数。
+ *
+ * 非线程安全，由调用方加锁。
+ */
+final class LongRoaringBitmap {
+
+    private final Map<Integer, RoaringBitmap> buckets = new HashMap<>();
+    private long cardinality;
+
+    /**
+     * 添加元素，返回集合是否发生变化
+     */
+    boolean add(long value) {
+        boolean changed = buckets.computeIfAbsent(high(value), key -> new RoaringBitmap()).add((int) value);
+        if (changed) {
+            cardinality++;
+        }
+        return changed;
+    }
+
+    /**
+     * 删除元素，返回集合是否发生变化
+     */
+    boolean remove(long value) {
+        RoaringBitmap bucket = buckets.get(high(value));
+        if (bucket == null || !bucket.remove((int) value)) {
+            return false;
+        }
+        if (bucket.cardinality() == 0) {
+            buckets.remove(high(value));
+        }
+        cardinality--;
+        return true;
+    }
+
+    boolean contains(long value) {
+        RoaringBitmap bucket = buckets.get(high(value));
+        return bucket != null && bucket.contains((int) value);
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * 与另一个位图的交集大小（不生成交集）
+     */
+    long andCardinality(LongRoaringBitmap other) {
+        LongRoaringBitmap smaller = buckets.size() <= other.buckets.size() ? this : other;
+        LongRoaringBitmap larger = smaller == this ? other : this;
+        long count = 0;
+        for (Map.Entry<Integer, RoaringBitmap> entry : smaller.buckets.entrySet()) {
+            RoaringBitmap bucket = larger.buckets.get(entry.getKey());
+            if (bucket != null) {
+                count += entry.getValue().andCardinality(bucket);
+            }
+        }
+        return count;
+    }
+
+    private static int high(long value) {
+        return (int) (value >>> 32);
+    }
+}
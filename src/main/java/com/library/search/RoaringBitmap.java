@@ -0,0 +1,337 @@
+package com.library.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩位图（Roaring 结构）
+ *
+ * 32位整数按高16位分桶，每个桶是一个容器：元素不超过4096个时用有序 char 数组，
+ * 超过后转为 1024 个 long 的定长位图。稀疏的ID段只占很少的内存，稠密的段按位存储；
+ * 总数随增删维护，count 为 O(1)，按排名取一页元素只需跳过前面的整桶。
+ *
+ * 非线程安全，由调用方加锁。
+ */
+final class RoaringBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+    private long cardinality;
+
+    /**
+     * 添加元素，返回集合是否发生变化
+     */
+    boolean add(int value) {
+        char high = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) value);
+        return changed(before, containers[index].cardinality());
+    }
+
+    /**
+     * 删除元素，返回集合是否发生变化
+     */
+    boolean remove(int value) {
+        char high = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, high);
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.remove((char) value);
+        boolean changed = changed(before, containers[index].cardinality());
+        if (containers[index].cardinality() == 0) {
+            removeContainer(index);
+        }
+        return changed;
+    }
+
+    boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 与另一个位图的交集大小（不生成交集），只在两边都有的桶上逐容器计数
+     */
+    long andCardinality(RoaringBitmap other) {
+        long count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += containers[i++].andCardinality(other.containers[j++]);
+            }
+        }
+        return count;
+    }
+
+    void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * 按升序（或降序）跳过 offset 个元素后取至多 limit 个
+     */
+    int[] select(long offset, int limit, boolean descending) {
+        if (offset >= cardinality || limit <= 0) {
+            return new int[0];
+        }
+        int[] result = new int[(int) Math.min(limit, cardinality - offset)];
+        int filled = 0;
+        long skip = offset;
+        for (int i = 0; i < size && filled < result.length; i++) {
+            int index = descending ? size - 1 - i : i;
+            Container container = containers[index];
+            if (skip >= container.cardinality()) {
+                skip -= container.cardinality();
+                continue;
+            }
+            int high = keys[index] << 16;
+            filled = container.collect((int) skip, descending, high, result, filled);
+            skip = 0;
+        }
+        return result;
+    }
+
+    private boolean changed(int before, int after) {
+        cardinality += after - before;
+        return before != after;
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * 一个桶内的低16位集合
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract int andCardinality(Container other);
+
+        /**
+         * 从第 rank 个元素起按顺序写入 out，直到写满，返回写入后的位置
+         */
+        abstract int collect(int rank, boolean descending, int high, int[] out, int pos);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality >= ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.andCardinality(this);
+            }
+            // 两个有序数组归并计数
+            ArrayContainer array = (ArrayContainer) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        int collect(int rank, boolean descending, int high, int[] out, int pos) {
+            for (int i = rank; i < cardinality && pos < out.length; i++) {
+                out[pos++] = high | values[descending ? cardinality - 1 - i : i];
+            }
+            return pos;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality--;
+                if (cardinality <= ARRAY_MAX) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int w = 0; w < words.length; w++) {
+                    count += Long.bitCount(words[w] & otherWords[w]);
+                }
+                return count;
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (contains(array.values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        int collect(int rank, boolean descending, int high, int[] out, int pos) {
+            int skip = rank;
+            for (int w = 0; w < words.length && pos < out.length; w++) {
+                int index = descending ? words.length - 1 - w : w;
+                long word = words[index];
+                int bits = Long.bitCount(word);
+                if (skip >= bits) {
+                    skip -= bits;
+                    continue;
+                }
+                while (word != 0 && pos < out.length) {
+                    int bit = descending ? 63 - Long.numberOfLeadingZeros(word) : Long.numberOfTrailingZeros(word);
+                    word &= ~(1L << bit);
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        out[pos++] = high | (index << 6 | bit);
+                    }
+                }
+            }
+            return pos;
+        }
+
+        private ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    array.add((char) (w << 6 | bit));
+                }
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 输入提示词典
+ *
+ * 所有提示词按规范化后的键排序存放在数组中，前缀对应一段连续区间（二分查找定位）；
+ * 再用一棵按权重取最大值的线段树，在区间内按权重依次取出前N个，
+ * 查询复杂度 O(log n + N log N)，与前缀命中的条目数量无关。
+ *
+ * 非线程安全，由 {@link BookSuggester} 负责加锁。
+ */
+final class SuggestionDictionary {
+
+    static final SuggestionDictionary EMPTY = new SuggestionDictionary(new ArrayList<>());
+
+    /**
+     * 提示类型
+     */
+    enum Type {
+        TITLE, AUTHOR, ISBN
+    }
+
+    /**
+     * 一条提示词
+     */
+    static final class Entry {
+        final String key;
+        final String text;
+        final Type type;
+        final Long bookId;
+        long weight;
+        int position = -1;
+        boolean removed;
+
+        Entry(String key, String text, Type type, Long bookId, long weight) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+            this.bookId = bookId;
+            this.weight = weight;
+        }
+    }
+
+    private final String[] keys;
+    private final Entry[] entries;
+    private final int[] tree;   // 线段树，节点保存区间内权重最大的条目下标
+    private final int leaves;
+
+    SuggestionDictionary(List<Entry> source) {
+        List<Entry> sorted = new ArrayList<>(source);
+        sorted.sort(Comparator.comparing((Entry e) -> e.key));
+
+        int n = sorted.size();
+        this.keys = new String[n];
+        this.entries = new Entry[n];
+        for (int i = 0; i < n; i++) {
+            Entry entry = sorted.get(i);
+            entry.position = i;
+            keys[i] = entry.key;
+            entries[i] = entry;
+        }
+
+        this.leaves = Math.max(1, n);
+        this.tree = new int[2 * leaves];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < n; i++) {
+            tree[leaves + i] = i;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * 条目权重变化或被删除后，刷新其在线段树上的路径
+     */
+    void refresh(Entry entry) {
+        int position = entry.position;
+        if (position < 0 || position >= entries.length || entries[position] != entry) {
+            return;
+        }
+        for (int node = (leaves + position) / 2; node > 0; node /= 2) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * 取前缀下权重最高的前 limit 个条目（跳过已删除的条目）
+     */
+    List<Entry> top(String prefix, int limit) {
+        List<Entry> result = new ArrayList<>();
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE) - 1;
+        if (from > to || limit <= 0) {
+            return result;
+        }
+
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> compare(a[2], b[2]));
+        offer(queue, from, to);
+        while (!queue.isEmpty() && result.size() < limit) {
+            int[] range = queue.poll();
+            int best = range[2];
+            if (weight(best) < 0) {
+                break;
+            }
+            result.add(entries[best]);
+            offer(queue, range[0], best - 1);
+            offer(queue, best + 1, range[1]);
+        }
+        return result;
+    }
+
+    private void offer(PriorityQueue<int[]> queue, int from, int to) {
+        if (from <= to) {
+            queue.offer(new int[]{from, to, argMax(from, to)});
+        }
+    }
+
+    // 区间 [from, to] 内权重最大的条目下标
+    private int argMax(int from, int to) {
+        int best = -1;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l /= 2, r /= 2) {
+            if ((l & 1) == 1) {
+                best = better(best, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = better(best, tree[--r]);
+            }
+        }
+        return best;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long weight(int index) {
+        if (index < 0) {
+            return Long.MIN_VALUE;
+        }
+        Entry entry = entries[index];
+        return entry.removed ? -1 : entry.weight;
+    }
+
+    // 权重高者优先，权重相同按键的字典序
+    private int compare(int a, int b) {
+        int byWeight = Long.compare(weight(b), weight(a));
+        return byWeight != 0 ? byWeight : Integer.compare(a, b);
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return compare(a, b) <= 0 ? a : b;
+    }
+}
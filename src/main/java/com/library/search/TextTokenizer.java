@@ -0,0 +1,120 @@
+package com.library.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 检索分词器
+ *
+ * 中日韩文字按二元组（bigram）切分，建索引时额外保留单字，
+ * 以便单字查询也能命中；拉丁字母和数字按连续片段切成小写单词。
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 建索引用的分词：单字 + 二元组 + 单词（去重）
+     */
+    public static Set<String> indexTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String run : runs(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] codePoints = run.codePoints().toArray();
+                for (int i = 0; i < codePoints.length; i++) {
+                    tokens.add(new String(codePoints, i, 1));
+                    if (i + 1 < codePoints.length) {
+                        tokens.add(new String(codePoints, i, 2));
+                    }
+                }
+            } else {
+                tokens.add(run);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询用的分词：多字片段只取二元组，单字片段取单字
+     */
+    public static List<String> queryTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String run : runs(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] codePoints = run.codePoints().toArray();
+                if (codePoints.length == 1) {
+                    tokens.add(run);
+                }
+                for (int i = 0; i + 1 < codePoints.length; i++) {
+                    tokens.add(new String(codePoints, i, 2));
+                }
+            } else {
+                tokens.add(run);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 模糊匹配用的词：连续的CJK片段或字母数字片段（去重）
+     */
+    public static Set<String> words(String text) {
+        return new LinkedHashSet<>(runs(text));
+    }
+
+    /**
+     * 统一的文本规范化（与 LOWER() 语义一致）
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 判断是否为中日韩文字
+     */
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // 按字符类型把文本切成连续片段：CJK片段、字母数字片段，其余字符作为分隔符
+    private static List<String> runs(String text) {
+        List<String> runs = new ArrayList<>();
+        String normalized = normalize(text);
+        StringBuilder current = new StringBuilder();
+        Boolean currentCjk = null;
+
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            boolean cjk = isCjk(codePoint);
+            if (!cjk && !Character.isLetterOrDigit(codePoint)) {
+                flush(runs, current);
+                currentCjk = null;
+                continue;
+            }
+            if (currentCjk != null && currentCjk != cjk) {
+                flush(runs, current);
+            }
+            current.appendCodePoint(codePoint);
+            currentCjk = cjk;
+        }
+        flush(runs, current);
+        return runs;
+    }
+
+    private static void flush(List<String> runs, StringBuilder current) {
+        if (current.length() > 0) {
+            runs.add(current.toString());
+            current.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.library.search;
+
+import java.util.Arrays;
+
+/**
+ * 容量固定的前 K 名排行（小顶堆）
+ *
+ * 堆顶是当前榜单中排名最低的元素：计数更大的排在前面，计数相同时ID小的排在前面。
+ * 计数增长时只需在堆内下沉或与堆顶比较后替换，单次更新 O(log K)；
+ * 记录元素在堆中的下标，已在榜单中的元素可以原地调整。
+ */
+final class TopKHeap {
+
+    private final int capacity;
+    private final long[] ids;
+    private final long[] counts;
+    private final LongLongHashMap positions;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.counts = new long[capacity];
+        this.positions = new LongLongHashMap(capacity);
+    }
+
+    /**
+     * 提交元素的最新计数：已在榜单中则调整位置，否则在榜单未满或优于堆顶时加入
+     */
+    void offer(long id, long count) {
+        long position = positions.get(id, -1);
+        if (position >= 0) {
+            int i = (int) position;
+            counts[i] = count;
+            siftDown(siftUp(i));
+            return;
+        }
+        if (size < capacity) {
+            ids[size] = id;
+            counts[size] = count;
+            positions.put(id, size);
+            siftUp(size++);
+        } else if (capacity > 0 && better(count, id, counts[0], ids[0])) {
+            positions.remove(ids[0]);
+            ids[0] = id;
+            counts[0] = count;
+            positions.put(id, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 从榜单中移除元素，返回是否存在（空出的名次由调用方重新补位）
+     */
+    boolean remove(long id) {
+        long position = positions.get(id, -1);
+        if (position < 0) {
+            return false;
+        }
+        int i = (int) position;
+        positions.remove(id);
+        size--;
+        if (i < size) {
+            move(size, i);
+            siftDown(siftUp(i));
+        }
+        return true;
+    }
+
+    boolean contains(long id) {
+        return positions.containsKey(id);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * 按排名从高到低返回前 limit 个元素的ID
+     */
+    long[] top(int limit) {
+        int n = Math.min(limit, size);
+        if (n <= 0) {
+            return new long[0];
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> better(counts[a], ids[a], counts[b], ids[b]) ? -1
+                : better(counts[b], ids[b], counts[a], ids[a]) ? 1 : 0);
+        long[] result = new long[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    // ==================== 堆操作 ====================
+
+    private static boolean better(long countA, long idA, long countB, long idB) {
+        return countA != countB ? countA > countB : idA < idB;
+    }
+
+    private int siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(counts[parent], ids[parent], counts[i], ids[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+        return i;
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && better(counts[worst], ids[worst], counts[left], ids[left])) {
+                worst = left;
+            }
+            if (right < size && better(counts[worst], ids[worst], counts[right], ids[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        long count = counts[a];
+        ids[a] = ids[b];
+        counts[a] = counts[b];
+        ids[b] = id;
+        counts[b] = count;
+        positions.put(ids[a], a);
+        positions.put(ids[b], b);
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        counts[to] = counts[from];
+        positions.put(ids[to], to);
+    }
+}
@@ -0,0 +1,42 @@
+package com.library.service;
+
+import com.library.entity.ImportJob;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图书批量导入服务接口
+ *
+ * 导入文件先落盘并创建任务，再在后台按批处理：每批一次查询去重、一次 JDBC 批量插入，
+ * 断点随同一事务提交。任务失败或进程重启后可以从断点继续。
+ */
+public interface BookImportService {
+    
+    /**
+     * 保存导入文件并创建任务（不开始执行）
+     */
+    ImportJob createJob(String fileName, ImportJob.Format format, InputStream content) throws IOException;
+    
+    /**
+     * 在后台线程中执行任务（从断点继续），立即返回
+     */
+    ImportJob startJob(Long jobId);
+    
+    /**
+     * 在当前线程中执行任务（从断点继续），返回执行后的任务
+     */
+    ImportJob runJob(Long jobId) throws IOException;
+    
+    /**
+     * 查询任务进度
+     */
+    ImportJob getJob(Long jobId);
+    
+    /**
+     * 分页查询任务，最近创建的在前
+     */
+    Page<ImportJob> getJobs(Pageable pageable);
+}
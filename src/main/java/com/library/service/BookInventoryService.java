@@ -0,0 +1,44 @@
+package com.library.service;
+
+import com.library.entity.Book;
+import com.library.entity.BookInventorySlot;
+
+import java.util.List;
+
+/**
+ * 图书库存服务接口
+ *
+ * 借还时的库存扣减与归还，以及热门图书的库存分槽
+ */
+public interface BookInventoryService {
+    
+    /**
+     * 借出一本，库存不足或图书不可借时返回 false（不修改传入的实体）
+     */
+    boolean borrowOne(Book book);
+    
+    /**
+     * 归还一本；图书已不存在时抛出 IllegalStateException
+     */
+    void returnOne(Book book);
+    
+    /**
+     * 开启库存分槽：把当前可借册数均分到指定数量的槽中
+     */
+    Book enableInventorySlots(Long bookId, int slots);
+    
+    /**
+     * 关闭库存分槽：各槽余量汇总写回图书并删除分槽
+     */
+    Book disableInventorySlots(Long bookId);
+    
+    /**
+     * 获取一本书的库存槽（未开启分槽时为空）
+     */
+    List<BookInventorySlot> getInventorySlots(Long bookId);
+    
+    /**
+     * 把各热门图书的槽余量汇总回图书可借册数，返回有变化的图书数
+     */
+    int syncHotTitles();
+}
@@ -1,10 +1,16 @@
 package com.library.service;
 
 import com.library.dto.BookDTO;
+import com.library.dto.BookFacetSearchDTO;
+import com.library.dto.BookSuggestionDTO;
+import com.library.dto.BookSummary;
+import com.library.dto.CursorSlice;
 import com.library.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,14 +50,46 @@ public interface BookService {
     List<Book> getAllBooks();
     
     /**
-     * 分页获取图书
+     * 分页获取图书摘要（列表只读投影，完整信息见 getBookDTOById）
      */
-    Page<Book> getBooks(Pageable pageable);
+    Page<BookSummary> getBooks(Pageable pageable);
+    
+    /**
+     * 游标分页获取图书摘要（cursor为空表示第一页）
+     */
+    CursorSlice<BookSummary> getBooksAfter(String cursor, int size, Sort.Order order);
     
     /**
      * 搜索图书
      */
-    Page<Book> searchBooks(String title, String author, String category, Pageable pageable);
+    Page<BookSummary> searchBooks(String title, String author, String category, Pageable pageable);
+    
+    /**
+     * 按相关度搜索：标题、作者的 BM25 得分加借阅热度降序排列
+     */
+    Page<BookSummary> searchBooksByRelevance(String title, String author, String category, Pageable pageable);
+    
+    /**
+     * 容错搜索：标题、作者允许至多 maxEdits 处拼写错误，结果按编辑距离排序
+     */
+    Page<BookSummary> fuzzySearchBooks(String title, String author, String category, int maxEdits, Pageable pageable);
+    
+    /**
+     * 分面搜索：返回当前页图书及检索结果在分类、出版社、状态上的计数
+     */
+    BookFacetSearchDTO searchBooksWithFacets(String title, String author, String category,
+                                             String publisher, Pageable pageable);
+    
+    /**
+     * 游标分页搜索图书摘要（cursor为空表示第一页）
+     */
+    CursorSlice<BookSummary> searchBooksAfter(String title, String author, String category,
+                                              String cursor, int size, Sort.Order order);
+    
+    /**
+     * 输入提示：按前缀补全标题、作者、ISBN，按借阅次数排序
+     */
+    List<BookSuggestionDTO> suggestBooks(String prefix, int limit);
     
     /**
      * 获取图书DTO
@@ -59,19 +97,54 @@ public interface BookService {
     BookDTO getBookDTOById(Long bookId);
     
     /**
-     * 获取可借阅的图书
+     * 按ID列表批量获取图书DTO（先查缓存，未命中的一次查询），按请求顺序返回，不存在的ID跳过
      */
-    List<Book> getAvailableBooks();
+    List<BookDTO> getBookDTOsByIds(List<Long> bookIds);
+    
+    /**
+     * 根据ISBN获取图书DTO
+     */
+    Optional<BookDTO> getBookDTOByIsbn(String isbn);
+    
+    /**
+     * 按ISBN列表批量获取图书DTO（先查缓存，未命中的一次查询），按请求顺序返回，不存在的ISBN跳过
+     */
+    List<BookDTO> getBookDTOsByIsbns(List<String> isbns);
+    
+    /**
+     * 获取可借阅的图书摘要
+     */
+    List<BookSummary> getAvailableBooks();
+    
+    /**
+     * 分页获取可借阅的图书
+     */
+    Page<BookSummary> getAvailableBooks(Pageable pageable);
+    
+    /**
+     * 统计可借阅的图书数量
+     */
+    long countAvailableBooks();
     
     /**
      * 根据分类获取图书
      */
-    List<Book> getBooksByCategory(String category);
+    List<BookSummary> getBooksByCategory(String category);
+    
+    /**
+     * 获取借阅次数最多的图书，按次数降序；category 为空时为全馆排行
+     */
+    List<BookDTO> getPopularBooks(String category, int limit);
+    
+    /**
+     * 获取最近 window 内借阅次数最多的图书，按次数降序
+     */
+    List<BookDTO> getTrendingBooks(Duration window, int limit);
     
     /**
-     * 获取热门图书
+     * 借过这本书的读者还借了哪些书，按相似度降序
      */
-    List<Book> getPopularBooks(int limit);
+    List<BookDTO> getAlsoBorrowedBooks(Long bookId, int limit);
     
     /**
      * 检查图书是否可借
@@ -99,7 +172,27 @@ public interface BookService {
     Object[] getBookStatistics();
     
     /**
-     * 获取库存不足的图书
+     * 获取库存不足的图书摘要
+     */
+    List<BookSummary> getLowStockBooks();
+    
+    /**
+     * 分页获取库存不足的图书
+     */
+    Page<BookSummary> getLowStockBooks(Pageable pageable);
+    
+    /**
+     * 统计库存不足的图书数量
+     */
+    long countLowStockBooks();
+    
+    /**
+     * 分页获取无库存的图书
+     */
+    Page<BookSummary> getOutOfStockBooks(Pageable pageable);
+    
+    /**
+     * 统计无库存的图书数量
      */
-    List<Book> getLowStockBooks();
+    long countOutOfStockBooks();
 }
\ No newline at end of file
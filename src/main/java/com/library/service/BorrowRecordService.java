@@ -81,6 +81,11 @@ public interface BorrowRecordService {
      */
     void payFine(Long recordId, double amount);
     
+    /**
+     * 为尚未计算罚款的超期记录计算罚款并计入用户罚款总额，返回本次计入的金额（已计算过的返回0）
+     */
+    double applyOverdueFine(Long recordId);
+    
     /**
      * 获取借阅统计
      */
@@ -100,4 +105,9 @@ public interface BorrowRecordService {
      * 检查用户是否已借阅该书
      */
     boolean hasUserBorrowedBook(Long userId, Long bookId);
+    
+    /**
+     * 为加入借阅中标记之前借出、尚未归还的记录补上标记，使唯一约束覆盖存量数据（启动时执行）
+     */
+    void backfillActiveLoans();
 }
\ No newline at end of file
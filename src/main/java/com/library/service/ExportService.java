@@ -0,0 +1,35 @@
+package com.library.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 数据导出服务接口
+ *
+ * 逐行从数据库游标读取并直接写入输出流，内存占用与表大小无关。
+ */
+public interface ExportService {
+    
+    /**
+     * 导出格式
+     */
+    enum Format {
+        NDJSON,     // 每行一个 JSON 对象
+        CSV         // 首行为表头
+    }
+    
+    /**
+     * 导出全部图书（含已删除，以 isDeleted 标识），返回导出行数
+     */
+    long exportBooks(Format format, OutputStream out) throws IOException;
+    
+    /**
+     * 导出全部用户（不含密码），返回导出行数
+     */
+    long exportUsers(Format format, OutputStream out) throws IOException;
+    
+    /**
+     * 导出全部借阅记录，返回导出行数
+     */
+    long exportBorrowRecords(Format format, OutputStream out) throws IOException;
+}
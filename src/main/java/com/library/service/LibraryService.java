@@ -1,5 +1,7 @@
 package com.library.service;
 
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BookDTO;
 import com.library.dto.BorrowRequestDTO;
 import com.library.entity.Book;
 import com.library.entity.BorrowRecord;
@@ -29,9 +31,10 @@ public interface LibraryService {
     BorrowRecord borrowBook(BorrowRequestDTO borrowRequest);
     
     /**
-     * 批量借阅图书
+     * 批量借阅图书：一次锁定读者和全部图书，逐项校验后一起写入，
+     * 按请求顺序返回每本书的结果，失败的给出原因
      */
-    List<BorrowRecord> batchBorrowBooks(Long userId, List<Long> bookIds);
+    List<BatchItemResultDTO> batchBorrowBooks(Long userId, List<Long> bookIds);
     
     /**
      * 归还图书
@@ -39,9 +42,9 @@ public interface LibraryService {
     BorrowRecord returnBook(Long recordId);
     
     /**
-     * 批量归还图书
+     * 批量归还图书，按请求顺序返回每条借阅记录的结果
      */
-    List<BorrowRecord> batchReturnBooks(Long userId, List<Long> recordIds);
+    List<BatchItemResultDTO> batchReturnBooks(Long userId, List<Long> recordIds);
     
     /**
      * 续借图书
@@ -64,9 +67,14 @@ public interface LibraryService {
     Map<String, Object> getLibraryOverview();
     
     /**
-     * 获取热门推荐图书
+     * 获取热门推荐图书（全馆借阅排行）
      */
-    List<Book> getRecommendedBooks(int limit);
+    List<BookDTO> getRecommendedBooks(int limit);
+    
+    /**
+     * 按读者的借阅历史推荐图书（共同借阅），没有借阅历史时返回热门图书
+     */
+    List<BookDTO> getRecommendedBooksForUser(Long userId, int limit);
     
     /**
      * 获取用户借阅历史
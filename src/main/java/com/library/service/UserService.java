@@ -63,6 +63,11 @@ public interface UserService {
      */
     UserDTO getUserDTOById(Long userId);
     
+    /**
+     * 按ID列表批量获取用户DTO（先查缓存，未命中的一次查询），按请求顺序返回，不存在的ID跳过
+     */
+    List<UserDTO> getUserDTOsByIds(List<Long> userIds);
+    
     /**
      * 获取用户DTO列表
      */
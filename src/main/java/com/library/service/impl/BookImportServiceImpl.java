@@ -0,0 +1,454 @@
+package com.library.service.impl;
+
+import com.library.AppConstants;
+import com.library.cache.SearchResultCache;
+import com.library.entity.Book;
+import com.library.entity.ImportJob;
+import com.library.importer.BookRecordReader;
+import com.library.repository.BookRepository;
+import com.library.repository.ImportJobRepository;
+import com.library.search.BookSearchIndex;
+import com.library.search.BookStockIndex;
+import com.library.search.BookSuggester;
+import com.library.search.ExistenceFilter;
+import com.library.service.BookImportService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 图书批量导入服务实现类
+ *
+ * 主键按号段预分配，persist 时不需要立即 INSERT；每批 saveAll 后 flush 一次，
+ * 以整批为单位执行 JDBC 批量插入（MySQL 连接开启 rewriteBatchedStatements 后合并为多行 INSERT），
+ * 随后清空持久化上下文。
+ *
+ * 每批在一个事务里完成：findByIsbnIn 查出已存在的 ISBN、批量插入其余图书、推进任务断点。
+ * 整批提交失败（如查重之后其他写入抢先插入了同一 ISBN）时回滚，改为逐条各自一个事务插入，
+ * 冲突的记录按 ISBN 是否已存在计为重复或无效，其余照常插入，最后单独推进断点；
+ * 逐条插入后、断点推进前中断的，续跑时这些记录会因 ISBN 已存在计为重复。
+ * 插入不经过 BookService，不逐条发布变更事件；任务结束后统一重建检索索引并清空搜索结果缓存。
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BookImportServiceImpl.class);
+    
+    private static final int MAX_ERROR_LENGTH = 500;
+    
+    /**
+     * Book 字符串列的长度上限，取自实体的 @Column（TEXT 等自定义列类型不校验）
+     */
+    private static final Map<Field, Integer> COLUMN_LENGTHS = columnLengths(Book.class);
+    
+    @Autowired
+    private ImportJobRepository importJobRepository;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ExistenceFilter existenceFilter;
+    
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    
+    @Autowired
+    private BookStockIndex bookStockIndex;
+    
+    @Autowired
+    private BookSuggester bookSuggester;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Value("${library.import.dir:${java.io.tmpdir}/library-imports}")
+    private String importDir;
+    
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    
+    // 导入任务逐个执行，避免多个大批量写入互相争用连接和锁
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Override
+    public ImportJob createJob(String fileName, ImportJob.Format format, InputStream content) throws IOException {
+        Path dir = Paths.get(importDir);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(UUID.randomUUID() + (format == ImportJob.Format.MARC ? ".mrc" : ".csv"));
+        long size = Files.copy(content, file);
+        
+        ImportJob job = new ImportJob();
+        job.setFileName(fileName);
+        job.setFilePath(file.toAbsolutePath().toString());
+        job.setFileSize(size);
+        job.setFormat(format);
+        return importJobRepository.save(job);
+    }
+    
+    @Override
+    public ImportJob startJob(Long jobId) {
+        ImportJob job = getJob(jobId);
+        if (job.getStatus() == ImportJob.Status.COMPLETED) {
+            throw new IllegalStateException("导入任务已完成: " + jobId);
+        }
+        if (runningJobs.contains(jobId)) {
+            throw new IllegalStateException("导入任务正在执行: " + jobId);
+        }
+        executor.execute(() -> {
+            try {
+                runJob(jobId);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("导入任务 {} 执行失败，可从断点继续", jobId, e);
+            }
+        });
+        return job;
+    }
+    
+    @Override
+    public ImportJob runJob(Long jobId) throws IOException {
+        if (!runningJobs.add(jobId)) {
+            throw new IllegalStateException("导入任务正在执行: " + jobId);
+        }
+        try {
+            return execute(getJob(jobId));
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+    
+    @Override
+    public ImportJob getJob(Long jobId) {
+        return importJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("导入任务不存在: " + jobId));
+    }
+    
+    @Override
+    public Page<ImportJob> getJobs(Pageable pageable) {
+        return importJobRepository.findAllByOrderByCreatedAtDesc(pageable);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    // ==================== 内部实现 ====================
+    
+    private ImportJob execute(ImportJob job) throws IOException {
+        if (job.getStatus() == ImportJob.Status.COMPLETED) {
+            return job;
+        }
+        job.setStatus(ImportJob.Status.RUNNING);
+        job.setLastError(null);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job = importJobRepository.save(job);
+        long insertedBefore = job.getInsertedCount();
+        
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(Paths.get(job.getFilePath())));
+             BookRecordReader reader = BookRecordReader.open(job.getFormat(), in)) {
+            reader.skip(job.getProcessedRecords());
+            
+            Batch batch = new Batch();
+            while (true) {
+                Book book;
+                try {
+                    book = reader.next();
+                } catch (IllegalArgumentException e) {
+                    batch.reject(e.getMessage());
+                    continue;
+                }
+                if (book == null) {
+                    break;
+                }
+                
+                String error = validate(book);
+                if (error == null) {
+                    batch.books.add(book);
+                    batch.records++;
+                } else {
+                    batch.reject("第 " + (job.getProcessedRecords() + batch.records + 1) + " 条记录" + error);
+                }
+                if (batch.records >= AppConstants.IMPORT_BATCH_SIZE) {
+                    job = commitBatch(job, batch, in.count);
+                    batch = new Batch();
+                }
+            }
+            job = commitBatch(job, batch, in.count);
+            
+            job.setStatus(ImportJob.Status.COMPLETED);
+            job.setBytesRead(job.getFileSize());
+            job.setFinishedAt(LocalDateTime.now());
+            job = importJobRepository.save(job);
+            logger.info("导入任务 {} 完成: 处理 {} 条, 新增 {} 本, 重复 {} 条, 无效 {} 条, {} 条/秒",
+                    job.getId(), job.getProcessedRecords(), job.getInsertedCount(), job.getDuplicateCount(),
+                    job.getInvalidCount(), String.format("%.0f", job.getRecordsPerSecond()));
+            return job;
+        } catch (IOException | RuntimeException e) {
+            // 断点以数据库中已提交的为准，内存中的计数可能包含回滚的一批
+            ImportJob failed = importJobRepository.findById(job.getId()).orElse(job);
+            failed.setStatus(ImportJob.Status.FAILED);
+            failed.setLastError(truncate(e.getMessage()));
+            importJobRepository.save(failed);
+            throw e;
+        } finally {
+            if (job.getInsertedCount() > insertedBefore) {
+                refreshIndexes();
+            }
+        }
+    }
+    
+    // 一批在一个事务里完成去重、插入和断点推进；整批失败时改为逐条插入
+    private ImportJob commitBatch(ImportJob job, Batch batch, long bytesRead) {
+        if (batch.records == 0) {
+            return job;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            return commitWholeBatch(transactionTemplate, job, batch, bytesRead);
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("导入任务 {} 的一批记录整批提交失败，改为逐条插入: {}", job.getId(), e.getMostSpecificCause().getMessage());
+            return commitRowByRow(transactionTemplate, job, batch, bytesRead);
+        }
+    }
+    
+    private ImportJob commitWholeBatch(TransactionTemplate transactionTemplate, ImportJob job, Batch batch,
+                                       long bytesRead) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Book> unique = new LinkedHashMap<>();
+            for (Book book : batch.books) {
+                unique.putIfAbsent(isbnKey(book.getIsbn()), book);
+            }
+            if (!unique.isEmpty()) {
+                List<String> isbns = unique.values().stream().map(Book::getIsbn).toList();
+                for (Book existing : bookRepository.findByIsbnIn(isbns)) {
+                    unique.remove(isbnKey(existing.getIsbn()));
+                }
+            }
+            
+            List<Book> books = new ArrayList<>(unique.values());
+            if (!books.isEmpty()) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(AppConstants.IMPORT_BATCH_SIZE);
+                bookRepository.saveAll(books);
+                bookRepository.flush();
+                entityManager.clear();
+            }
+            books.forEach(book -> existenceFilter.add(ExistenceFilter.Key.ISBN, book.getIsbn()));
+            return advance(job, batch, books.size(), batch.books.size() - books.size(), 0, bytesRead);
+        });
+    }
+    
+    // 逐条插入：每条一个事务，冲突的记录计为重复（ISBN 已存在）或无效，不影响其余记录
+    private ImportJob commitRowByRow(TransactionTemplate transactionTemplate, ImportJob job, Batch batch,
+                                     long bytesRead) {
+        int inserted = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        Set<String> seen = new HashSet<>();
+        for (Book book : batch.books) {
+            if (!seen.add(isbnKey(book.getIsbn()))) {
+                duplicates++;
+                continue;
+            }
+            // 整批回滚前已分配的主键作废，按新实体重新插入
+            book.setId(null);
+            try {
+                boolean added = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    if (bookRepository.existsByIsbn(book.getIsbn())) {
+                        return false;
+                    }
+                    bookRepository.save(book);
+                    bookRepository.flush();
+                    entityManager.clear();
+                    return true;
+                }));
+                if (added) {
+                    existenceFilter.add(ExistenceFilter.Key.ISBN, book.getIsbn());
+                    inserted++;
+                } else {
+                    duplicates++;
+                }
+            } catch (DataIntegrityViolationException e) {
+                if (bookRepository.existsByIsbn(book.getIsbn())) {
+                    duplicates++;
+                } else {
+                    invalid++;
+                    batch.lastError = "记录无法写入: " + book.getIsbn() + ", " + e.getMostSpecificCause().getMessage();
+                }
+            }
+        }
+        int rowInserted = inserted;
+        int rowDuplicates = duplicates;
+        int rowInvalid = invalid;
+        return transactionTemplate.execute(status ->
+                advance(job, batch, rowInserted, rowDuplicates, rowInvalid, bytesRead));
+    }
+    
+    // 推进任务断点并累加计数（invalid 为入库时才发现的无效记录，读取、校验阶段的已计入 batch.invalid）
+    private ImportJob advance(ImportJob job, Batch batch, int inserted, int duplicates, int invalid, long bytesRead) {
+        job.setProcessedRecords(job.getProcessedRecords() + batch.records);
+        job.setInsertedCount(job.getInsertedCount() + inserted);
+        job.setDuplicateCount(job.getDuplicateCount() + duplicates);
+        job.setInvalidCount(job.getInvalidCount() + batch.invalid + invalid);
+        job.setBytesRead(bytesRead);
+        job.setActiveMillis(job.getActiveMillis() + System.currentTimeMillis() - batch.startedAt);
+        if (batch.lastError != null) {
+            job.setLastError(truncate(batch.lastError));
+        }
+        return importJobRepository.save(job);
+    }
+    
+    // 校验必填字段和列长度，并补全默认值（与 addBook 一致）；返回错误信息，合法时返回 null
+    private String validate(Book book) {
+        if (!StringUtils.hasText(book.getIsbn()) || !StringUtils.hasText(book.getTitle())
+                || !StringUtils.hasText(book.getAuthor())) {
+            return "缺少 ISBN、标题或作者";
+        }
+        for (Map.Entry<Field, Integer> column : COLUMN_LENGTHS.entrySet()) {
+            if (length(book, column.getKey()) > column.getValue()) {
+                return "字段超长: " + column.getKey().getName() + " 超过 " + column.getValue() + " 个字符";
+            }
+        }
+        if (book.getTotalCopies() == null || book.getTotalCopies() < 1) {
+            book.setTotalCopies(1);
+        }
+        book.setAvailableCopies(book.getTotalCopies());
+        book.setStatus(Book.BookStatus.AVAILABLE);
+        if (!StringUtils.hasText(book.getCategory())) {
+            book.setCategory("未分类");
+        }
+        return null;
+    }
+    
+    private void refreshIndexes() {
+        bookSearchIndex.rebuild();
+        bookStockIndex.rebuild();
+        bookSuggester.rebuild();
+        searchResultCache.invalidateAll();
+    }
+    
+    // ISBN 去重键：与 MySQL 不区分大小写的比较一致（末位 X）
+    private static String isbnKey(String isbn) {
+        return isbn.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private static int length(Book book, Field field) {
+        try {
+            String value = (String) field.get(book);
+            return value == null ? 0 : value.length();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法读取图书字段: " + field.getName(), e);
+        }
+    }
+    
+    private static Map<Field, Integer> columnLengths(Class<?> type) {
+        Map<Field, Integer> lengths = new LinkedHashMap<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                Column column = field.getAnnotation(Column.class);
+                if (field.getType() == String.class && column != null && column.columnDefinition().isEmpty()) {
+                    field.setAccessible(true);
+                    lengths.put(field, column.length());
+                }
+            }
+        }
+        return lengths;
+    }
+    
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+    
+    /**
+     * 当前批次：待插入的图书、已读取的记录数（含无效记录）
+     */
+    private static final class Batch {
+        private final List<Book> books = new ArrayList<>();
+        private final long startedAt = System.currentTimeMillis();
+        private int records;
+        private int invalid;
+        private String lastError;
+        
+        private void reject(String error) {
+            records++;
+            invalid++;
+            lastError = error;
+        }
+    }
+    
+    /**
+     * 统计已读取字节数，用于估算进度
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.library.service.impl;
+
+import com.library.AppConstants;
+import com.library.entity.Book;
+import com.library.entity.BookInventorySlot;
+import com.library.event.BookChangedEvent;
+import com.library.repository.BookInventorySlotRepository;
+import com.library.repository.BookRepository;
+import com.library.service.BookInventoryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 图书库存服务实现类
+ *
+ * 新书上架时大量读者同时借同一本书，books 表的同一行成为热点。开启库存分槽后，可借册数拆到
+ * book_inventory_slots 的 N 行里：借阅随机挑一个槽做条件扣减，归还随机加回一个槽，行锁争用分散到 N 行。
+ * 挑中的槽已空时按余量从多到少改扣其他槽，并登记该书待重新均分。
+ * 定时任务把各槽余量汇总回 books.available_copies（最终一致，列表、统计和检索索引读的是它），
+ * 顺带重新均分登记过的图书。
+ *
+ * 图书行和槽行上的条件更新都带着当前模式作为条件，模式切换与借还交错时不会超借；
+ * 切换瞬间正在进行的借阅可能失败，重试即可。加锁顺序固定为先槽后图书行。
+ */
+@Service
+@Transactional
+public class BookInventoryServiceImpl implements BookInventoryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BookInventoryServiceImpl.class);
+    
+    /**
+     * 归还时在图书行和槽之间来回尝试的次数
+     */
+    private static final int MAX_RETURN_ATTEMPTS = 3;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BookInventorySlotRepository slotRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * 借阅时遇到空槽、等待重新均分的图书
+     */
+    private final Set<Long> pendingRebalance = ConcurrentHashMap.newKeySet();
+    
+    @Override
+    public boolean borrowOne(Book book) {
+        if (!book.isHotTitle()) {
+            return bookRepository.borrowOne(book.getId());
+        }
+        
+        // 分槽模式下图书行不扣减，状态只拦截维护中、丢失等不能借出的情况（已借出可能只是汇总滞后）
+        if (book.getStatus() != Book.BookStatus.AVAILABLE && book.getStatus() != Book.BookStatus.BORROWED) {
+            return false;
+        }
+        Long bookId = book.getId();
+        int slot = ThreadLocalRandom.current().nextInt(book.getInventorySlots());
+        if (slotRepository.decrementAvailableCopies(bookId, slot) > 0) {
+            return true;
+        }
+        
+        pendingRebalance.add(bookId);
+        for (Integer candidate : slotRepository.findSlotsWithStock(bookId)) {
+            if (candidate != slot && slotRepository.decrementAvailableCopies(bookId, candidate) > 0) {
+                return true;
+            }
+        }
+        
+        // 各槽都已借完；或者分槽刚被关闭，这时图书行上的条件扣减才会成功
+        return bookRepository.borrowOne(bookId);
+    }
+    
+    @Override
+    public void returnOne(Book book) {
+        Long bookId = book.getId();
+        if (book.isHotTitle()) {
+            int slot = ThreadLocalRandom.current().nextInt(book.getInventorySlots());
+            if (slotRepository.incrementAvailableCopies(bookId, slot) > 0) {
+                return;
+            }
+        }
+        
+        // 图书行上的条件更新只在未分槽时成功；读取图书之后刚开启了分槽就归还到第一个槽。
+        // 两次更新之间分槽又被开关时再试，都不成功说明图书已不存在，抛出异常让整个归还回滚，不能丢掉这一册
+        for (int attempt = 0; attempt < MAX_RETURN_ATTEMPTS; attempt++) {
+            if (bookRepository.returnOne(bookId) || slotRepository.incrementAvailableCopies(bookId, 0) > 0) {
+                return;
+            }
+        }
+        throw new IllegalStateException("图书不存在，无法归还库存: " + bookId);
+    }
+    
+    @Override
+    public Book enableInventorySlots(Long bookId, int slots) {
+        if (slots < 2 || slots > AppConstants.HOT_INVENTORY_MAX_SLOTS) {
+            throw new IllegalArgumentException("分槽数应在 2 到 " + AppConstants.HOT_INVENTORY_MAX_SLOTS + " 之间");
+        }
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
+        
+        // 先切换模式并锁住图书行：此后的借还都落到槽上，这里读到的可借册数不会再变
+        if (bookRepository.enableInventorySlots(bookId, slots) == 0) {
+            throw new IllegalStateException("图书已开启库存分槽");
+        }
+        entityManager.refresh(book);
+        
+        int[] shares = split(book.getAvailableCopies(), slots);
+        List<BookInventorySlot> rows = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            rows.add(new BookInventorySlot(bookId, i, shares[i]));
+        }
+        slotRepository.saveAll(rows);
+        
+        logger.info("图书 {} 开启库存分槽: {} 槽, 可借 {} 册", bookId, slots, book.getAvailableCopies());
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return book;
+    }
+    
+    @Override
+    public Book disableInventorySlots(Long bookId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
+        
+        // 按槽号顺序锁住各槽，汇总后删除，可借册数写回图书行
+        List<BookInventorySlot> rows = slotRepository.lockByBookId(bookId);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("图书未开启库存分槽");
+        }
+        int copies = rows.stream().mapToInt(BookInventorySlot::getAvailableCopies).sum();
+        slotRepository.deleteByBookId(bookId);
+        bookRepository.disableInventorySlots(bookId, copies);
+        pendingRebalance.remove(bookId);
+        entityManager.refresh(book);
+        
+        logger.info("图书 {} 关闭库存分槽, 可借 {} 册", bookId, copies);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return book;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookInventorySlot> getInventorySlots(Long bookId) {
+        return slotRepository.findByBookIdOrderBySlotNo(bookId);
+    }
+    
+    @Override
+    @Scheduled(fixedDelayString = "${library.inventory.sync-interval-ms:1000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int syncHotTitles() {
+        // 每本书单独一个事务，汇总时锁住的槽尽快释放
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int changed = 0;
+        for (Long bookId : bookRepository.findHotTitleIds()) {
+            boolean rebalance = pendingRebalance.remove(bookId);
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> syncHotTitle(bookId, rebalance)))) {
+                changed++;
+            }
+        }
+        if (changed > 0) {
+            logger.debug("热门图书库存汇总: {} 本可借册数有变化", changed);
+        }
+        return changed;
+    }
+    
+    // 汇总一本书各槽余量写回图书行，需要时顺带重新均分各槽
+    private boolean syncHotTitle(Long bookId, boolean rebalance) {
+        int copies;
+        if (rebalance) {
+            List<BookInventorySlot> rows = slotRepository.lockByBookId(bookId);
+            copies = rows.stream().mapToInt(BookInventorySlot::getAvailableCopies).sum();
+            int[] shares = split(copies, rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).setAvailableCopies(shares[i]);
+            }
+        } else {
+            Long sum = slotRepository.sumAvailableCopies(bookId);
+            if (sum == null) {
+                return false;
+            }
+            copies = sum.intValue();
+        }
+        
+        if (!bookRepository.syncHotTitleCopies(bookId, copies)) {
+            return false;
+        }
+        bookRepository.findById(bookId).ifPresent(book -> eventPublisher.publishEvent(BookChangedEvent.saved(book)));
+        return true;
+    }
+    
+    // 均分，余数分给前面的槽
+    private static int[] split(int copies, int slots) {
+        int[] shares = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            shares[i] = copies / slots + (i < copies % slots ? 1 : 0);
+        }
+        return shares;
+    }
+}
@@ -1,34 +1,126 @@
 package com.library.service.impl;
 
+import com.library.AppConstants;
+import com.library.aop.OptimisticRetry;
+import com.library.cache.EntityCacheLoader;
+import com.library.cache.SearchResultCache;
 import com.library.dto.BookDTO;
+import com.library.dto.BookFacetSearchDTO;
+import com.library.dto.BookSuggestionDTO;
+import com.library.dto.BookSummary;
+import com.library.dto.CursorSlice;
 import com.library.entity.Book;
+import com.library.event.BookChangedEvent;
 import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.search.BookPopularityIndex;
+import com.library.search.BookSearchIndex;
+import com.library.search.BookStockIndex;
+import com.library.search.BookStockIndex.StockLevel;
+import com.library.search.BookSuggester;
+import com.library.search.BookTrendingIndex;
+import com.library.search.CoBorrowRecommender;
+import com.library.search.ExistenceFilter;
+import com.library.service.BookInventoryService;
 import com.library.service.BookService;
+import com.library.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * 图书服务实现类（修复版 - 移除缓存注解）
+ * 图书服务实现类
+ *
+ * 按ID/ISBN的读取走缓存，写操作发布 {@link BookChangedEvent}，提交后由
+ * {@link com.library.cache.EntityCacheInvalidator} 精确失效。
  */
 @Service
 @Transactional
 public class BookServiceImpl implements BookService {
     
+    /**
+     * 游标分页支持的排序字段及其游标值的解析方式（均为非空列）
+     */
+    private static final Map<String, Function<String, Object>> CURSOR_SORT_KEYS = Map.of(
+            "id", value -> null,
+            "isbn", value -> value,
+            "title", value -> value,
+            "author", value -> value,
+            "category", value -> value,
+            "createdAt", LocalDateTime::parse,
+            "updatedAt", LocalDateTime::parse
+    );
+    
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private BookInventoryService bookInventoryService;
+    
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    
+    @Autowired
+    private BookSuggester bookSuggester;
+    
+    @Autowired
+    private BookStockIndex bookStockIndex;
+    
+    @Autowired
+    private BookPopularityIndex bookPopularityIndex;
+    
+    @Autowired
+    private CoBorrowRecommender coBorrowRecommender;
+    
+    @Autowired
+    private BookTrendingIndex bookTrendingIndex;
+    
+    @Autowired
+    private ExistenceFilter existenceFilter;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Autowired
+    private EntityCacheLoader entityCacheLoader;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Override
     public Book addBook(Book book) {
         // 验证ISBN
-        if (bookRepository.existsByIsbn(book.getIsbn())) {
+        if (existenceFilter.exists(ExistenceFilter.Key.ISBN, book.getIsbn(), bookRepository::existsByIsbn)) {
             throw new IllegalArgumentException("ISBN已存在: " + book.getIsbn());
         }
         
@@ -46,13 +138,18 @@ public class BookServiceImpl implements BookService {
             book.setCategory("未分类");
         }
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        existenceFilter.add(ExistenceFilter.Key.ISBN, savedBook.getIsbn());
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        return savedBook;
     }
     
     @Override
     public Book updateBook(Long bookId, Book book) {
         Book existingBook = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
+        Book previous = new Book();
+        BeanUtils.copyProperties(existingBook, previous);
         
         // 更新基本信息（不允许修改ISBN）
         if (StringUtils.hasText(book.getTitle())) {
@@ -77,7 +174,9 @@ public class BookServiceImpl implements BookService {
             existingBook.setDescription(book.getDescription());
         }
         
-        return bookRepository.save(existingBook);
+        Book savedBook = bookRepository.save(existingBook);
+        eventPublisher.publishEvent(BookChangedEvent.updated(previous, savedBook));
+        return savedBook;
     }
     
     @Override
@@ -87,6 +186,7 @@ public class BookServiceImpl implements BookService {
         
         book.setIsDeleted(true);
         bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.removed(book));
     }
     
     @Override
@@ -109,18 +209,124 @@ public class BookServiceImpl implements BookService {
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Book> getBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    public Page<BookSummary> getBooks(Pageable pageable) {
+        return bookRepository.findAllSummaries(pageable);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public Page<Book> searchBooks(String title, String author, String category, Pageable pageable) {
-        return bookRepository.searchBooks(title, author, category, null, pageable);
+    public CursorSlice<BookSummary> getBooksAfter(String cursor, int size, Sort.Order order) {
+        return findAfter(null, null, null, cursor, size, order);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookSummary> searchBooks(String title, String author, String category, Pageable pageable) {
+        SearchResultCache.Filter filter = SearchResultCache.Filter.search(title, author, category, null);
+        return searchResultCache.get(filter, "search:" + pageable, () -> {
+            // 索引未就绪或按非ID字段排序时，回退到数据库查询
+            if (!bookSearchIndex.isReady() || !isSortedByIdOnly(pageable.getSort())) {
+                return bookRepository.searchBookSummaries(filter.getTitle(), filter.getAuthor(), filter.getCategory(),
+                        null, pageable);
+            }
+            
+            long[] ids = bookSearchIndex.searchIds(filter.getTitle(), filter.getAuthor(), filter.getCategory(), null);
+            return pageOf(ids, pageable);
+        });
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookSummary> searchBooksByRelevance(String title, String author, String category, Pageable pageable) {
+        // 打分依赖内存索引，索引未就绪时按数据库默认排序返回
+        if (!bookSearchIndex.isReady()) {
+            return bookRepository.searchBookSummaries(title, author, category, null, pageable);
+        }
+        
+        SearchResultCache.Filter filter = SearchResultCache.Filter.search(title, author, category, null);
+        return searchResultCache.get(filter, "relevance:" + pageable, () -> {
+            long[] ids = bookSearchIndex.rankedSearchIds(filter.getTitle(), filter.getAuthor(), filter.getCategory(), null);
+            return pageOf(ids, unsorted(pageable));
+        });
     }
     
     @Override
     @Transactional(readOnly = true)
+    public Page<BookSummary> fuzzySearchBooks(String title, String author, String category, int maxEdits, Pageable pageable) {
+        // 容错匹配依赖内存词表，索引未就绪时退化为普通搜索
+        if (!bookSearchIndex.isReady()) {
+            return bookRepository.searchBookSummaries(title, author, category, null, pageable);
+        }
+        
+        long[] ids = bookSearchIndex.fuzzySearchIds(title, author, category, null, maxEdits);
+        return pageOf(ids, unsorted(pageable));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public BookFacetSearchDTO searchBooksWithFacets(String title, String author, String category,
+                                                    String publisher, Pageable pageable) {
+        // 索引未就绪时只能回退到数据库分页查询，不返回分面计数
+        if (!bookSearchIndex.isReady()) {
+            Page<BookSummary> books = bookRepository.searchBookSummaries(title, author, category, publisher, pageable);
+            return new BookFacetSearchDTO(books, new LinkedHashMap<>());
+        }
+        
+        long[] ids = bookSearchIndex.searchIds(title, author, category, publisher);
+        Page<BookSummary> books = isSortedByIdOnly(pageable.getSort())
+                ? pageOf(ids, pageable)
+                : bookRepository.searchBookSummaries(title, author, category, publisher, pageable);
+        
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        bookSearchIndex.facetCounts(ids).forEach((facet, counts) ->
+                facets.put(facet.name().toLowerCase(), counts));
+        return new BookFacetSearchDTO(books, facets);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorSlice<BookSummary> searchBooksAfter(String title, String author, String category,
+                                                     String cursor, int size, Sort.Order order) {
+        // 按ID排序时直接在索引的有序ID数组上定位游标
+        if (!bookSearchIndex.isReady() || !"id".equals(order.getProperty())) {
+            return findAfter(title, author, category, cursor, size, order);
+        }
+        
+        KeysetCursor after = decodeCursor(cursor, order);
+        long[] ids = bookSearchIndex.searchIds(title, author, category, null);
+        int start;
+        if (after == null) {
+            start = order.isDescending() ? ids.length - 1 : 0;
+        } else {
+            int pos = Arrays.binarySearch(ids, after.getLastId());
+            int insertion = pos >= 0 ? pos : -pos - 1;
+            start = order.isDescending() ? insertion - 1 : (pos >= 0 ? pos + 1 : insertion);
+        }
+        
+        int step = order.isDescending() ? -1 : 1;
+        List<Long> pageIds = new ArrayList<>(size);
+        int i = start;
+        for (; i >= 0 && i < ids.length && pageIds.size() < size; i += step) {
+            pageIds.add(ids[i]);
+        }
+        boolean hasNext = i >= 0 && i < ids.length;
+        
+        List<BookSummary> books = loadSummariesInOrder(pageIds);
+        String nextCursor = hasNext && !pageIds.isEmpty()
+                ? KeysetCursor.after("id", order.isDescending(), pageIds.get(pageIds.size() - 1), null).encode()
+                : null;
+        return new CursorSlice<>(books, hasNext, nextCursor);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSuggestionDTO> suggestBooks(String prefix, int limit) {
+        return bookSuggester.suggest(prefix, limit);
+    }
+    
+    @Override
+    @Cacheable(value = AppConstants.CACHE_BOOK_DTOS, key = "#bookId")
+    @Transactional(readOnly = true)
     public BookDTO getBookDTOById(Long bookId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
@@ -130,28 +336,94 @@ public class BookServiceImpl implements BookService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Book> getAvailableBooks() {
-        return bookRepository.findAvailableBooks();
+    public List<BookDTO> getBookDTOsByIds(List<Long> bookIds) {
+        return entityCacheLoader.getAll(AppConstants.CACHE_BOOK_DTOS, bookIds, BookDTO.class,
+                ids -> bookRepository.findByIdIn(ids).stream()
+                        .collect(Collectors.toMap(Book::getId, this::convertToDTO)));
     }
     
     @Override
+    @Cacheable(value = AppConstants.CACHE_BOOKS_BY_ISBN, key = "#isbn", unless = "#result == null")
     @Transactional(readOnly = true)
-    public List<Book> getBooksByCategory(String category) {
-        return bookRepository.findByCategory(category);
+    public Optional<BookDTO> getBookDTOByIsbn(String isbn) {
+        return bookRepository.findByIsbn(isbn).map(this::convertToDTO);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Book> getPopularBooks(int limit) {
-        // 简单实现：返回最新的图书
-        return bookRepository.findAll().stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+    public List<BookDTO> getBookDTOsByIsbns(List<String> isbns) {
+        return entityCacheLoader.getAll(AppConstants.CACHE_BOOKS_BY_ISBN, isbns, BookDTO.class,
+                keys -> bookRepository.findByIsbnIn(keys).stream()
+                        .collect(Collectors.toMap(Book::getIsbn, this::convertToDTO)));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSummary> getAvailableBooks() {
+        return bookRepository.findAvailableSummaries();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookSummary> getAvailableBooks(Pageable pageable) {
+        return pageByStock(StockLevel.AVAILABLE, pageable, () -> bookRepository.findAvailableSummaries(pageable));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countAvailableBooks() {
+        return bookStockIndex.isReady()
+                ? bookStockIndex.count(StockLevel.AVAILABLE)
+                : bookRepository.countAvailableBooks();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSummary> getBooksByCategory(String category) {
+        return searchResultCache.get(SearchResultCache.Filter.category(category), "list",
+                () -> bookRepository.findSummariesByCategory(category));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getPopularBooks(String category, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ids;
+        if (bookPopularityIndex.isReady()) {
+            ids = Arrays.stream(bookPopularityIndex.topIds(category, limit)).boxed().collect(Collectors.toList());
+        } else {
+            // 排行未就绪时回退到数据库分组统计
+            ids = borrowRecordRepository.findMostBorrowedBookIds(StringUtils.hasText(category) ? category : null,
+                    PageRequest.of(0, limit));
+        }
+        return getBookDTOsByIds(ids);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getTrendingBooks(Duration window, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        long[] ids = bookTrendingIndex.topIds(window, limit);
+        return getBookDTOsByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getAlsoBorrowedBooks(Long bookId, int limit) {
+        long[] ids = coBorrowRecommender.similarBooks(bookId, limit);
+        return getBookDTOsByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
     }
     
     @Override
     @Transactional(readOnly = true)
     public boolean isBookAvailable(Long bookId) {
+        if (bookStockIndex.isReady()) {
+            return bookStockIndex.contains(StockLevel.AVAILABLE, bookId);
+        }
         Optional<Book> bookOptional = bookRepository.findById(bookId);
         return bookOptional.isPresent() && bookOptional.get().isAvailable();
     }
@@ -161,7 +433,13 @@ public class BookServiceImpl implements BookService {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
         
-        return book.borrowOne();
+        // 条件扣减库存（分槽图书扣减其中一个槽），并发借阅不会超借；更新绕过了持久化上下文，成功后刷新实体
+        if (!bookInventoryService.borrowOne(book)) {
+            return false;
+        }
+        entityManager.refresh(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return true;
     }
     
     @Override
@@ -169,11 +447,13 @@ public class BookServiceImpl implements BookService {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
         
-        book.returnOne();
-        bookRepository.save(book);
+        bookInventoryService.returnOne(book);
+        entityManager.refresh(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
     }
     
     @Override
+    @OptimisticRetry
     public Book updateStock(Long bookId, Integer totalCopies, Integer availableCopies) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + bookId));
@@ -182,6 +462,9 @@ public class BookServiceImpl implements BookService {
             book.setTotalCopies(totalCopies);
         }
         if (availableCopies != null && availableCopies >= 0) {
+            if (book.isHotTitle()) {
+                throw new IllegalStateException("图书已开启库存分槽，请先关闭分槽再调整可借册数");
+            }
             book.setAvailableCopies(availableCopies);
             
             // 更新状态
@@ -192,7 +475,9 @@ public class BookServiceImpl implements BookService {
             }
         }
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        return savedBook;
     }
     
     @Override
@@ -203,8 +488,152 @@ public class BookServiceImpl implements BookService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Book> getLowStockBooks() {
-        return bookRepository.findLowStockBooks();
+    public List<BookSummary> getLowStockBooks() {
+        return bookRepository.findLowStockSummaries();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookSummary> getLowStockBooks(Pageable pageable) {
+        return pageByStock(StockLevel.LOW_STOCK, pageable, () -> bookRepository.findLowStockSummaries(pageable));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countLowStockBooks() {
+        return bookStockIndex.isReady()
+                ? bookStockIndex.count(StockLevel.LOW_STOCK)
+                : bookRepository.countLowStockBooks();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookSummary> getOutOfStockBooks(Pageable pageable) {
+        return pageByStock(StockLevel.OUT_OF_STOCK, pageable, () -> bookRepository.findOutOfStockSummaries(pageable));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long countOutOfStockBooks() {
+        return bookStockIndex.isReady()
+                ? bookStockIndex.count(StockLevel.OUT_OF_STOCK)
+                : bookRepository.countOutOfStockBooks();
+    }
+    
+    // 辅助方法：在库存位图上按ID分页；索引未就绪或按其他字段排序时回退到数据库查询
+    private Page<BookSummary> pageByStock(StockLevel level, Pageable pageable, Supplier<Page<BookSummary>> fallback) {
+        if (!bookStockIndex.isReady() || pageable.isUnpaged() || !isSortedByIdOnly(pageable.getSort())) {
+            return fallback.get();
+        }
+        boolean descending = pageable.getSort().isSorted()
+                && pageable.getSort().iterator().next().isDescending();
+        
+        long[] ids = bookStockIndex.page(level, pageable.getOffset(), pageable.getPageSize(), descending);
+        List<Long> pageIds = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            pageIds.add(id);
+        }
+        return new PageImpl<>(loadSummariesInOrder(pageIds), pageable, bookStockIndex.count(level));
+    }
+    
+    // 辅助方法：索引已按相关度排好序，去掉请求中的排序按原顺序分页
+    private Pageable unsorted(Pageable pageable) {
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()) : pageable;
+    }
+    
+    // 辅助方法：在索引返回的升序ID数组上分页
+    private Page<BookSummary> pageOf(long[] ids, Pageable pageable) {
+        boolean descending = pageable.getSort().isSorted()
+                && pageable.getSort().iterator().next().isDescending();
+        
+        int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), ids.length) : 0;
+        int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), ids.length) : ids.length;
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(descending ? ids[ids.length - 1 - i] : ids[i]);
+        }
+        
+        return new PageImpl<>(loadSummariesInOrder(pageIds), pageable, ids.length);
+    }
+    
+    // 辅助方法：数据库键集分页（多取一条用于判断是否有下一页）
+    private CursorSlice<BookSummary> findAfter(String title, String author, String category,
+                                               String cursor, int size, Sort.Order order) {
+        Function<String, Object> valueParser = CURSOR_SORT_KEYS.get(order.getProperty());
+        if (valueParser == null) {
+            throw new IllegalArgumentException("不支持的游标排序字段: " + order.getProperty());
+        }
+        
+        KeysetCursor after = decodeCursor(cursor, order);
+        Object lastValue = after == null ? null : valueParser.apply(after.getLastValue());
+        Long lastId = after == null ? null : after.getLastId();
+        
+        List<BookSummary> rows = bookRepository.findAfter(title, author, category, null,
+                order.getProperty(), order.isDescending(), lastValue, lastId, size + 1);
+        
+        boolean hasNext = rows.size() > size;
+        List<BookSummary> books = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            BookSummary last = books.get(books.size() - 1);
+            nextCursor = KeysetCursor.after(order.getProperty(), order.isDescending(),
+                    last.getId(), sortValue(last, order.getProperty())).encode();
+        }
+        return new CursorSlice<>(books, hasNext, nextCursor);
+    }
+    
+    // 辅助方法：解析游标并校验与当前排序一致
+    private KeysetCursor decodeCursor(String cursor, Sort.Order order) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        if (!after.getProperty().equals(order.getProperty()) || after.isDescending() != order.isDescending()) {
+            throw new IllegalArgumentException("分页游标与排序参数不匹配");
+        }
+        return after;
+    }
+    
+    // 辅助方法：取图书摘要的排序字段值
+    private Object sortValue(BookSummary book, String property) {
+        switch (property) {
+            case "isbn":
+                return book.getIsbn();
+            case "title":
+                return book.getTitle();
+            case "author":
+                return book.getAuthor();
+            case "category":
+                return book.getCategory();
+            case "createdAt":
+                return book.getCreatedAt();
+            case "updatedAt":
+                return book.getUpdatedAt();
+            default:
+                return null;
+        }
+    }
+    
+    // 辅助方法：是否只按ID排序（或未排序）
+    private boolean isSortedByIdOnly(Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        List<Sort.Order> orders = sort.toList();
+        return orders.size() == 1 && "id".equals(orders.get(0).getProperty());
+    }
+    
+    // 辅助方法：按给定ID顺序批量加载图书摘要（投影查询，不创建托管实体）
+    private List<BookSummary> loadSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, BookSummary> summariesById = bookRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(BookSummary::getId, Function.identity()));
+        return ids.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
     
     // 辅助方法：转换为DTO
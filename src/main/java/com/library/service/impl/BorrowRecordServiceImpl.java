@@ -1,29 +1,59 @@
 package com.library.service.impl;
 
+import com.library.AppConstants;
+import com.library.aop.OptimisticRetry;
 import com.library.dto.BorrowRequestDTO;
 import com.library.entity.Book;
 import com.library.entity.BorrowRecord;
 import com.library.entity.User;
-import com.library.repository.BookRepository;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.event.UserChangedEvent;
 import com.library.repository.BorrowRecordRepository;
 import com.library.repository.UserRepository;
+import com.library.service.BookInventoryService;
 import com.library.service.BorrowRecordService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 借阅记录服务实现类
+ *
+ * 借阅和归还用带条件的 UPDATE 原子修改库存和用户借阅数（条件不满足时更新 0 行即失败），
+ * 不再读出实体改数量后整行保存，并发借阅同一本书不会互相覆盖而超借。
+ * 热门图书的库存行争用最多，放在借阅事务的最后一步更新，行锁只持有到提交；
+ * 开启库存分槽的图书改为扣减其中一个槽（见 {@link BookInventoryService}）。
+ *
+ * 借阅和归还各用一条查询取回所需的全部状态，随后只有几条条件更新；条件更新绕过了持久化上下文，
+ * 最后 refresh 涉及的实体，返回值和事件内容与数据库一致（包括其他节点同时所做的修改）：
+ * 借阅共 6 条语句，归还共 7 条（另有本地锁切面按记录查读者和图书的 1 条）。
+ *
+ * 重复借阅由 (user_id, book_id, active_loan) 唯一约束兜底；启动时为约束加入之前借出的记录补上标记。
  */
 @Service
 @Transactional
 public class BorrowRecordServiceImpl implements BorrowRecordService {
     
+    private static final Logger logger = LoggerFactory.getLogger(BorrowRecordServiceImpl.class);
+    
     @Autowired
     private BorrowRecordRepository borrowRecordRepository;
     
@@ -31,7 +61,13 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
     private UserRepository userRepository;
     
     @Autowired
-    private BookRepository bookRepository;
+    private BookInventoryService bookInventoryService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
     
     @Override
     public BorrowRecord createBorrowRecord(BorrowRequestDTO borrowRequest) {
@@ -40,30 +76,30 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
             throw new IllegalArgumentException("借阅请求无效");
         }
         
-        // 检查用户是否存在
-        User user = userRepository.findById(borrowRequest.getUserId())
-                .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + borrowRequest.getUserId()));
-        
-        // 检查图书是否存在
-        Book book = bookRepository.findById(borrowRequest.getBookId())
-                .orElseThrow(() -> new IllegalArgumentException("图书不存在: " + borrowRequest.getBookId()));
-        
-        // 检查用户是否可以借阅
-        if (!canUserBorrowMore(user.getId())) {
-            throw new IllegalStateException("用户已达到借阅上限");
+        // 一条查询取回用户、图书以及用户是否已借阅该书
+        List<Object[]> state = borrowRecordRepository.findBorrowState(
+                borrowRequest.getUserId(), borrowRequest.getBookId(), BorrowRecord.BorrowStatus.BORROWED);
+        if (state.isEmpty()) {
+            // 只在失败时再查一次，区分是用户还是图书不存在
+            if (!userRepository.existsById(borrowRequest.getUserId())) {
+                throw new IllegalArgumentException("用户不存在: " + borrowRequest.getUserId());
+            }
+            throw new IllegalArgumentException("图书不存在: " + borrowRequest.getBookId());
         }
+        User user = (User) state.get(0)[0];
+        Book book = (Book) state.get(0)[1];
         
-        // 检查图书是否可借
-        if (!book.isAvailable()) {
-            throw new IllegalStateException("图书不可借阅");
+        // 检查用户是否已借阅该书（并发重复借阅由 active_loan 唯一约束兜底）
+        if ((Long) state.get(0)[2] > 0) {
+            throw new IllegalStateException("用户已借阅该书");
         }
         
-        // 检查用户是否已借阅该书
-        if (hasUserBorrowedBook(user.getId(), book.getId())) {
-            throw new IllegalStateException("用户已借阅该书");
+        // 占用用户借阅名额
+        if (!userRepository.acquireBorrowSlot(user.getId())) {
+            throw new IllegalStateException("用户已达到借阅上限");
         }
         
-        // 创建借阅记录
+        // 创建借阅记录，立即 flush 让唯一约束在这里生效
         BorrowRecord record = new BorrowRecord();
         record.setUser(user);
         record.setBook(book);
@@ -71,58 +107,64 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
         record.setDueDate(LocalDate.now().plusDays(borrowRequest.getBorrowDays()));
         record.setStatus(BorrowRecord.BorrowStatus.BORROWED);
         record.setNotes(borrowRequest.getNotes());
+        BorrowRecord savedRecord;
+        try {
+            savedRecord = borrowRecordRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("用户已借阅该书");
+        }
         
-        // 更新用户借阅数量
-        user.incrementBorrowCount();
-        userRepository.save(user);
-        
-        // 更新图书库存
-        boolean borrowed = book.borrowOne();
-        if (!borrowed) {
-            throw new IllegalStateException("借阅失败：图书库存不足");
+        // 扣减图书库存
+        if (!bookInventoryService.borrowOne(book)) {
+            throw new IllegalStateException("图书不可借阅");
         }
-        bookRepository.save(book);
         
-        return borrowRecordRepository.save(record);
+        // 条件更新不会同步到已读出的实体，重新读取
+        entityManager.refresh(user);
+        entityManager.refresh(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+        eventPublisher.publishEvent(new BookBorrowedEvent(user.getId(), book.getId()));
+        return savedRecord;
     }
     
     @Override
     public BorrowRecord returnBook(Long recordId) {
-        BorrowRecord record = borrowRecordRepository.findById(recordId)
+        BorrowRecord record = borrowRecordRepository.findWithUserAndBookById(recordId)
                 .orElseThrow(() -> new IllegalArgumentException("借阅记录不存在: " + recordId));
         
         if (record.isReturned()) {
             throw new IllegalStateException("图书已归还");
         }
         
-        // 归还图书
-        record.returnBook();
-        
         // 检查是否超期并计算罚款
-        if (record.isOverdue()) {
-            double fine = calculateOverdueFine(recordId);
-            record.setFineAmount(fine);
-            
-            // 更新用户罚款
-            User user = record.getUser();
-            user.setFineAmount(user.getFineAmount() + fine);
-            userRepository.save(user);
+        Double fine = record.isOverdue() ? calculateOverdueFine(recordId) : null;
+        
+        // 归还图书：只有一个并发请求能把记录从未归还改为已归还
+        if (borrowRecordRepository.markReturned(recordId, LocalDate.now(), fine,
+                BorrowRecord.BorrowStatus.RETURNED) == 0) {
+            throw new IllegalStateException("图书已归还");
         }
         
-        // 更新用户借阅数量
-        User user = record.getUser();
-        user.decrementBorrowCount();
-        userRepository.save(user);
+        // 释放用户借阅名额并累加罚款
+        userRepository.decrementCurrentBorrowed(record.getUser().getId(), fine != null ? fine : 0.0);
         
-        // 更新图书库存
-        Book book = record.getBook();
-        book.returnOne();
-        bookRepository.save(book);
+        // 归还图书库存
+        bookInventoryService.returnOne(record.getBook());
         
-        return borrowRecordRepository.save(record);
+        // 条件更新不会同步到已读出的实体，重新读取
+        User user = (User) Hibernate.unproxy(record.getUser());
+        Book book = (Book) Hibernate.unproxy(record.getBook());
+        entityManager.refresh(record);
+        entityManager.refresh(user);
+        entityManager.refresh(book);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return record;
     }
     
     @Override
+    @OptimisticRetry
     public BorrowRecord renewBorrow(Long recordId, Integer additionalDays) {
         BorrowRecord record = borrowRecordRepository.findById(recordId)
                 .orElseThrow(() -> new IllegalArgumentException("借阅记录不存在: " + recordId));
@@ -199,17 +241,33 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
     public double calculateOverdueFine(Long recordId) {
         BorrowRecord record = getBorrowRecordById(recordId);
         
-        if (!record.isOverdue()) {
+        return record.calculateOverdueFine();
+    }
+    
+    @Override
+    @OptimisticRetry
+    public double applyOverdueFine(Long recordId) {
+        BorrowRecord record = getBorrowRecordById(recordId);
+        if (!record.isOverdue() || record.getFineAmount() != 0) {
             return 0.0;
         }
         
-        int overdueDays = record.getOverdueDays();
-        // 罚款规则：每天0.5元
-        double dailyFine = 0.5;
-        return overdueDays * dailyFine;
+        double fine = calculateOverdueFine(recordId);
+        record.setFineAmount(fine);
+        borrowRecordRepository.save(record);
+        
+        // 更新用户罚款总额
+        User user = record.getUser();
+        user.setFineAmount(user.getFineAmount() + fine);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+        
+        logger.info("计算罚款: 用户 {}, 图书 {}, 罚款金额: {}", user.getUsername(), record.getBook().getTitle(), fine);
+        return fine;
     }
     
     @Override
+    @OptimisticRetry
     public void payFine(Long recordId, double amount) {
         BorrowRecord record = getBorrowRecordById(recordId);
         
@@ -229,6 +287,7 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
         User user = record.getUser();
         user.setFineAmount(Math.max(0, user.getFineAmount() - amount));
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
     }
     
     @Override
@@ -267,4 +326,42 @@ public class BorrowRecordServiceImpl implements BorrowRecordService {
                 userId, bookId, BorrowRecord.BorrowStatus.BORROWED)
                 .isPresent();
     }
+    
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillActiveLoans() {
+        if (borrowRecordRepository.countUnmarkedLoans(BorrowRecord.BorrowStatus.RETURNED) == 0) {
+            return;
+        }
+        
+        // 每个（用户, 图书）只能有一条带标记的记录：已有标记的保留，否则标记其中最早的一条
+        Map<List<Long>, Long> marked = new HashMap<>();
+        List<Object[]> unmarked = new ArrayList<>();
+        for (Object[] row : borrowRecordRepository.findOpenLoans(BorrowRecord.BorrowStatus.RETURNED)) {
+            if (row[3] != null) {
+                marked.put(List.of((Long) row[1], (Long) row[2]), (Long) row[0]);
+            } else {
+                unmarked.add(row);
+            }
+        }
+        List<Long> ids = new ArrayList<>();
+        int duplicates = 0;
+        for (Object[] row : unmarked) {
+            if (marked.putIfAbsent(List.of((Long) row[1], (Long) row[2]), (Long) row[0]) == null) {
+                ids.add((Long) row[0]);
+            } else {
+                duplicates++;
+            }
+        }
+        
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += AppConstants.MULTI_GET_CHUNK_SIZE) {
+            updated += borrowRecordRepository.markActiveLoans(
+                    ids.subList(from, Math.min(ids.size(), from + AppConstants.MULTI_GET_CHUNK_SIZE)));
+        }
+        logger.info("为存量借阅记录补上借阅中标记: {} 条", updated);
+        if (duplicates > 0) {
+            logger.warn("{} 条未归还记录与同一用户同一图书的其他借阅重复，未补标记，请人工核对", duplicates);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.library.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.AppConstants;
+import com.library.entity.Book;
+import com.library.entity.BorrowRecord;
+import com.library.entity.User;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.repository.UserRepository;
+import com.library.service.ExportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 数据导出服务实现类
+ *
+ * 用带 fetch size 的只读查询流式读取，每行转换后立即写出；每写出一批清空一次持久化上下文，
+ * 已写出的实体可以被回收，堆内存占用与表大小无关。
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportServiceImpl implements ExportService {
+    
+    private static final List<Column<Book>> BOOK_COLUMNS = List.of(
+            new Column<>("id", Book::getId),
+            new Column<>("isbn", Book::getIsbn),
+            new Column<>("title", Book::getTitle),
+            new Column<>("author", Book::getAuthor),
+            new Column<>("publisher", Book::getPublisher),
+            new Column<>("publishDate", Book::getPublishDate),
+            new Column<>("category", Book::getCategory),
+            new Column<>("totalCopies", Book::getTotalCopies),
+            new Column<>("availableCopies", Book::getAvailableCopies),
+            new Column<>("location", Book::getLocation),
+            new Column<>("status", Book::getStatus),
+            new Column<>("price", Book::getPrice),
+            new Column<>("description", Book::getDescription),
+            new Column<>("isDeleted", Book::getIsDeleted),
+            new Column<>("createdAt", Book::getCreatedAt),
+            new Column<>("updatedAt", Book::getUpdatedAt)
+    );
+    
+    private static final List<Column<User>> USER_COLUMNS = List.of(
+            new Column<>("id", User::getId),
+            new Column<>("username", User::getUsername),
+            new Column<>("email", User::getEmail),
+            new Column<>("phone", User::getPhone),
+            new Column<>("realName", User::getRealName),
+            new Column<>("role", User::getRole),
+            new Column<>("status", User::getStatus),
+            new Column<>("maxBorrowLimit", User::getMaxBorrowLimit),
+            new Column<>("currentBorrowed", User::getCurrentBorrowed),
+            new Column<>("fineAmount", User::getFineAmount),
+            new Column<>("isDeleted", User::getIsDeleted),
+            new Column<>("lastLoginAt", User::getLastLoginAt),
+            new Column<>("createdAt", User::getCreatedAt),
+            new Column<>("updatedAt", User::getUpdatedAt)
+    );
+    
+    private static final List<Column<BorrowRecord>> BORROW_RECORD_COLUMNS = List.of(
+            new Column<>("id", BorrowRecord::getId),
+            new Column<>("userId", record -> record.getUser().getId()),
+            new Column<>("username", record -> record.getUser().getUsername()),
+            new Column<>("bookId", record -> record.getBook().getId()),
+            new Column<>("isbn", record -> record.getBook().getIsbn()),
+            new Column<>("title", record -> record.getBook().getTitle()),
+            new Column<>("borrowDate", BorrowRecord::getBorrowDate),
+            new Column<>("dueDate", BorrowRecord::getDueDate),
+            new Column<>("returnDate", BorrowRecord::getReturnDate),
+            new Column<>("status", BorrowRecord::getStatus),
+            new Column<>("fineAmount", BorrowRecord::getFineAmount),
+            new Column<>("notes", BorrowRecord::getNotes),
+            new Column<>("createdAt", BorrowRecord::getCreatedAt),
+            new Column<>("updatedAt", BorrowRecord::getUpdatedAt)
+    );
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public long exportBooks(Format format, OutputStream out) throws IOException {
+        try (Stream<Book> rows = bookRepository.streamAllForExport()) {
+            return write(rows, BOOK_COLUMNS, format, out);
+        }
+    }
+    
+    @Override
+    public long exportUsers(Format format, OutputStream out) throws IOException {
+        try (Stream<User> rows = userRepository.streamAllForExport()) {
+            return write(rows, USER_COLUMNS, format, out);
+        }
+    }
+    
+    @Override
+    public long exportBorrowRecords(Format format, OutputStream out) throws IOException {
+        try (Stream<BorrowRecord> rows = borrowRecordRepository.streamAllForExport()) {
+            return write(rows, BORROW_RECORD_COLUMNS, format, out);
+        }
+    }
+    
+    // 辅助方法：逐行写出，每批刷新输出并清空持久化上下文
+    private <T> long write(Stream<T> rows, List<Column<T>> columns, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writeCsvLine(writer, columns.stream().map(column -> (Object) column.name).toList());
+        }
+        
+        long count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            T row = iterator.next();
+            if (format == Format.CSV) {
+                writeCsvLine(writer, columns.stream().map(column -> column.value.apply(row)).toList());
+            } else {
+                Map<String, Object> json = new LinkedHashMap<>();
+                for (Column<T> column : columns) {
+                    json.put(column.name, column.value.apply(row));
+                }
+                writer.write(objectMapper.writeValueAsString(json));
+                writer.write('\n');
+            }
+            
+            if (++count % AppConstants.EXPORT_CLEAR_INTERVAL == 0) {
+                writer.flush();
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+    
+    private void writeCsvLine(Writer writer, List<Object> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+    
+    // 辅助方法：CSV 字段转义（含逗号、引号、换行时加引号，引号双写）
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Enum<?> ? ((Enum<?>) value).name() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+    
+    /**
+     * 导出列：列名和取值方法
+     */
+    private static final class Column<T> {
+        private final String name;
+        private final Function<T, Object> value;
+        
+        private Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
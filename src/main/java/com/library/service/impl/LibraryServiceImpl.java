@@ -1,29 +1,55 @@
 package com.library.service.impl;
 
+import com.library.AppConstants;
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BatchItemResultDTO.FailureReason;
+import com.library.dto.BookDTO;
 import com.library.dto.BorrowRequestDTO;
 import com.library.entity.Book;
 import com.library.entity.BorrowRecord;
 import com.library.entity.User;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import com.library.event.UserChangedEvent;
 import com.library.repository.BookRepository;
 import com.library.repository.BorrowRecordRepository;
 import com.library.repository.UserRepository;
+import com.library.search.CoBorrowRecommender;
+import com.library.service.BookInventoryService;
 import com.library.service.BookService;
 import com.library.service.BorrowRecordService;
 import com.library.service.LibraryService;
 import com.library.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 图书馆主服务实现类
+ *
+ * 借阅、归还、续借和超期罚款直接转给 {@link BorrowRecordService}，转发方法本身不开事务：
+ * 本地排队锁和乐观锁重试都套在 BorrowRecordService 的事务之外，加锁、事务、提交、解锁的顺序才成立，
+ * 版本冲突时也能在新事务中重试。
  */
 @Service
 @Transactional
@@ -47,6 +73,18 @@ public class LibraryServiceImpl implements LibraryService {
     @Autowired
     private BorrowRecordRepository borrowRecordRepository;
     
+    @Autowired
+    private BookInventoryService bookInventoryService;
+    
+    @Autowired
+    private CoBorrowRecommender coBorrowRecommender;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     @Override
     public User registerUser(User user) {
         return userService.createUser(user);
@@ -69,61 +107,238 @@ public class LibraryServiceImpl implements LibraryService {
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BorrowRecord borrowBook(BorrowRequestDTO borrowRequest) {
         return borrowRecordService.createBorrowRecord(borrowRequest);
     }
     
     @Override
-    public List<BorrowRecord> batchBorrowBooks(Long userId, List<Long> bookIds) {
-        List<BorrowRecord> records = new ArrayList<>();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResultDTO> batchBorrowBooks(Long userId, List<Long> bookIds) {
+        // 整批在一个事务中写入；flush 时违反借阅中唯一约束（校验之后其他事务提交了同一用户同一本书的借阅）则整批回滚，
+        // 改为每本书各自一个事务重做，冲突的那本记为已借阅，其余照常提交
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            return transactionTemplate.execute(status -> doBatchBorrow(userId, bookIds));
+        } catch (DataIntegrityViolationException e) {
+            List<BatchItemResultDTO> results = new ArrayList<>(bookIds.size());
+            Set<Long> seen = new HashSet<>();
+            for (Long bookId : bookIds) {
+                if (!seen.add(bookId)) {
+                    results.add(BatchItemResultDTO.failure(bookId, FailureReason.DUPLICATE_IN_BATCH, "同一批中重复的图书"));
+                    continue;
+                }
+                try {
+                    results.add(transactionTemplate.execute(status -> doBatchBorrow(userId, List.of(bookId))).get(0));
+                } catch (DataIntegrityViolationException conflict) {
+                    results.add(BatchItemResultDTO.failure(bookId, FailureReason.ALREADY_BORROWED, "用户已借阅该书"));
+                }
+            }
+            return results;
+        }
+    }
+    
+    private List<BatchItemResultDTO> doBatchBorrow(Long userId, List<Long> bookIds) {
+        // 加锁顺序：用户、普通图书行（按ID顺序）、分槽图书的槽（按图书ID顺序）；
+        // 分槽图书不锁图书行，与单本借阅和库存汇总先槽后图书行的顺序一致
+        User user = userRepository.lockById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + userId));
+        Set<Long> distinctIds = new LinkedHashSet<>(bookIds);
+        Map<Long, Book> books = new HashMap<>();
+        Set<Long> hotIds = loadBooks(distinctIds, books);
+        Set<Long> borrowing = distinctIds.isEmpty() ? Set.of() : new HashSet<>(borrowRecordRepository
+                .findBookIdsByUserAndStatus(userId, distinctIds, BorrowRecord.BorrowStatus.BORROWED));
         
+        // 在内存中逐项校验，行已锁住，读到的就是最新值；分槽图书先占名额，槽在最后统一扣减
+        boolean userAllowed = user.getStatus() == User.Status.ACTIVE && user.getFineAmount() == 0;
+        int remaining = user.getMaxBorrowLimit() - user.getCurrentBorrowed();
+        List<BatchItemResultDTO> results = new ArrayList<>(bookIds.size());
+        List<BorrowRecord> records = new ArrayList<>();
+        Map<Long, Integer> hotBorrows = new TreeMap<>();
+        Set<Long> seen = new HashSet<>();
         for (Long bookId : bookIds) {
-            BorrowRequestDTO request = new BorrowRequestDTO();
-            request.setUserId(userId);
-            request.setBookId(bookId);
-            request.setBorrowDays(30); // 默认30天
-            
-            try {
-                BorrowRecord record = borrowRecordService.createBorrowRecord(request);
+            Book book = books.get(bookId);
+            if (!seen.add(bookId)) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.DUPLICATE_IN_BATCH, "同一批中重复的图书"));
+            } else if (book == null || Boolean.TRUE.equals(book.getIsDeleted())) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.BOOK_NOT_FOUND, "图书不存在: " + bookId));
+            } else if (borrowing.contains(bookId)) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.ALREADY_BORROWED, "用户已借阅该书"));
+            } else if (!userAllowed) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.USER_NOT_ALLOWED, "用户已被禁用或有未缴罚款"));
+            } else if (records.size() >= remaining) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.BORROW_LIMIT_REACHED, "用户已达到借阅上限"));
+            } else if (!hotIds.contains(bookId) && book.isHotTitle()) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.BOOK_UNAVAILABLE, "图书正在切换库存模式，请重试"));
+            } else if (!hotIds.contains(bookId) && !book.borrowOne()) {
+                results.add(BatchItemResultDTO.failure(bookId, FailureReason.BOOK_UNAVAILABLE, "图书不可借阅"));
+            } else {
+                if (hotIds.contains(bookId)) {
+                    hotBorrows.put(bookId, results.size());
+                }
+                BorrowRecord record = new BorrowRecord();
+                record.setUser(user);
+                record.setBook(book);
+                record.setBorrowDate(LocalDate.now());
+                record.setDueDate(LocalDate.now().plusDays(AppConstants.DEFAULT_BORROW_DAYS));
+                record.setStatus(BorrowRecord.BorrowStatus.BORROWED);
                 records.add(record);
-            } catch (Exception e) {
-                // 记录错误但继续处理其他图书
-                System.err.println("借阅图书失败: " + bookId + ", 错误: " + e.getMessage());
+                results.add(BatchItemResultDTO.success(bookId, record));
             }
         }
         
-        return records;
+        // 普通图书行都已锁住，再按图书ID顺序扣减分槽图书的槽；
+        // 扣减失败的项改为失败，腾出的名额不再分给本批中因名额不足而失败的图书
+        for (Map.Entry<Long, Integer> entry : hotBorrows.entrySet()) {
+            if (!bookInventoryService.borrowOne(books.get(entry.getKey()))) {
+                BorrowRecord record = results.get(entry.getValue()).getRecord();
+                records.removeIf(candidate -> candidate == record);
+                results.set(entry.getValue(), BatchItemResultDTO.failure(entry.getKey(),
+                        FailureReason.BOOK_UNAVAILABLE, "图书不可借阅"));
+            }
+        }
+        if (records.isEmpty()) {
+            return results;
+        }
+        
+        // 用户借阅数一次加上整批数量；记录的 INSERT 和图书、用户的 UPDATE 在一次 flush 中按 JDBC 批量执行
+        user.setCurrentBorrowed(user.getCurrentBorrowed() + records.size());
+        borrowRecordRepository.saveAll(records);
+        borrowRecordRepository.flush();
+        
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+        for (BorrowRecord record : records) {
+            eventPublisher.publishEvent(BookChangedEvent.saved(record.getBook()));
+            eventPublisher.publishEvent(new BookBorrowedEvent(userId, record.getBook().getId()));
+        }
+        return results;
+    }
+    
+    // 分槽图书只读取不加锁，其余图书按ID顺序锁住，一并放入 books；返回分槽图书的ID。
+    // 读到ID之后才开启分槽的图书行也会被锁住，调用方不能再去扣减它的槽
+    private Set<Long> loadBooks(Collection<Long> ids, Map<Long, Book> books) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> hotIds = new HashSet<>(bookRepository.findHotTitleIdsByIdIn(ids));
+        List<Long> plainIds = ids.stream().filter(id -> !hotIds.contains(id)).collect(Collectors.toList());
+        if (!plainIds.isEmpty()) {
+            bookRepository.lockByIdIn(plainIds).forEach(book -> books.put(book.getId(), book));
+        }
+        if (!hotIds.isEmpty()) {
+            bookRepository.findAllById(hotIds).forEach(book -> books.put(book.getId(), book));
+        }
+        return hotIds;
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BorrowRecord returnBook(Long recordId) {
         return borrowRecordService.returnBook(recordId);
     }
     
     @Override
-    public List<BorrowRecord> batchReturnBooks(Long userId, List<Long> recordIds) {
-        List<BorrowRecord> records = new ArrayList<>();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResultDTO> batchReturnBooks(Long userId, List<Long> recordIds) {
+        // 与批量借阅相同：整批 flush 冲突时回滚，改为每条记录各自一个事务重做，冲突的那条记为失败，其余照常提交
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            return transactionTemplate.execute(status -> doBatchReturn(userId, recordIds));
+        } catch (DataIntegrityViolationException e) {
+            List<BatchItemResultDTO> results = new ArrayList<>(recordIds.size());
+            Set<Long> seen = new HashSet<>();
+            for (Long recordId : recordIds) {
+                if (!seen.add(recordId)) {
+                    results.add(BatchItemResultDTO.failure(recordId, FailureReason.DUPLICATE_IN_BATCH, "同一批中重复的借阅记录"));
+                    continue;
+                }
+                try {
+                    results.add(transactionTemplate.execute(status -> doBatchReturn(userId, List.of(recordId))).get(0));
+                } catch (DataIntegrityViolationException conflict) {
+                    results.add(BatchItemResultDTO.failure(recordId, FailureReason.CONFLICT, "与其他操作冲突，请重试"));
+                }
+            }
+            return results;
+        }
+    }
+    
+    private List<BatchItemResultDTO> doBatchReturn(Long userId, List<Long> recordIds) {
+        // 加锁顺序与单本归还一致：借阅记录、用户、图书；图书中普通图书行在前，分槽图书的槽在后
+        Set<Long> distinctIds = new LinkedHashSet<>(recordIds);
+        Map<Long, BorrowRecord> loaded = distinctIds.isEmpty() ? Map.of() : borrowRecordRepository
+                .lockByIdIn(distinctIds).stream()
+                .collect(Collectors.toMap(BorrowRecord::getId, Function.identity()));
+        User user = userRepository.lockById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + userId));
         
+        List<BatchItemResultDTO> results = new ArrayList<>(recordIds.size());
+        List<BorrowRecord> records = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
         for (Long recordId : recordIds) {
-            try {
-                BorrowRecord record = borrowRecordService.getBorrowRecordById(recordId);
-                
-                // 验证记录属于该用户
-                if (!record.getUser().getId().equals(userId)) {
-                    throw new IllegalArgumentException("记录不属于该用户");
-                }
-                
-                BorrowRecord returnedRecord = borrowRecordService.returnBook(recordId);
-                records.add(returnedRecord);
-            } catch (Exception e) {
-                System.err.println("归还图书失败: " + recordId + ", 错误: " + e.getMessage());
+            BorrowRecord record = loaded.get(recordId);
+            if (!seen.add(recordId)) {
+                results.add(BatchItemResultDTO.failure(recordId, FailureReason.DUPLICATE_IN_BATCH, "同一批中重复的借阅记录"));
+            } else if (record == null) {
+                results.add(BatchItemResultDTO.failure(recordId, FailureReason.RECORD_NOT_FOUND, "借阅记录不存在: " + recordId));
+            } else if (!record.getUser().getId().equals(userId)) {
+                results.add(BatchItemResultDTO.failure(recordId, FailureReason.NOT_OWNER, "记录不属于该用户"));
+            } else if (record.isReturned()) {
+                results.add(BatchItemResultDTO.failure(recordId, FailureReason.ALREADY_RETURNED, "图书已归还"));
+            } else {
+                records.add(record);
+                positions.add(results.size());
+                results.add(BatchItemResultDTO.success(recordId, record));
             }
         }
+        if (records.isEmpty()) {
+            return results;
+        }
         
-        return records;
+        // 一次取回涉及的图书（普通图书锁住），逐项在内存中归还，用户借阅数和罚款一次调整
+        Map<Long, Book> books = new HashMap<>();
+        Set<Long> hotIds = loadBooks(records.stream()
+                .map(record -> record.getBook().getId())
+                .collect(Collectors.toCollection(TreeSet::new)), books);
+        Set<Long> hotReturns = new TreeSet<>();
+        int returned = 0;
+        double totalFine = 0.0;
+        for (int i = 0; i < records.size(); i++) {
+            BorrowRecord record = records.get(i);
+            Long bookId = record.getBook().getId();
+            Book book = books.get(bookId);
+            if (!hotIds.contains(bookId) && book.isHotTitle()) {
+                results.set(positions.get(i), BatchItemResultDTO.failure(record.getId(),
+                        FailureReason.BOOK_UNAVAILABLE, "图书正在切换库存模式，请重试"));
+                continue;
+            }
+            double fine = record.calculateOverdueFine();
+            record.returnBook();
+            if (fine > 0) {
+                record.setFineAmount(fine);
+                totalFine += fine;
+            }
+            if (hotIds.contains(bookId)) {
+                hotReturns.add(bookId);
+            } else {
+                book.returnOne();
+            }
+            returned++;
+        }
+        
+        // 普通图书行都已锁住，再按图书ID顺序把分槽图书加回槽
+        hotReturns.forEach(bookId -> bookInventoryService.returnOne(books.get(bookId)));
+        user.setCurrentBorrowed(Math.max(0, user.getCurrentBorrowed() - returned));
+        user.setFineAmount((user.getFineAmount() != null ? user.getFineAmount() : 0.0) + totalFine);
+        borrowRecordRepository.flush();
+        
+        eventPublisher.publishEvent(new UserChangedEvent(user));
+        books.values().forEach(book -> eventPublisher.publishEvent(BookChangedEvent.saved(book)));
+        return results;
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BorrowRecord renewBook(Long recordId, Integer additionalDays) {
         return borrowRecordService.renewBorrow(recordId, additionalDays);
     }
@@ -147,6 +362,7 @@ public class LibraryServiceImpl implements LibraryService {
         // 实际应该创建预约记录
         book.setStatus(Book.BookStatus.RESERVED);
         bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
         
         return book;
     }
@@ -159,6 +375,7 @@ public class LibraryServiceImpl implements LibraryService {
         if (book.getStatus() == Book.BookStatus.RESERVED) {
             book.setStatus(Book.BookStatus.AVAILABLE);
             bookRepository.save(book);
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
         }
     }
     
@@ -173,8 +390,8 @@ public class LibraryServiceImpl implements LibraryService {
         
         // 图书统计
         long totalBooks = bookRepository.count();
-        List<Book> availableBooks = bookService.getAvailableBooks();
-        List<Book> lowStockBooks = bookService.getLowStockBooks();
+        long availableBooks = bookService.countAvailableBooks();
+        long lowStockBooks = bookService.countLowStockBooks();
         
         // 借阅统计
         Object[] borrowStats = borrowRecordService.getBorrowStatistics();
@@ -182,8 +399,8 @@ public class LibraryServiceImpl implements LibraryService {
         overview.put("totalUsers", totalUsers);
         overview.put("activeUsers", activeUsers);
         overview.put("totalBooks", totalBooks);
-        overview.put("availableBooks", availableBooks.size());
-        overview.put("lowStockBooks", lowStockBooks.size());
+        overview.put("availableBooks", availableBooks);
+        overview.put("lowStockBooks", lowStockBooks);
         overview.put("totalBorrows", borrowStats[0]);
         overview.put("currentBorrows", borrowStats[1]);
         overview.put("overdueBorrows", borrowStats[2]);
@@ -194,12 +411,18 @@ public class LibraryServiceImpl implements LibraryService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Book> getRecommendedBooks(int limit) {
-        // 简单实现：返回最新的图书
-        // 实际应该根据借阅历史和用户偏好推荐
-        return bookRepository.findAll().stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+    public List<BookDTO> getRecommendedBooks(int limit) {
+        return bookService.getPopularBooks(null, limit);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getRecommendedBooksForUser(Long userId, int limit) {
+        long[] ids = coBorrowRecommender.recommendForUser(userId, limit);
+        if (ids.length == 0) {
+            return bookService.getPopularBooks(null, limit);
+        }
+        return bookService.getBookDTOsByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
     }
     
     @Override
@@ -247,25 +470,12 @@ public class LibraryServiceImpl implements LibraryService {
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processOverdueFines() {
-        List<BorrowRecord> overdue = borrowRecordService.getOverdueRecords();
-        LocalDate today = LocalDate.now();
-        
-        for (BorrowRecord record : overdue) {
-            // 如果尚未计算罚款
+        // 每条记录单独一个事务，版本冲突时只重试这一条
+        for (BorrowRecord record : borrowRecordService.getOverdueRecords()) {
             if (record.getFineAmount() == 0) {
-                double fine = borrowRecordService.calculateOverdueFine(record.getId());
-                record.setFineAmount(fine);
-                borrowRecordRepository.save(record);
-                
-                // 更新用户罚款总额
-                User user = record.getUser();
-                user.setFineAmount(user.getFineAmount() + fine);
-                userRepository.save(user);
-                
-                System.out.println("计算罚款: 用户 " + user.getUsername() + 
-                        ", 图书 " + record.getBook().getTitle() + 
-                        ", 罚款金额: " + fine);
+                borrowRecordService.applyOverdueFine(record.getId());
             }
         }
     }
@@ -1,14 +1,22 @@
 package com.library.service.impl;
 
+import com.library.AppConstants;
+import com.library.cache.EntityCacheLoader;
 import com.library.dto.UserDTO;
 import com.library.entity.User;
+import com.library.event.UserChangedEvent;
 import com.library.repository.UserRepository;
+import com.library.search.ExistenceFilter;
 import com.library.service.UserService;
+import com.library.util.PinyinUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -27,18 +35,27 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private EntityCacheLoader entityCacheLoader;
+    
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private ExistenceFilter existenceFilter;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Override
     public User createUser(User user) {
         // 验证用户名和邮箱
-        if (userRepository.existsByUsername(user.getUsername())) {
+        if (existenceFilter.exists(ExistenceFilter.Key.USERNAME, user.getUsername(), userRepository::existsByUsername)) {
             throw new IllegalArgumentException("用户名已存在: " + user.getUsername());
         }
         
         if (StringUtils.hasText(user.getEmail()) && 
-            userRepository.existsByEmail(user.getEmail())) {
+            existenceFilter.exists(ExistenceFilter.Key.EMAIL, user.getEmail(), userRepository::existsByEmail)) {
             throw new IllegalArgumentException("邮箱已存在: " + user.getEmail());
         }
         
@@ -62,7 +79,10 @@ public class UserServiceImpl implements UserService {
             user.setStatus(User.Status.ACTIVE);
         }
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        existenceFilter.add(ExistenceFilter.Key.USERNAME, savedUser.getUsername());
+        existenceFilter.add(ExistenceFilter.Key.EMAIL, savedUser.getEmail());
+        return savedUser;
     }
     
     @Override
@@ -73,10 +93,11 @@ public class UserServiceImpl implements UserService {
         // 更新基本信息
         if (StringUtils.hasText(user.getEmail()) && 
             !user.getEmail().equals(existingUser.getEmail())) {
-            if (userRepository.existsByEmail(user.getEmail())) {
+            if (existenceFilter.exists(ExistenceFilter.Key.EMAIL, user.getEmail(), userRepository::existsByEmail)) {
                 throw new IllegalArgumentException("邮箱已存在: " + user.getEmail());
             }
             existingUser.setEmail(user.getEmail());
+            existenceFilter.add(ExistenceFilter.Key.EMAIL, user.getEmail());
         }
         
         if (StringUtils.hasText(user.getPhone())) {
@@ -91,7 +112,9 @@ public class UserServiceImpl implements UserService {
             existingUser.setMaxBorrowLimit(user.getMaxBorrowLimit());
         }
         
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser));
+        return savedUser;
     }
     
     @Override
@@ -102,6 +125,7 @@ public class UserServiceImpl implements UserService {
         user.setStatus(User.Status.INACTIVE);
         user.setIsDeleted(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
     }
     
     @Override
@@ -141,12 +165,12 @@ public class UserServiceImpl implements UserService {
             return userRepository.findAll(pageable);
         }
         
-        // 搜索用户名和真实姓名
-        return userRepository.findByUsernameContainingIgnoreCaseOrRealNameContainingIgnoreCase(
-                keyword, keyword, pageable);
+        // 搜索用户名和真实姓名；输入为字母时同时按姓名拼音前缀匹配（如 "zs"、"zhangsan" 匹配 "张三"）
+        return userRepository.searchByKeywordOrPinyin(keyword, PinyinUtils.asPinyinQuery(keyword), pageable);
     }
     
     @Override
+    @Cacheable(value = AppConstants.CACHE_USER_DTOS, key = "#userId")
     @Transactional(readOnly = true)
     public UserDTO getUserDTOById(Long userId) {
         User user = userRepository.findById(userId)
@@ -155,6 +179,14 @@ public class UserServiceImpl implements UserService {
         return convertToDTO(user);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUserDTOsByIds(List<Long> userIds) {
+        return entityCacheLoader.getAll(AppConstants.CACHE_USER_DTOS, userIds, UserDTO.class,
+                ids -> userRepository.findByIdIn(ids).stream()
+                        .collect(Collectors.toMap(User::getId, this::convertToDTO)));
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<UserDTO> getAllUserDTOs() {
@@ -169,7 +201,9 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + userId));
         
         user.setStatus(status);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser));
+        return savedUser;
     }
     
     @Override
@@ -178,7 +212,9 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new IllegalArgumentException("用户不存在: " + userId));
         
         user.setRole(role);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser));
+        return savedUser;
     }
     
     @Override
@@ -193,19 +229,20 @@ public class UserServiceImpl implements UserService {
         return passwordEncoder.matches(password, user.getPasswordHash());
     }
     
+    // 不开启事务：过滤器判定不存在时连数据库连接都不需要获取
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean isUsernameAvailable(String username) {
-        return !userRepository.existsByUsername(username);
+        return !existenceFilter.exists(ExistenceFilter.Key.USERNAME, username, userRepository::existsByUsername);
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean isEmailAvailable(String email) {
         if (!StringUtils.hasText(email)) {
             return true;
         }
-        return !userRepository.existsByEmail(email);
+        return !existenceFilter.exists(ExistenceFilter.Key.EMAIL, email, userRepository::existsByEmail);
     }
     
     @Override
@@ -215,6 +252,7 @@ public class UserServiceImpl implements UserService {
         
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
     }
     
     @Override
@@ -224,6 +262,7 @@ public class UserServiceImpl implements UserService {
         
         user.setLastLoginAt(LocalDateTime.now());
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user));
     }
     
     @Override
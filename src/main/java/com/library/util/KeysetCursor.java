@@ -0,0 +1,76 @@
+package com.library.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集分页（seek）游标
+ *
+ * 记录上一页最后一行的排序字段值和ID，编码为不透明的 Base64 字符串返回给客户端，
+ * 下一页用 "排序字段 > 值 OR (排序字段 = 值 AND id > 上一个id)" 定位，不再需要 OFFSET。
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String property;
+    private final boolean descending;
+    private final Long lastId;
+    private final String lastValue;
+
+    private KeysetCursor(String property, boolean descending, Long lastId, String lastValue) {
+        this.property = property;
+        this.descending = descending;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * 根据上一页最后一行生成游标
+     */
+    public static KeysetCursor after(String property, boolean descending, Long lastId, Object lastValue) {
+        return new KeysetCursor(property, descending, lastId, lastValue == null ? "" : lastValue.toString());
+    }
+
+    /**
+     * 解析客户端传回的游标
+     *
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new KeysetCursor(parts[0], "desc".equals(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    /**
+     * 编码为不透明字符串（值放在最后，可以包含任意字符）
+     */
+    public String encode() {
+        String raw = property + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public String getLastValue() {
+        return lastValue;
+    }
+}
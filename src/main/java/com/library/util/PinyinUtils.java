@@ -0,0 +1,114 @@
+package com.library.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 汉字转拼音工具
+ *
+ * 全拼为各音节直接拼接（"红楼梦" -> "hongloumeng"），首字母为每个音节或单词的首字母（"hlm"）；
+ * 字母数字原样保留为小写单词，其余字符忽略。多音字取第一个读音。
+ * 转换结果在保存实体时写入数据库，检索时不再逐条转换。
+ */
+public final class PinyinUtils {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtils() {
+    }
+
+    /**
+     * 全拼（无声调、无分隔）
+     */
+    public static String toPinyin(String text) {
+        return String.join("", syllables(text));
+    }
+
+    /**
+     * 拼音首字母
+     */
+    public static String toInitials(String text) {
+        StringBuilder initials = new StringBuilder();
+        for (String syllable : syllables(text)) {
+            initials.append(syllable.charAt(0));
+        }
+        return initials.toString();
+    }
+
+    /**
+     * 查询串是否可能是拼音（只含字母、数字和空白），返回去掉空白后的小写形式，否则返回 null
+     */
+    public static String asPinyinQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder compact = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c > 0x7f || !Character.isLetterOrDigit(c)) {
+                return null;
+            }
+            compact.append(Character.toLowerCase(c));
+        }
+        return compact.length() == 0 ? null : compact.toString();
+    }
+
+    // 切分为音节：汉字逐字转拼音，连续的字母数字作为一个单词
+    private static List<String> syllables(String text) {
+        List<String> syllables = new ArrayList<>();
+        if (text == null) {
+            return syllables;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String pinyin = toPinyin(c);
+            if (pinyin != null) {
+                flush(syllables, word);
+                syllables.add(pinyin);
+            } else if (Character.isLetterOrDigit(c) && c <= 0x7f) {
+                word.append(c);
+            } else {
+                flush(syllables, word);
+            }
+        }
+        flush(syllables, word);
+        return syllables;
+    }
+
+    private static String toPinyin(char c) {
+        if (c <= 0x7f) {
+            return null;
+        }
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings == null || readings.length == 0 ? null : readings[0];
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+
+    private static void flush(List<String> syllables, StringBuilder word) {
+        if (word.length() > 0) {
+            syllables.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 乐观锁重试切面测试
+ */
+class OptimisticRetryAspectTest {
+
+    private final OptimisticRetryAspect aspect = new OptimisticRetryAspect();
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void testRetriesUntilSuccess() {
+        ConflictingService service = proxy(new ConflictingService(2));
+        assertEquals("ok", service.update());
+        assertEquals(3, service.attempts());
+
+        Map<String, Long> counters = counters();
+        assertEquals(1L, counters.get("calls"));
+        assertEquals(2L, counters.get("conflicts"));
+        assertEquals(2L, counters.get("retries"));
+        assertEquals(0L, counters.get("exhausted"));
+    }
+
+    @Test
+    void testGivesUpWhenBudgetIsExhausted() {
+        ConflictingService service = proxy(new ConflictingService(10));
+        assertThrows(ObjectOptimisticLockingFailureException.class, service::update);
+        assertEquals(3, service.attempts());
+        assertEquals(1L, counters().get("exhausted"));
+
+        // 非冲突异常不重试
+        ConflictingService failing = proxy(new ConflictingService(0));
+        assertThrows(IllegalStateException.class, failing::fail);
+        assertEquals(1, failing.attempts());
+    }
+
+    @Test
+    void testNoRetryInsideOuterTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        ConflictingService service = proxy(new ConflictingService(1));
+        assertThrows(ObjectOptimisticLockingFailureException.class, service::update);
+        assertEquals(1, service.attempts());
+        assertEquals(1L, counters().get("conflicts"));
+        assertEquals(0L, counters().get("retries"));
+    }
+
+    @Test
+    void testBackoffGrowsWithinBounds() {
+        OptimisticRetry retry = ConflictingService.retryConfig();
+        for (int i = 0; i < 100; i++) {
+            long first = OptimisticRetryAspect.backoffMillis(retry, 1);
+            long third = OptimisticRetryAspect.backoffMillis(retry, 3);
+            long late = OptimisticRetryAspect.backoffMillis(retry, 30);
+            assertTrue(first >= 5 && first <= 10, "首次退避: " + first);
+            assertTrue(third >= 20 && third <= 40, "第三次退避: " + third);
+            assertTrue(late >= 25 && late <= 50, "退避上限: " + late);
+        }
+    }
+
+    private ConflictingService proxy(ConflictingService target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> counters() {
+        return (Map<String, Long>) aspect.metrics().get("ConflictingService.update");
+    }
+
+    static class ConflictingService {
+
+        private final int conflicts;
+        private int attempts;
+
+        ConflictingService() {
+            this(0);
+        }
+
+        ConflictingService(int conflicts) {
+            this.conflicts = conflicts;
+        }
+
+        @OptimisticRetry(backoffMillis = 10, maxBackoffMillis = 50)
+        public String update() {
+            if (attempts++ < conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+            return "ok";
+        }
+
+        @OptimisticRetry(backoffMillis = 10, maxBackoffMillis = 50)
+        public void fail() {
+            attempts++;
+            throw new IllegalStateException("不是版本冲突");
+        }
+
+        public int attempts() {
+            return attempts;
+        }
+
+        static OptimisticRetry retryConfig() {
+            try {
+                return ConflictingService.class.getMethod("update").getAnnotation(OptimisticRetry.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
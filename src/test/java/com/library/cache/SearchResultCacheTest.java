@@ -0,0 +1,112 @@
+package com.library.cache;
+
+import com.library.entity.Book;
+import com.library.event.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 搜索结果缓存测试
+ */
+class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testKeyIsNormalized() {
+        load(SearchResultCache.Filter.search(" Java ", null, null, null), "page:0");
+        load(SearchResultCache.Filter.search("java", "", null, null), "page:0");
+        assertEquals(1, loads.get());
+
+        load(SearchResultCache.Filter.search("java", null, null, null), "page:1");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testOnlyMatchingEntriesInvalidated() {
+        SearchResultCache.Filter java = SearchResultCache.Filter.search("java", null, null, null);
+        SearchResultCache.Filter dream = SearchResultCache.Filter.search("hlm", null, null, null);
+        SearchResultCache.Filter computer = SearchResultCache.Filter.category("计算机");
+        load(java, "page:0");
+        load(dream, "page:0");
+        load(computer, "list");
+        assertEquals(3, loads.get());
+
+        // 新增一本计算机类 Java 图书：标题和分类条件受影响，拼音查询 "hlm" 不受影响
+        cache.onBookChanged(BookChangedEvent.saved(book("Java编程思想", "计算机")));
+        load(java, "page:0");
+        load(dream, "page:0");
+        load(computer, "list");
+        assertEquals(5, loads.get());
+
+        // 修改标题：修改前能命中的查询也要失效
+        Book before = book("红楼梦", "文学");
+        Book after = book("石头记", "文学");
+        cache.onBookChanged(BookChangedEvent.updated(before, after));
+        load(java, "page:0");
+        load(dream, "page:0");
+        assertEquals(6, loads.get());
+    }
+
+    @Test
+    void testResultLoadedDuringInvalidationNotCached() {
+        SearchResultCache.Filter java = SearchResultCache.Filter.search("java", null, null, null);
+        cache.get(java, "page:0", () -> {
+            cache.onBookChanged(BookChangedEvent.saved(book("Java", "计算机")));
+            return List.of();
+        });
+        load(java, "page:0");
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testUnrelatedInvalidationDoesNotBlockCaching() {
+        SearchResultCache.Filter java = SearchResultCache.Filter.search("java", null, null, null);
+        SearchResultCache.Filter computer = SearchResultCache.Filter.category("计算机");
+        cache.get(java, "page:0", () -> {
+            cache.onBookChanged(BookChangedEvent.saved(book("红楼梦", "文学")));
+            return List.of();
+        });
+        cache.get(computer, "list", () -> {
+            cache.onBookChanged(BookChangedEvent.saved(book("算法导论", "编程")));
+            return List.of();
+        });
+        load(java, "page:0");
+        load(computer, "list");
+        assertEquals(0, loads.get());
+
+        // 分类比较不区分大小写、重音，修改前的分类也要失效
+        SearchResultCache.Filter novel = SearchResultCache.Filter.category("Novel");
+        load(novel, "list");
+        cache.onBookChanged(BookChangedEvent.updated(book("A", " novel "), book("A", "诗歌")));
+        load(novel, "list");
+        assertEquals(2, loads.get());
+    }
+
+    private void load(SearchResultCache.Filter filter, String variant) {
+        cache.get(filter, variant, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+    }
+
+    private Book book(String title, String category) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("作者");
+        book.setCategory(category);
+        return book;
+    }
+}
@@ -129,7 +129,7 @@ class ControllerTest {
         mockMvc.perform(get("/api/books/available"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray());
+                .andExpect(jsonPath("$.data.content").isArray());
         
         System.out.println("图书API测试通过 ✓");
     }
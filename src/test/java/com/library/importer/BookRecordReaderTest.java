@@ -0,0 +1,141 @@
+package com.library.importer;
+
+import com.library.entity.Book;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 导入文件读取器测试
+ */
+class BookRecordReaderTest {
+
+    @Test
+    void testCsvQuotingAndColumnNames() throws Exception {
+        String csv = "\uFEFFISBN,Title,author,publish_date,totalCopies,price,unknown\r\n"
+                + "978-7-111-00001-1,\"Java, 第二版\",张三,2020-01,3,59.5,x\r\n"
+                + "\r\n"
+                + "978-7-111-00002-2,\"多行\n\"\"描述\"\"\",李四,,,,\r\n"
+                + "978-7-111-00003-3,错误价格,王五,,1,abc,\r\n"
+                + "978-7-111-00004-4,最后一行,赵六";
+
+        try (CsvBookReader reader = new CsvBookReader(stream(csv))) {
+            Book first = reader.next();
+            assertEquals("978-7-111-00001-1", first.getIsbn());
+            assertEquals("Java, 第二版", first.getTitle());
+            assertEquals("2020-01", first.getPublishDate());
+            assertEquals(3, first.getTotalCopies());
+            assertEquals(59.5, first.getPrice());
+
+            Book second = reader.next();
+            assertEquals("多行\n\"描述\"", second.getTitle());
+            assertNull(second.getPublishDate());
+            assertNull(second.getTotalCopies());
+
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertEquals("最后一行", reader.next().getTitle());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testCsvSkipResumesAfterCheckpoint() throws Exception {
+        StringBuilder csv = new StringBuilder("isbn,title,author\n");
+        for (int i = 0; i < 10; i++) {
+            csv.append("isbn-").append(i).append(",标题").append(i).append(",作者\n");
+        }
+        try (CsvBookReader reader = new CsvBookReader(stream(csv.toString()))) {
+            reader.skip(7);
+            assertEquals("isbn-7", reader.next().getIsbn());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new CsvBookReader(stream("isbn,title\n1,2\n")));
+    }
+
+    @Test
+    void testMarc21Record() throws Exception {
+        byte[] record = marc(
+                "001", "ocm123",
+                "020", "  \u001Fa9780134685991 (paperback)",
+                "100", "1 \u001FaBloch, Joshua,",
+                "245", "10\u001FaEffective Java /\u001Fbthird edition :\u001FcJoshua Bloch.",
+                "264", " 1\u001FaBoston :\u001FbAddison-Wesley,\u001Fc2018.",
+                "650", " 0\u001FaJava (Computer program language)");
+
+        try (MarcBookReader reader = new MarcBookReader(new ByteArrayInputStream(concat(record, record)))) {
+            Book book = reader.next();
+            assertEquals("9780134685991", book.getIsbn());
+            assertEquals("Effective Java: third edition", book.getTitle());
+            assertEquals("Bloch, Joshua", book.getAuthor());
+            assertEquals("Addison-Wesley", book.getPublisher());
+            assertEquals("2018", book.getPublishDate());
+            assertEquals("Java (Computer program language)", book.getCategory());
+            assertNotNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testCnmarcRecordAndBrokenRecord() throws Exception {
+        byte[] record = marc(
+                "010", "  \u001Fa978-7-02-000220-7\u001FdCNY59.70",
+                "200", "1 \u001Fa红楼梦\u001Ff曹雪芹著",
+                "210", "  \u001Fa北京\u001Fc人民文学出版社\u001Fd1996",
+                "690", "  \u001FaI242.4");
+        byte[] broken = "00050nam  22000xx   4500".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(broken);
+        file.write(0x1D);
+        file.write('\n');
+        file.write(record);
+
+        try (MarcBookReader reader = new MarcBookReader(new ByteArrayInputStream(file.toByteArray()))) {
+            assertThrows(IllegalArgumentException.class, reader::next);
+            Book book = reader.next();
+            assertEquals("978-7-02-000220-7", book.getIsbn());
+            assertEquals("红楼梦", book.getTitle());
+            assertEquals("曹雪芹著", book.getAuthor());
+            assertEquals("人民文学出版社", book.getPublisher());
+            assertEquals("I242.4", book.getCategory());
+            assertEquals(59.7, book.getPrice());
+            assertNull(reader.next());
+        }
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 按 ISO 2709 组装一条记录：头标区 + 目次区 + 字段区 + 记录结束符
+    private static byte[] marc(String... tagsAndData) {
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int i = 0; i < tagsAndData.length; i += 2) {
+            byte[] field = (tagsAndData[i + 1] + "\u001E").getBytes(StandardCharsets.UTF_8);
+            directory.writeBytes(String.format("%s%04d%05d", tagsAndData[i], field.length, data.size())
+                    .getBytes(StandardCharsets.US_ASCII));
+            data.writeBytes(field);
+        }
+        directory.write(0x1E);
+        int base = 24 + directory.size();
+        int length = base + data.size() + 1;
+        String leader = String.format("%05dnam a22%05d   4500", length, base);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        record.writeBytes(leader.getBytes(StandardCharsets.US_ASCII));
+        record.writeBytes(directory.toByteArray());
+        record.writeBytes(data.toByteArray());
+        record.write(0x1D);
+        return record.toByteArray();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package com.library.lock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 借还本地分段锁测试
+ */
+class StripedLockManagerTest {
+
+    @Test
+    void testStripesOrderedAndDeduplicated() {
+        StripedLockManager manager = new StripedLockManager(16, 1000);
+        int[] stripes = manager.stripesInOrder(List.of(3L, 1L, 3L, 2L), List.of(1L, 1L));
+        for (int i = 1; i < stripes.length; i++) {
+            assertTrue(stripes[i] > stripes[i - 1], "段号应严格升序");
+        }
+        // 图书段在前（< 16），用户段在后（>= 16），同一ID重复出现只锁一次
+        assertTrue(stripes[stripes.length - 1] >= 16);
+        assertEquals(1, Arrays.stream(stripes).filter(s -> s >= 16).count());
+        assertTrue(Arrays.stream(stripes).filter(s -> s < 16).count() <= 3);
+    }
+
+    @Test
+    void testSameBookIsSerialized() throws InterruptedException {
+        StripedLockManager manager = new StripedLockManager(64, 5000);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        runThreads(16, 200, (thread, i) -> {
+            try (StripedLockManager.Held held = manager.acquire("borrow", 7L, (long) thread)) {
+                assertTrue(held.isLocked());
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                inside.decrementAndGet();
+            }
+        });
+        assertEquals(1, maxInside.get(), "同一本书同时只能有一个线程持有锁");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> borrow = (Map<String, Object>) manager.metrics().get("borrow");
+        assertEquals(16L * 200, borrow.get("acquired"));
+        assertEquals(0L, borrow.get("timeouts"));
+    }
+
+    @Test
+    void testRandomMultiKeyLockingDoesNotDeadlock() throws InterruptedException {
+        // 每个线程随机锁多本书和多位读者，如果加锁顺序不一致，很快就会互相等待到超时
+        StripedLockManager manager = new StripedLockManager(8, 10_000);
+        runThreads(8, 2000, (thread, i) -> {
+            Random random = new Random(thread * 100_000L + i);
+            List<Long> books = new ArrayList<>();
+            List<Long> users = new ArrayList<>();
+            for (int k = 0; k < 3; k++) {
+                books.add((long) random.nextInt(20));
+                users.add((long) random.nextInt(20));
+            }
+            try (StripedLockManager.Held held = manager.acquire("batch", books, users)) {
+                assertTrue(held.isLocked());
+            }
+        });
+        @SuppressWarnings("unchecked")
+        Map<String, Object> batch = (Map<String, Object>) manager.metrics().get("batch");
+        assertEquals(0L, batch.get("timeouts"));
+    }
+
+    @Test
+    void testTimeoutFallsBackWithoutLocks() throws InterruptedException {
+        StripedLockManager manager = new StripedLockManager(4, 50);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (StripedLockManager.Held held = manager.acquire("hold", null, 2L)) {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        try (StripedLockManager.Held held = manager.acquire("wait", 1L, 2L)) {
+            assertFalse(held.isLocked());
+        }
+        // 先拿到了图书段、等用户段超时：已拿到的图书段锁也要释放，其他线程可以立即获得
+        AtomicBoolean otherLocked = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try (StripedLockManager.Held held = manager.acquire("other", 1L, null)) {
+                otherLocked.set(held.isLocked());
+            }
+        });
+        other.start();
+        other.join();
+        release.countDown();
+        holder.join();
+        assertTrue(otherLocked.get());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> wait = (Map<String, Object>) manager.metrics().get("wait");
+        assertEquals(1L, wait.get("timeouts"));
+        assertEquals(0L, wait.get("acquired"));
+
+        manager.setEnabled(false);
+        try (StripedLockManager.Held held = manager.acquire("disabled", 1L, 2L)) {
+            assertFalse(held.isLocked());
+        }
+    }
+
+    @Test
+    void testWaitHistogramBuckets() {
+        StripedLockManager.WaitHistogram histogram = new StripedLockManager.WaitHistogram();
+        histogram.record(500);          // 不足 1 微秒
+        histogram.record(1_000);        // 1 微秒
+        histogram.record(3_000);        // 3 微秒 -> (2, 4]
+        histogram.record(1_000_000);    // 1000 微秒 -> (512, 1024]
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(2, histogram.count(0));
+        assertEquals(1, histogram.count(2));
+        assertEquals(1, histogram.count(10));
+        assertEquals(1, histogram.count(StripedLockManager.WaitHistogram.BUCKETS - 1));
+        assertEquals(5L, histogram.snapshot().get("acquired"));
+    }
+
+    private interface Body {
+        void run(int thread, int iteration);
+    }
+
+    private static void runThreads(int threads, int iterations, Body body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        body.run(thread, i);
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.isEmpty(), "线程执行失败: " + failures);
+    }
+}
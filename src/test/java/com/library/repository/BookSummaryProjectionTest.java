@@ -0,0 +1,158 @@
+package com.library.repository;
+
+import com.library.dto.BookSummary;
+import com.library.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列表摘要投影测试
+ *
+ * 在大目录（每本带长简介）上对比实体分页与摘要投影分页：
+ * 实体查询要读出 TEXT 简介并为每行建立托管实体和脏检查快照，投影查询只读列表列、不进入持久化上下文。
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class BookSummaryProjectionTest {
+    
+    private static final int CATALOG_SIZE = 10000;
+    private static final int PAGE_SIZE = 1000;
+    private static final int ROUNDS = 5;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        String description = "馆藏简介".repeat(500);
+        List<Book> books = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Book book = new Book();
+            book.setIsbn("summary-" + i);
+            book.setTitle(i % 2 == 0 ? "红楼梦" + i : "三国演义" + i);
+            book.setAuthor("测试作者");
+            book.setCategory(i % 2 == 0 ? "文学" : "历史");
+            book.setTotalCopies(3);
+            book.setAvailableCopies(i % 3);
+            book.setDescription(description);
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    @Test
+    void testSummaryQueriesMatchEntityQueries() {
+        System.out.println("=== 测试摘要投影与实体查询结果一致 ===");
+        
+        Pageable pageable = PageRequest.of(1, 20, Sort.by(Sort.Direction.DESC, "id"));
+        Page<Book> books = bookRepository.searchBooks("hlm", null, "文学", null, pageable);
+        Page<BookSummary> summaries = bookRepository.searchBookSummaries("hlm", null, "文学", null, pageable);
+        assertEquals(CATALOG_SIZE / 2, summaries.getTotalElements());
+        assertEquals(books.getTotalElements(), summaries.getTotalElements());
+        for (int i = 0; i < books.getContent().size(); i++) {
+            Book book = books.getContent().get(i);
+            BookSummary summary = summaries.getContent().get(i);
+            assertEquals(book.getId(), summary.getId());
+            assertEquals(book.getIsbn(), summary.getIsbn());
+            assertEquals(book.getAvailableCopies(), summary.getAvailableCopies());
+            assertEquals(book.getStatus(), summary.getStatus());
+        }
+        
+        assertEquals(bookRepository.findAvailableBooks(pageable).getTotalElements(),
+                bookRepository.findAvailableSummaries(pageable).getTotalElements());
+        assertEquals(bookRepository.findLowStockBooks(pageable).getTotalElements(),
+                bookRepository.findLowStockSummaries(pageable).getTotalElements());
+        assertEquals(bookRepository.findOutOfStockBooks(pageable).getTotalElements(),
+                bookRepository.findOutOfStockSummaries(pageable).getTotalElements());
+        assertEquals(bookRepository.findByCategory("历史").size(), bookRepository.findSummariesByCategory("历史").size());
+        
+        List<Long> ids = books.getContent().stream().map(Book::getId).toList();
+        assertEquals(ids.size(), bookRepository.findSummariesByIdIn(ids).size());
+        System.out.println("摘要投影结果一致");
+    }
+    
+    @Test
+    void testSummaryQueryBypassesPersistenceContext() {
+        System.out.println("=== 测试摘要投影不创建托管实体 ===");
+        
+        statistics.clear();
+        Page<BookSummary> summaries = bookRepository.findAllSummaries(PageRequest.of(0, PAGE_SIZE, Sort.by("id")));
+        assertEquals(PAGE_SIZE, summaries.getContent().size());
+        assertEquals(CATALOG_SIZE, summaries.getTotalElements());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, session().getStatistics().getEntityCount());
+        
+        statistics.clear();
+        Page<Book> books = bookRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("id")));
+        assertEquals(PAGE_SIZE, statistics.getEntityLoadCount());
+        assertTrue(entityManager.contains(books.getContent().get(0)));
+        assertEquals(PAGE_SIZE, session().getStatistics().getEntityCount());
+        System.out.println("实体分页加载实体数: " + statistics.getEntityLoadCount() + "，摘要投影: 0");
+    }
+    
+    @Test
+    void testSummaryQueryAllocatesLessThanEntityQuery() {
+        System.out.println("=== 测试摘要投影的内存与耗时 ===");
+        
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+        Supplier<Object> entityPage = () -> bookRepository.findAll(pageable);
+        Supplier<Object> summaryPage = () -> bookRepository.findAllSummaries(pageable);
+        
+        // 预热
+        measure(entityPage);
+        measure(summaryPage);
+        
+        long[] entity = measure(entityPage);
+        long[] summary = measure(summaryPage);
+        System.out.printf("实体分页: 每页分配 %d KB, 耗时 %.2f ms%n", entity[0] / 1024, entity[1] / 1e6);
+        System.out.printf("摘要投影: 每页分配 %d KB, 耗时 %.2f ms%n", summary[0] / 1024, summary[1] / 1e6);
+        assertTrue(summary[0] * 2 < entity[0], "摘要投影分配的内存应明显少于实体查询");
+    }
+    
+    private Session session() {
+        return entityManager.unwrap(Session.class);
+    }
+    
+    // 每轮查询一页后清空持久化上下文，返回每页平均分配字节数和平均耗时（纳秒）
+    private long[] measure(Supplier<Object> query) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = 0;
+        long elapsed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long bytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            assertNotNull(query.get());
+            elapsed += System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - bytes;
+            entityManager.clear();
+        }
+        return new long[] {allocated / ROUNDS, elapsed / ROUNDS};
+    }
+}
@@ -0,0 +1,99 @@
+package com.library.repository;
+
+import com.library.entity.Book;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 号段主键与批量插入测试
+ *
+ * 对比逐行 flush（IDENTITY 主键时每次 persist 都要立即 INSERT 取回主键）和整批 flush
+ * （号段主键下 INSERT 按 jdbc.batch_size 批量执行）的语句数和吞吐量。
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class IdAllocationBenchmarkTest {
+    
+    private static final int ROWS = 2000;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Test
+    void testIdsAssignedBeforeFlush() {
+        System.out.println("=== 测试号段主键分配 ===");
+        
+        List<Book> books = bookRepository.saveAll(newBooks("id", 250));
+        long previous = 0;
+        for (Book book : books) {
+            assertNotNull(book.getId());
+            assertTrue(book.getId() > previous, "主键应递增: " + book.getId());
+            previous = book.getId();
+        }
+        entityManager.flush();
+        assertEquals(books.get(0).getIsbn(), bookRepository.findById(books.get(0).getId()).orElseThrow().getIsbn());
+        System.out.println("主键范围: " + books.get(0).getId() + " - " + previous);
+    }
+    
+    @Test
+    void testBatchedInsertThroughput() {
+        System.out.println("=== 测试批量插入吞吐量 ===");
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        
+        // 预热
+        bookRepository.saveAll(newBooks("warmup", 200));
+        entityManager.flush();
+        entityManager.clear();
+        
+        // 1. 之前：逐行 INSERT
+        statistics.clear();
+        long start = System.nanoTime();
+        for (Book book : newBooks("row", ROWS)) {
+            bookRepository.save(book);
+            entityManager.flush();
+        }
+        long rowByRowNanos = System.nanoTime() - start;
+        long rowByRowStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        
+        // 2. 之后：整批 flush，按 jdbc.batch_size 批量执行
+        statistics.clear();
+        start = System.nanoTime();
+        bookRepository.saveAll(newBooks("batch", ROWS));
+        entityManager.flush();
+        long batchedNanos = System.nanoTime() - start;
+        long batchedStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        
+        System.out.printf("逐行插入: %d 条语句, %.0f 行/秒%n", rowByRowStatements, ROWS * 1e9 / rowByRowNanos);
+        System.out.printf("批量插入: %d 条语句, %.0f 行/秒%n", batchedStatements, ROWS * 1e9 / batchedNanos);
+        assertTrue(rowByRowStatements >= ROWS);
+        assertTrue(batchedStatements * 5 < rowByRowStatements, "批量插入未生效: " + batchedStatements);
+    }
+    
+    private static List<Book> newBooks(String prefix, int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setIsbn(prefix + "-" + i);
+            book.setTitle("批量插入测试" + i);
+            book.setAuthor("测试作者");
+            book.setCategory("测试");
+            books.add(book);
+        }
+        return books;
+    }
+}
@@ -144,4 +144,91 @@ class RepositoryTest {
         
         System.out.println("图书搜索测试完成");
     }
+    
+    @Test
+    void testBookKeysetPaging() {
+        System.out.println("\n=== 测试图书键集分页 ===");
+        
+        // 标题有重复，验证相同排序值时按ID继续翻页
+        String[] titles = {"C", "A", "B", "A", "C"};
+        for (int i = 0; i < titles.length; i++) {
+            Book book = new Book();
+            book.setIsbn("900000000000" + i);
+            book.setTitle(titles[i]);
+            book.setAuthor("作者" + i);
+            book.setCategory("测试");
+            bookRepository.save(book);
+        }
+        
+        var firstPage = bookRepository.findAfter(null, null, "测试", null, "title", false, null, null, 3);
+        assertEquals(3, firstPage.size());
+        assertEquals("A", firstPage.get(0).getTitle());
+        assertEquals("A", firstPage.get(1).getTitle());
+        assertEquals("B", firstPage.get(2).getTitle());
+        
+        var last = firstPage.get(2);
+        var secondPage = bookRepository.findAfter(null, null, "测试", null, "title", false,
+                last.getTitle(), last.getId(), 3);
+        assertEquals(2, secondPage.size());
+        assertEquals("C", secondPage.get(0).getTitle());
+        assertTrue(secondPage.get(0).getId() < secondPage.get(1).getId());
+        System.out.println("键集分页测试完成");
+    }
+    
+    @Test
+    void testPinyinSearch() {
+        System.out.println("\n=== 测试拼音检索 ===");
+        
+        Book book = new Book();
+        book.setIsbn("9787020002207");
+        book.setTitle("红楼梦");
+        book.setAuthor("曹雪芹");
+        book.setCategory("文学");
+        bookRepository.save(book);
+        assertEquals("hongloumeng", book.getTitlePinyin());
+        assertEquals("hlm", book.getTitleInitials());
+        
+        User user = new User();
+        user.setUsername("zhangsan01");
+        user.setPasswordHash("password123");
+        user.setRealName("张三");
+        userRepository.save(user);
+        
+        var pageable = org.springframework.data.domain.PageRequest.of(0, 10);
+        assertEquals(1, bookRepository.searchBooks("hlm", null, null, null, pageable).getTotalElements());
+        assertEquals(1, bookRepository.searchBooks("honglou", "cxq", null, null, pageable).getTotalElements());
+        assertEquals(0, bookRepository.searchBooks("loumeng", null, null, null, pageable).getTotalElements());
+        
+        // 游标分页与页码分页对同一查询返回相同的结果
+        assertEquals(1, bookRepository.findAfter("hlm", null, null, null, "id", false, null, null, 10).size());
+        assertEquals(1, bookRepository.findAfter("honglou", "cxq", null, null, "title", false, null, null, 10).size());
+        assertEquals(0, bookRepository.findAfter("loumeng", null, null, null, "id", false, null, null, 10).size());
+        
+        assertEquals(1, userRepository.searchByKeywordOrPinyin("zs", "zs", pageable).getTotalElements());
+        assertEquals(1, userRepository.searchByKeywordOrPinyin("张", null, pageable).getTotalElements());
+        assertEquals(0, userRepository.searchByKeywordOrPinyin("ls", "ls", pageable).getTotalElements());
+        System.out.println("拼音检索测试完成");
+    }
+    
+    @Test
+    void testDeletedBooksExcludedFromListings() {
+        System.out.println("\n=== 测试已删除图书不出现在搜索和列表中 ===");
+        
+        for (int i = 0; i < 2; i++) {
+            Book book = new Book();
+            book.setIsbn("910000000000" + i);
+            book.setTitle("删除测试");
+            book.setAuthor("作者");
+            book.setCategory("删除分类");
+            book.setIsDeleted(i == 1);
+            bookRepository.save(book);
+        }
+        
+        var pageable = org.springframework.data.domain.PageRequest.of(0, 10);
+        assertEquals(1, bookRepository.searchBooks("删除测试", null, null, null, pageable).getTotalElements());
+        assertEquals(1, bookRepository.searchBookSummaries(null, null, "删除分类", null, pageable).getTotalElements());
+        assertEquals(1, bookRepository.findAfter(null, null, "删除分类", null, "id", false, null, null, 10).size());
+        assertEquals(1, bookRepository.findSummariesByCategory("删除分类").size());
+        System.out.println("已删除图书过滤测试完成");
+    }
 }
\ No newline at end of file
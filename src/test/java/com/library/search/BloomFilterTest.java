@@ -0,0 +1,49 @@
+package com.library.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 布隆过滤器测试
+ */
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("user" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    void testFalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("978-7-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        double observed = falsePositives / 100000.0;
+        System.out.println("实测误判率: " + observed + ", 估算误判率: " + filter.expectedFpp()
+                + ", 内存: " + filter.memoryBytes() + " 字节");
+        assertTrue(observed < 0.02, "误判率过高: " + observed);
+        assertEquals(0.01, filter.expectedFpp(), 0.005);
+    }
+
+    @Test
+    void testNormalizeMatchesCaseAndAccentInsensitiveCollation() {
+        assertEquals("jose", ExistenceFilter.normalize("José  "));
+        assertEquals("alice@example.com", ExistenceFilter.normalize("Alice@Example.COM"));
+    }
+}
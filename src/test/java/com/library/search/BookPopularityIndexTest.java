@@ -0,0 +1,155 @@
+package com.library.search;
+
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图书借阅热度排行测试
+ */
+class BookPopularityIndexTest {
+
+    private BookPopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookPopularityIndex(3);
+        index.index(book(1L, "文学"));
+        index.index(book(2L, "计算机"));
+        index.index(book(3L, "计算机"));
+        index.index(book(4L, "文学"));
+        index.index(book(5L, "计算机"));
+    }
+
+    @Test
+    void testRankingFollowsBorrows() {
+        // 都未借阅时按ID排列
+        assertArrayEquals(new long[]{1L, 2L, 3L}, index.topIds(null, 10));
+
+        borrow(5L, 3);
+        borrow(3L, 1);
+        borrow(4L, 2);
+        assertArrayEquals(new long[]{5L, 4L, 3L}, index.topIds(null, 10));
+        assertArrayEquals(new long[]{5L, 4L}, index.topIds(null, 2));
+        assertArrayEquals(new long[]{5L, 3L, 2L}, index.topIds("计算机", 10));
+        assertArrayEquals(new long[]{4L, 1L}, index.topIds("文学", 10));
+        assertArrayEquals(new long[]{}, index.topIds("心理学", 10));
+        assertEquals(3, index.borrowCount(5L));
+    }
+
+    @Test
+    void testRemoveAndCategoryChangeRefillRanking() {
+        borrow(5L, 3);
+        borrow(3L, 2);
+        borrow(2L, 1);
+        borrow(4L, 1);
+
+        // 删除榜上的书后由榜外的书补位
+        index.remove(5L);
+        assertArrayEquals(new long[]{3L, 2L, 4L}, index.topIds(null, 10));
+        assertArrayEquals(new long[]{3L, 2L}, index.topIds("计算机", 10));
+
+        // 标记删除的图书同样移出排行
+        Book deleted = book(2L, "计算机");
+        deleted.setIsDeleted(true);
+        index.index(deleted);
+        assertArrayEquals(new long[]{3L, 4L, 1L}, index.topIds(null, 10));
+
+        // 改分类后从原分类移到新分类
+        index.index(book(3L, "文学"));
+        assertArrayEquals(new long[]{}, index.topIds("计算机", 10));
+        assertArrayEquals(new long[]{3L, 4L, 1L}, index.topIds("文学", 10));
+
+        // 恢复后保留原有计数
+        index.index(book(5L, "计算机"));
+        assertArrayEquals(new long[]{5L, 3L, 4L}, index.topIds(null, 10));
+    }
+
+    @Test
+    void testRandomBorrowsMatchBruteForce() {
+        Random random = new Random(42);
+        BookPopularityIndex large = new BookPopularityIndex(10);
+        Map<Long, Long> counts = new HashMap<>();
+        for (long id = 1; id <= 500; id++) {
+            large.index(book(id, id % 2 == 0 ? "文学" : "计算机"));
+            counts.put(id, 0L);
+        }
+        for (int i = 0; i < 20000; i++) {
+            long id = 1 + (long) Math.min(499, Math.abs(random.nextGaussian()) * 120);
+            large.onBookBorrowed(new BookBorrowedEvent(1L, id));
+            // 已移出排行的图书继续被借阅也不应回到榜单
+            counts.computeIfPresent(id, (key, count) -> count + 1);
+            if (i % 2000 == 0) {
+                long removed = 1 + random.nextInt(500);
+                large.remove(removed);
+                counts.remove(removed);
+            }
+        }
+
+        long[] expected = counts.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Long>>comparingLong(Map.Entry::getValue).reversed()
+                        .thenComparingLong(Map.Entry::getKey))
+                .limit(10)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        assertArrayEquals(expected, large.topIds(null, 10));
+
+        long[] expectedEven = counts.entrySet().stream()
+                .filter(e -> e.getKey() % 2 == 0)
+                .sorted(Comparator.<Map.Entry<Long, Long>>comparingLong(Map.Entry::getValue).reversed()
+                        .thenComparingLong(Map.Entry::getKey))
+                .limit(10)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        assertArrayEquals(expectedEven, large.topIds("文学", 10));
+    }
+
+    @Test
+    void testLongLongHashMapMatchesHashMap() {
+        Random random = new Random(7);
+        LongLongHashMap map = new LongLongHashMap(16);
+        Map<Long, Long> reference = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.addTo(key, 1);
+                    reference.merge(key, 1L, Long::sum);
+                }
+                case 1 -> {
+                    map.put(key, i);
+                    reference.put(key, (long) i);
+                }
+                default -> assertEquals(reference.remove(key) != null, map.remove(key));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals((long) reference.getOrDefault(key, -1L), map.get(key, -1));
+        }
+    }
+
+    private void borrow(long bookId, int times) {
+        for (int i = 0; i < times; i++) {
+            index.onBookBorrowed(new BookBorrowedEvent(1L, bookId));
+        }
+    }
+
+    private Book book(Long id, String category) {
+        Book book = new Book();
+        book.setId(id);
+        book.setIsbn("ISBN-" + id);
+        book.setTitle("图书" + id);
+        book.setAuthor("作者");
+        book.setCategory(category);
+        return book;
+    }
+}
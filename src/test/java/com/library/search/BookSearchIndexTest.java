@@ -0,0 +1,164 @@
+package com.library.search;
+
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图书倒排索引测试
+ */
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.index(book(1L, "红楼梦", "曹雪芹", "文学", "人民文学出版社"));
+        index.index(book(2L, "Spring Boot实战", "Craig Walls", "计算机", "人民邮电出版社"));
+        index.index(book(3L, "Java编程思想", "Bruce Eckel", "计算机", "机械工业出版社"));
+        index.index(book(4L, "梦的解析", "弗洛伊德", "心理学", null));
+    }
+
+    @Test
+    void testChineseBigramSearch() {
+        assertArrayEquals(new long[]{1L}, index.searchIds("红楼", null, null, null));
+        assertArrayEquals(new long[]{1L, 4L}, index.searchIds("梦", null, null, null));
+        assertArrayEquals(new long[]{3L}, index.searchIds("编程思想", null, null, null));
+        // 二元组都命中但原文不连续时不应返回
+        assertArrayEquals(new long[]{}, index.searchIds("红梦", null, null, null));
+    }
+
+    @Test
+    void testLatinPrefixSearchIgnoresCase() {
+        assertArrayEquals(new long[]{2L}, index.searchIds("spring", null, null, null));
+        assertArrayEquals(new long[]{2L}, index.searchIds("SPRING BO", null, null, null));
+        assertArrayEquals(new long[]{3L}, index.searchIds(null, "eck", null, null));
+    }
+
+    @Test
+    void testCombinedCriteria() {
+        assertArrayEquals(new long[]{2L, 3L}, index.searchIds(null, null, "计算机", null));
+        assertArrayEquals(new long[]{3L}, index.searchIds("java", null, "计算机", null));
+        assertArrayEquals(new long[]{1L, 2L}, index.searchIds(null, null, null, "人民"));
+        assertArrayEquals(new long[]{1L, 2L, 3L, 4L}, index.searchIds(null, " ", null, null));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        index.index(book(1L, "石头记", "曹雪芹", "文学", "人民文学出版社"));
+        assertArrayEquals(new long[]{}, index.searchIds("红楼", null, null, null));
+        assertArrayEquals(new long[]{1L}, index.searchIds("石头", null, null, null));
+
+        index.remove(3L);
+        assertArrayEquals(new long[]{}, index.searchIds("java", null, null, null));
+
+        Book deleted = book(2L, "Spring Boot实战", "Craig Walls", "计算机", "人民邮电出版社");
+        deleted.setIsDeleted(true);
+        index.index(deleted);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testFacetCounts() {
+        Book borrowed = book(3L, "Java编程思想", "Bruce Eckel", "计算机", "机械工业出版社");
+        borrowed.setStatus(Book.BookStatus.BORROWED);
+        index.index(borrowed);
+
+        Map<BookSearchIndex.Facet, Map<String, Integer>> all = index.facetCounts(index.searchIds(null, null, null, null));
+        assertEquals(Map.of("计算机", 2, "文学", 1, "心理学", 1), all.get(BookSearchIndex.Facet.CATEGORY));
+        assertEquals(3, all.get(BookSearchIndex.Facet.PUBLISHER).size());
+        assertEquals("计算机", all.get(BookSearchIndex.Facet.CATEGORY).keySet().iterator().next());
+
+        Map<BookSearchIndex.Facet, Map<String, Integer>> filtered = index.facetCounts(index.searchIds(null, null, "计算机", null));
+        assertEquals(Map.of("计算机", 2), filtered.get(BookSearchIndex.Facet.CATEGORY));
+        assertEquals(Map.of("AVAILABLE", 1, "BORROWED", 1), filtered.get(BookSearchIndex.Facet.STATUS));
+
+        index.remove(2L);
+        filtered = index.facetCounts(index.searchIds(null, null, "计算机", null));
+        assertEquals(Map.of("BORROWED", 1), filtered.get(BookSearchIndex.Facet.STATUS));
+
+        // 号段分配的ID可能超出 int 范围
+        index.index(book(5_000_000_000L, "深入理解计算机系统", "Randal Bryant", "计算机", "机械工业出版社"));
+        filtered = index.facetCounts(index.searchIds(null, null, "计算机", null));
+        assertEquals(Map.of("计算机", 2), filtered.get(BookSearchIndex.Facet.CATEGORY));
+        assertEquals(Map.of("机械工业出版社", 2), filtered.get(BookSearchIndex.Facet.PUBLISHER));
+    }
+
+    @Test
+    void testRelevanceRanking() {
+        index.index(book(5L, "Java核心技术", "Cay Horstmann", "计算机", "机械工业出版社"));
+        Book described = book(6L, "Effective Java", "Joshua Bloch", "计算机", "机械工业出版社");
+        described.setDescription("Java 编程最佳实践，每个 Java 开发者必读");
+        index.index(described);
+        index.index(book(7L, "深入理解Java虚拟机：JVM高级特性与最佳实践", "周志明", "计算机", "机械工业出版社"));
+
+        // 命中集合与普通检索相同，短标题、简介也提到查询词的排在前面，同分时ID大的在前
+        assertArrayEquals(new long[]{3L, 5L, 6L, 7L}, index.searchIds("java", null, null, null));
+        assertArrayEquals(new long[]{6L, 5L, 3L, 7L}, index.rankedSearchIds("java", null, null, null));
+
+        // 借阅次数作为热度先验
+        index.onBookBorrowed(new BookBorrowedEvent(1L, 3L));
+        assertArrayEquals(new long[]{6L, 3L, 5L, 7L}, index.rankedSearchIds("java", null, null, null));
+        assertArrayEquals(new long[]{3L, 7L, 6L, 5L, 2L}, index.rankedSearchIds(null, null, "计算机", null));
+    }
+
+    @Test
+    void testPinyinSearch() {
+        assertArrayEquals(new long[]{1L}, index.searchIds("hlm", null, null, null));
+        assertArrayEquals(new long[]{1L}, index.searchIds("Hong Lou", null, null, null));
+        assertArrayEquals(new long[]{1L}, index.searchIds(null, "caoxueqin", null, null));
+        assertArrayEquals(new long[]{3L}, index.searchIds("javabiancheng", null, null, null));
+        // 拼音按词首前缀匹配，不匹配中间的音节
+        assertArrayEquals(new long[]{}, index.searchIds("loumeng", null, null, null));
+
+        index.index(book(1L, "石头记", "曹雪芹", "文学", "人民文学出版社"));
+        assertArrayEquals(new long[]{}, index.searchIds("hlm", null, null, null));
+    }
+
+    @Test
+    void testFuzzySearchToleratesTypos() {
+        index.index(book(5L, "Thinking in Java", "Bruce Eckle", "计算机", "机械工业出版社"));
+
+        assertArrayEquals(new long[]{}, index.searchIds(null, "Brce Eckel", null, null));
+        assertArrayEquals(new long[]{3L, 5L}, index.fuzzySearchIds(null, "Brce Eckel", null, null, 2));
+        assertArrayEquals(new long[]{5L}, index.fuzzySearchIds("thinkng", "eckel", null, null, 2));
+        assertArrayEquals(new long[]{2L}, index.fuzzySearchIds("Sprong", null, null, null, 1));
+        assertArrayEquals(new long[]{1L}, index.fuzzySearchIds(null, "曹雪琴", null, null, 2));
+        // 精确命中排在近似命中之前
+        assertArrayEquals(new long[]{5L, 3L}, index.fuzzySearchIds(null, "Eckle", null, null, 2));
+        assertArrayEquals(new long[]{5L, 3L}, index.fuzzySearchIds(null, "Eckle", "计算机", "机械", 2));
+        assertArrayEquals(new long[]{}, index.fuzzySearchIds(null, "Eckle", "文学", null, 2));
+    }
+
+    @Test
+    void testFuzzySearchRespectsEditLimits() {
+        // 不允许容错时与原文匹配一致
+        assertArrayEquals(new long[]{}, index.fuzzySearchIds(null, "Eckle", null, null, 0));
+        assertArrayEquals(new long[]{3L}, index.fuzzySearchIds(null, "eck", null, null, 0));
+        // 短词不容错
+        assertArrayEquals(new long[]{}, index.fuzzySearchIds("jv", null, null, null, 2));
+        // 4 个字符的词最多容错 1 次
+        assertArrayEquals(new long[]{2L}, index.fuzzySearchIds(null, "Wals", null, null, 2));
+        assertArrayEquals(new long[]{}, index.fuzzySearchIds(null, "Walz", null, null, 2));
+
+        index.remove(3L);
+        assertArrayEquals(new long[]{}, index.fuzzySearchIds(null, "Eckle", null, null, 2));
+    }
+
+    private Book book(Long id, String title, String author, String category, String publisher) {
+        Book book = new Book();
+        book.setId(id);
+        book.setIsbn("ISBN-" + id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setCategory(category);
+        book.setPublisher(publisher);
+        return book;
+    }
+}
@@ -0,0 +1,102 @@
+package com.library.search;
+
+import com.library.AppConstants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 借阅趋势滑动窗口测试
+ */
+class BookTrendingIndexTest {
+
+    private static final long NOW = 500_000L;
+
+    private final BookTrendingIndex index = new BookTrendingIndex(
+            Clock.fixed(Instant.ofEpochSecond(NOW * 3600), ZoneOffset.UTC));
+
+    @Test
+    void testWindowOnlyCountsRecentHours() {
+        borrow(1L, NOW, 2);
+        borrow(2L, NOW - 5, 3);
+        borrow(3L, NOW - 30, 5);
+        borrow(1L, NOW - 100, 1);
+
+        assertArrayEquals(new long[]{1L}, index.topIds(Duration.ofHours(1), 10, NOW));
+        assertArrayEquals(new long[]{2L, 1L}, index.topIds(Duration.ofHours(6), 10, NOW));
+        assertArrayEquals(new long[]{3L, 2L, 1L}, index.topIds(Duration.ofDays(2), 10, NOW));
+        // 次数相同按ID升序
+        assertArrayEquals(new long[]{3L, 1L, 2L}, index.topIds(Duration.ofDays(7), 10, NOW));
+        assertArrayEquals(new long[]{3L}, index.topIds(Duration.ofDays(7), 1, NOW));
+
+        // 不足一小时按一小时计
+        assertEquals(1, BookTrendingIndex.windowHours(Duration.ofMinutes(10)));
+        assertEquals(AppConstants.TRENDING_MAX_WINDOW_HOURS, BookTrendingIndex.windowHours(Duration.ofDays(7)));
+        assertThrows(IllegalArgumentException.class, () -> BookTrendingIndex.windowHours(Duration.ofDays(8)));
+        assertThrows(IllegalArgumentException.class, () -> BookTrendingIndex.windowHours(Duration.ZERO));
+    }
+
+    @Test
+    void testRingReusesExpiredSlots() {
+        int hours = AppConstants.TRENDING_MAX_WINDOW_HOURS;
+        borrow(1L, NOW, 3);
+        // 一整圈之后同一槽位换成新的小时，旧计数不再出现
+        borrow(2L, NOW + hours, 1);
+        assertArrayEquals(new long[]{2L}, index.topIds(Duration.ofDays(7), 10, NOW + hours));
+        // 比槽位当前小时更早的借阅已超出窗口，直接丢弃
+        borrow(1L, NOW, 5);
+        assertArrayEquals(new long[]{2L}, index.topIds(Duration.ofDays(7), 10, NOW + hours));
+        // 窗口滑过后旧桶即使还在环里也不计入
+        assertArrayEquals(new long[]{}, index.topIds(Duration.ofHours(1), 10, NOW + hours + 1));
+    }
+
+    @Test
+    void testConcurrentBorrowsAreNotLost() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long bookId = t % 2 == 0 ? 1L : 2L;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // 每个线程都跨越几个小时，让多个线程同时争抢新桶的 CAS
+                for (int i = 0; i < perThread; i++) {
+                    index.record(bookId, NOW + i % 4);
+                    index.record(3L, NOW + i % 4);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, index.borrowCount(3L, Duration.ofHours(4), NOW + 3));
+        assertEquals((long) threads / 2 * perThread, index.borrowCount(1L, Duration.ofHours(4), NOW + 3));
+        assertEquals((long) threads / 2 * perThread, index.borrowCount(2L, Duration.ofHours(4), NOW + 3));
+        assertEquals((long) threads * perThread / 4, index.borrowCount(3L, Duration.ofHours(1), NOW + 3));
+        assertArrayEquals(new long[]{3L, 1L, 2L}, index.topIds(Duration.ofHours(4), 10, NOW + 3));
+    }
+
+    private void borrow(long bookId, long hour, int times) {
+        for (int i = 0; i < times; i++) {
+            index.record(bookId, hour);
+        }
+    }
+}
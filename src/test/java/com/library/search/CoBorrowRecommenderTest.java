@@ -0,0 +1,103 @@
+package com.library.search;
+
+import com.library.entity.Book;
+import com.library.event.BookBorrowedEvent;
+import com.library.event.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共同借阅推荐测试
+ */
+class CoBorrowRecommenderTest {
+
+    @Test
+    void testSimilarBooksRankedByCosine() {
+        CoBorrowRecommender recommender = new CoBorrowRecommender(10, 100);
+        // 读者1: 1,2,3  读者2: 1,2  读者3: 2,4  读者4: 1,2（重复借阅只算一次）
+        recommender.rebuild(pairs(1, 1, 1, 2, 1, 3, 2, 1, 2, 2, 3, 2, 3, 4, 4, 1, 4, 2, 4, 1));
+        assertTrue(recommender.isReady());
+
+        // 相似度: (1,2)=3/√12  (1,3)=1/√3  (2,3)=(2,4)=1/√4
+        assertArrayEquals(new long[]{2L, 3L}, recommender.similarBooks(1L, 10));
+        assertArrayEquals(new long[]{1L, 3L, 4L}, recommender.similarBooks(2L, 10));
+        assertArrayEquals(new long[]{1L}, recommender.similarBooks(2L, 1));
+        assertArrayEquals(new long[]{1L, 2L}, recommender.similarBooks(3L, 10));
+        assertArrayEquals(new long[]{}, recommender.similarBooks(99L, 10));
+
+        // 读者推荐排除已借过的书，多本书的相似度累加
+        assertArrayEquals(new long[]{3L, 4L}, recommender.recommendForUser(2L, 10));
+        assertArrayEquals(new long[]{1L, 3L}, recommender.recommendForUser(3L, 10));
+        assertArrayEquals(new long[]{}, recommender.recommendForUser(99L, 10));
+    }
+
+    @Test
+    void testIncrementalBorrowsAndDeletedBooks() {
+        CoBorrowRecommender recommender = new CoBorrowRecommender(10, 100);
+        recommender.rebuild(new ArrayList<>());
+        borrow(recommender, 1, 1);
+        borrow(recommender, 1, 2);
+        borrow(recommender, 2, 1);
+        borrow(recommender, 2, 2);
+        borrow(recommender, 2, 3);
+        assertArrayEquals(new long[]{2L, 3L}, recommender.similarBooks(1L, 10));
+        assertArrayEquals(new long[]{1L, 3L}, recommender.similarBooks(2L, 10));
+
+        borrow(recommender, 3, 1);
+        assertArrayEquals(new long[]{2L, 3L}, recommender.recommendForUser(3L, 10));
+
+        Book deleted = new Book();
+        deleted.setId(2L);
+        recommender.onBookChanged(BookChangedEvent.removed(deleted));
+        assertArrayEquals(new long[]{3L}, recommender.similarBooks(1L, 10));
+        assertArrayEquals(new long[]{3L}, recommender.recommendForUser(3L, 10));
+
+        deleted.setIsDeleted(false);
+        recommender.onBookChanged(BookChangedEvent.saved(deleted));
+        assertArrayEquals(new long[]{2L, 3L}, recommender.similarBooks(1L, 10));
+    }
+
+    @Test
+    void testIncrementalMatchesParallelRebuild() {
+        Random random = new Random(11);
+        List<long[]> pairs = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            pairs.add(new long[]{1 + random.nextInt(800), 1 + random.nextInt(300)});
+        }
+
+        // 容量足够大时相似列表包含所有共现过的图书，增量与全量的集合应一致（只看共现结构，不看顺序）
+        CoBorrowRecommender rebuilt = new CoBorrowRecommender(1000, 8);
+        rebuilt.rebuild(pairs);
+        CoBorrowRecommender incremental = new CoBorrowRecommender(1000, 8);
+        incremental.rebuild(pairs.subList(0, 5000));
+        for (long[] pair : pairs.subList(5000, pairs.size())) {
+            borrow(incremental, pair[0], pair[1]);
+        }
+
+        for (long bookId = 1; bookId <= 300; bookId++) {
+            long[] expected = rebuilt.similarBooks(bookId, 1000);
+            long[] actual = incremental.similarBooks(bookId, 1000);
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual, "图书 " + bookId);
+        }
+    }
+
+    private static void borrow(CoBorrowRecommender recommender, long userId, long bookId) {
+        recommender.onBookBorrowed(new BookBorrowedEvent(userId, bookId));
+    }
+
+    private static List<long[]> pairs(long... userBook) {
+        List<long[]> pairs = new ArrayList<>();
+        for (int i = 0; i < userBook.length; i += 2) {
+            pairs.add(new long[]{userBook[i], userBook[i + 1]});
+        }
+        return pairs;
+    }
+}
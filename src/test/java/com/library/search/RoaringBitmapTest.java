@@ -0,0 +1,144 @@
+package com.library.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压缩位图测试（与 TreeSet 对照）
+ */
+class RoaringBitmapTest {
+
+    @Test
+    void testAddRemoveContains() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70000));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(6));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertEquals(1, bitmap.cardinality());
+        assertArrayEquals(new int[]{70000}, bitmap.select(0, 10, false));
+    }
+
+    @Test
+    void testDenseContainerConversion() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(10000, bitmap.cardinality());
+        assertArrayEquals(new int[]{4999, 5000, 5001}, bitmap.select(4999, 3, false));
+        assertArrayEquals(new int[]{9999, 9998}, bitmap.select(0, 2, true));
+
+        // 删除到阈值以下后转回数组容器，内容不变
+        for (int i = 0; i < 10000; i += 2) {
+            bitmap.remove(i);
+        }
+        assertEquals(5000, bitmap.cardinality());
+        assertArrayEquals(new int[]{1, 3, 5}, bitmap.select(0, 3, false));
+        assertTrue(bitmap.contains(9999));
+        assertFalse(bitmap.contains(9998));
+    }
+
+    @Test
+    void testRandomAgainstTreeSet() {
+        Random random = new Random(42);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int round = 0; round < 200000; round++) {
+            // 集中在少数几个桶内，覆盖数组容器和位图容器之间的来回转换
+            int value = random.nextInt(4) * 65536 + random.nextInt(12000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), bitmap.remove(value));
+            } else {
+                assertEquals(expected.add(value), bitmap.add(value));
+            }
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+
+        List<Integer> ascending = new ArrayList<>(expected);
+        List<Integer> descending = new ArrayList<>(expected.descendingSet());
+        for (int offset : new int[]{0, 1, 4095, 4096, 10000, expected.size() - 3}) {
+            assertEquals(ascending.subList(offset, Math.min(offset + 50, ascending.size())),
+                    toList(bitmap.select(offset, 50, false)));
+            assertEquals(descending.subList(offset, Math.min(offset + 50, descending.size())),
+                    toList(bitmap.select(offset, 50, true)));
+        }
+        assertEquals(0, bitmap.select(expected.size(), 10, false).length);
+    }
+
+    @Test
+    void testAndCardinalityAgainstTreeSet() {
+        Random random = new Random(7);
+        RoaringBitmap sparse = new RoaringBitmap();
+        RoaringBitmap dense = new RoaringBitmap();
+        TreeSet<Integer> sparseValues = new TreeSet<>();
+        TreeSet<Integer> denseValues = new TreeSet<>();
+        for (int i = 0; i < 3000; i++) {
+            int value = random.nextInt(3) * 65536 + random.nextInt(65536);
+            sparse.add(value);
+            sparseValues.add(value);
+        }
+        for (int i = 0; i < 60000; i++) {
+            int value = random.nextInt(2) * 65536 + random.nextInt(20000);
+            dense.add(value);
+            denseValues.add(value);
+        }
+
+        // 数组与数组、数组与位图、位图与位图三种容器组合
+        TreeSet<Integer> common = new TreeSet<>(sparseValues);
+        common.retainAll(denseValues);
+        assertEquals(common.size(), sparse.andCardinality(dense));
+        assertEquals(common.size(), dense.andCardinality(sparse));
+        assertEquals(sparseValues.size(), sparse.andCardinality(sparse));
+        assertEquals(denseValues.size(), dense.andCardinality(dense));
+        assertEquals(0, sparse.andCardinality(new RoaringBitmap()));
+    }
+
+    @Test
+    void testLongValues() {
+        LongRoaringBitmap bitmap = new LongRoaringBitmap();
+        LongRoaringBitmap filter = new LongRoaringBitmap();
+        long large = 5_000_000_000L;
+        assertTrue(bitmap.add(7));
+        assertTrue(bitmap.add(large));
+        assertTrue(bitmap.add(large + 1));
+        assertFalse(bitmap.add(large));
+        assertTrue(bitmap.contains(large));
+        assertFalse(bitmap.contains(large - (1L << 32)));
+        assertEquals(3, bitmap.cardinality());
+
+        // 低32位相同、高32位不同的值互不影响
+        filter.add(large);
+        filter.add(large - (1L << 32));
+        filter.add(7);
+        assertEquals(2, bitmap.andCardinality(filter));
+
+        assertTrue(bitmap.remove(large));
+        assertFalse(bitmap.remove(large));
+        assertEquals(1, bitmap.andCardinality(filter));
+        bitmap.remove(7);
+        bitmap.remove(large + 1);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    private List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,379 @@
+package com.library.service;
+
+import com.library.config.TestSecurityConfig;
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BorrowRequestDTO;
+import com.library.entity.Book;
+import com.library.entity.BookInventorySlot;
+import com.library.entity.BorrowRecord;
+import com.library.entity.User;
+import com.library.lock.StripedLockManager;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发借阅测试
+ *
+ * 借阅和归还各自在独立事务中并发执行（测试类不加事务），验证条件更新不会超借、
+ * 同一用户同一本书不会有两条借阅中的记录、同一条记录不会被重复归还，
+ * 以及条件更新会递增版本号，不会被持有旧版本的整行保存覆盖；
+ * 并对比同一本书的并发借阅先经本地分段锁排队与直接在数据库争行锁的耗时；
+ * 开启库存分槽的热门图书同样不会超借，汇总后图书可借册数与各槽一致；
+ * 批量借还与库存汇总同时执行时加锁顺序一致，不会互相等到锁超时。
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class BorrowConcurrencyTest {
+    
+    private static final int BORROWERS = 200;
+    
+    @Autowired
+    private BorrowRecordService borrowRecordService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private StripedLockManager stripedLockManager;
+    
+    @Autowired
+    private BookInventoryService bookInventoryService;
+    
+    @Autowired
+    private LibraryService libraryService;
+    
+    @Test
+    void testHotBookIsNeverOversold() throws Exception {
+        System.out.println("=== 测试热门图书并发借阅 ===");
+        int copies = 20;
+        Book book = bookRepository.save(newBook("978-7-020-00001-1", copies));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < BORROWERS; i++) {
+            users.add(newUser("hot_reader_" + i));
+        }
+        users = userRepository.saveAll(users);
+        
+        List<Supplier<BorrowRecord>> tasks = new ArrayList<>();
+        for (User user : users) {
+            tasks.add(() -> borrowRecordService.createBorrowRecord(request(user.getId(), book.getId())));
+        }
+        long start = System.nanoTime();
+        int succeeded = runConcurrently(tasks);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        Book after = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(copies, succeeded);
+        assertEquals(0, after.getAvailableCopies());
+        assertEquals(Book.BookStatus.BORROWED, after.getStatus());
+        assertEquals(copies, borrowRecordRepository.findByBookId(book.getId()).size());
+        long borrowingUsers = users.stream()
+                .map(user -> userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed())
+                .filter(count -> count == 1)
+                .count();
+        assertEquals(copies, borrowingUsers, "借阅失败的用户名额应随事务回滚");
+        System.out.println(BORROWERS + " 个读者并发借阅 " + copies + " 本，耗时 " + elapsedMillis + " ms");
+    }
+    
+    @Test
+    void testDuplicateLoansAndReturnsAreRejected() throws Exception {
+        System.out.println("=== 测试重复借阅与重复归还 ===");
+        Book book = bookRepository.save(newBook("978-7-020-00002-1", 50));
+        User user = userRepository.save(newUser("dup_reader"));
+        
+        // 同一用户同时借同一本书，只有一条借阅中的记录
+        List<Supplier<BorrowRecord>> borrows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            borrows.add(() -> borrowRecordService.createBorrowRecord(request(user.getId(), book.getId())));
+        }
+        assertEquals(1, runConcurrently(borrows));
+        assertEquals(49, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        assertEquals(1, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+        
+        // 同一条记录同时归还，只有一次生效
+        BorrowRecord record = borrowRecordRepository.findByBookId(book.getId()).get(0);
+        List<Supplier<BorrowRecord>> returns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            returns.add(() -> borrowRecordService.returnBook(record.getId()));
+        }
+        assertEquals(1, runConcurrently(returns));
+        assertEquals(50, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        assertEquals(0, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+        BorrowRecord returned = borrowRecordRepository.findById(record.getId()).orElseThrow();
+        assertEquals(BorrowRecord.BorrowStatus.RETURNED, returned.getStatus());
+        assertNull(returned.getActiveLoan());
+        
+        // 归还后可以再次借阅同一本书
+        borrowRecordService.createBorrowRecord(request(user.getId(), book.getId()));
+        assertEquals(49, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        assertEquals(2, borrowRecordRepository.findByBookId(book.getId()).size());
+    }
+    
+    @Test
+    void testLocalLocksVersusDatabaseOnly() throws Exception {
+        System.out.println("=== 对比本地分段锁与纯数据库行锁 ===");
+        boolean enabled = stripedLockManager.isEnabled();
+        try {
+            for (int round = 0; round < 2; round++) {
+                for (boolean local : new boolean[]{false, true}) {
+                    stripedLockManager.setEnabled(local);
+                    stripedLockManager.resetMetrics();
+                    String mode = local ? "本地分段锁" : "纯数据库";
+                    String isbn = "978-7-021-" + round + (local ? "1" : "0") + "000-1";
+                    Book book = bookRepository.save(newBook(isbn, BORROWERS));
+                    List<User> users = new ArrayList<>();
+                    for (int i = 0; i < BORROWERS; i++) {
+                        users.add(newUser("bench_" + round + (local ? "l" : "d") + "_" + i));
+                    }
+                    users = userRepository.saveAll(users);
+                    
+                    List<Supplier<BorrowRecord>> tasks = new ArrayList<>();
+                    for (User user : users) {
+                        tasks.add(() -> borrowRecordService.createBorrowRecord(request(user.getId(), book.getId())));
+                    }
+                    long start = System.nanoTime();
+                    assertEquals(BORROWERS, runConcurrently(tasks));
+                    long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                    assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+                    
+                    // 第一轮预热，只输出第二轮
+                    if (round == 1) {
+                        System.out.println(mode + ": " + BORROWERS + " 次借阅耗时 " + elapsedMillis + " ms, 吞吐量 "
+                                + (BORROWERS * 1000L / elapsedMillis) + " 次/秒");
+                        if (local) {
+                            System.out.println("本地锁等待: " + stripedLockManager.metrics().get("createBorrowRecord"));
+                        }
+                    }
+                }
+            }
+        } finally {
+            stripedLockManager.setEnabled(enabled);
+        }
+    }
+    
+    @Test
+    void testConditionalUpdatesBumpVersion() {
+        System.out.println("=== 测试条件更新递增版本号 ===");
+        Book book = bookRepository.save(newBook("978-7-020-00003-1", 5));
+        User user = userRepository.save(newUser("version_reader"));
+        Book stale = bookRepository.findById(book.getId()).orElseThrow();
+        
+        // 借阅用条件更新扣减库存，版本号同样递增，持有旧版本的整行保存不能覆盖这次扣减
+        borrowRecordService.createBorrowRecord(request(user.getId(), book.getId()));
+        Book current = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(stale.getVersion() + 1, current.getVersion());
+        stale.setLocation("A-01");
+        assertThrows(OptimisticLockingFailureException.class, () -> bookRepository.save(stale));
+        assertEquals(4, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+    }
+    
+    @Test
+    void testInventorySlotsAreNeverOversold() throws Exception {
+        System.out.println("=== 测试热门图书库存分槽 ===");
+        int copies = 20;
+        Book book = bookRepository.save(newBook("978-7-020-00004-1", copies));
+        bookInventoryService.enableInventorySlots(book.getId(), 8);
+        List<BookInventorySlot> slots = bookInventoryService.getInventorySlots(book.getId());
+        assertEquals(8, slots.size());
+        assertEquals(copies, slotTotal(book.getId()));
+        assertThrows(IllegalStateException.class, () -> bookInventoryService.enableInventorySlots(book.getId(), 4));
+        
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < BORROWERS; i++) {
+            users.add(newUser("slot_reader_" + i));
+        }
+        users = userRepository.saveAll(users);
+        List<Supplier<BorrowRecord>> tasks = new ArrayList<>();
+        for (User user : users) {
+            tasks.add(() -> borrowRecordService.createBorrowRecord(request(user.getId(), book.getId())));
+        }
+        assertEquals(copies, runConcurrently(tasks));
+        assertEquals(0, slotTotal(book.getId()));
+        
+        // 图书行上的可借册数由定时任务汇总（这里直接触发一次）
+        bookInventoryService.syncHotTitles();
+        Book synced = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(0, synced.getAvailableCopies());
+        assertEquals(Book.BookStatus.BORROWED, synced.getStatus());
+        
+        // 归还加回某个槽；关闭分槽时各槽汇总写回图书，之后按普通模式借还
+        BorrowRecord record = borrowRecordRepository.findByBookId(book.getId()).get(0);
+        borrowRecordService.returnBook(record.getId());
+        assertEquals(1, slotTotal(book.getId()));
+        Book merged = bookInventoryService.disableInventorySlots(book.getId());
+        assertFalse(merged.isHotTitle());
+        assertEquals(1, merged.getAvailableCopies());
+        assertEquals(Book.BookStatus.AVAILABLE, merged.getStatus());
+        assertTrue(bookInventoryService.getInventorySlots(book.getId()).isEmpty());
+        borrowRecordService.createBorrowRecord(request(record.getUser().getId(), book.getId()));
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        
+        // 读到的是开启分槽之前的图书：图书行上的条件更新落空，归还到槽上
+        Book stale = bookRepository.findById(book.getId()).orElseThrow();
+        bookInventoryService.enableInventorySlots(book.getId(), 2);
+        bookInventoryService.returnOne(stale);
+        assertEquals(1, slotTotal(book.getId()));
+        
+        // 图书已不存在时两边都更新不到，抛出异常而不是丢掉这一册
+        Book missing = newBook("978-7-020-00004-2", 1);
+        missing.setId(-1L);
+        assertThrows(IllegalStateException.class, () -> bookInventoryService.returnOne(missing));
+    }
+    
+    @Test
+    void testBatchBorrowAndReturnRunAlongsideHotTitleSync() throws Exception {
+        System.out.println("=== 测试批量借还与库存汇总并发执行 ===");
+        int copies = 10;
+        int readers = 16;
+        Book hot = bookRepository.save(newBook("978-7-020-00005-1", copies));
+        bookInventoryService.enableInventorySlots(hot.getId(), 4);
+        List<Long> plainIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            plainIds.add(bookRepository.save(newBook(String.format("978-7-020-1%04d-1", i), readers)).getId());
+        }
+        List<Long> batch = new ArrayList<>(plainIds);
+        batch.add(hot.getId());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            users.add(newUser("batch_sync_reader_" + i));
+        }
+        users = userRepository.saveAll(users);
+        
+        // 汇总线程不停地锁槽、写回图书行，批量借还同时锁普通图书行并扣减、加回槽
+        AtomicBoolean syncing = new AtomicBoolean(true);
+        ExecutorService syncer = Executors.newSingleThreadExecutor();
+        Future<Integer> syncs = syncer.submit(() -> {
+            int rounds = 0;
+            while (syncing.get()) {
+                bookInventoryService.syncHotTitles();
+                rounds++;
+            }
+            return rounds;
+        });
+        Map<Long, List<Long>> borrowed = new ConcurrentHashMap<>();
+        try {
+            List<Supplier<List<BatchItemResultDTO>>> borrows = new ArrayList<>();
+            for (User user : users) {
+                borrows.add(() -> {
+                    List<BatchItemResultDTO> results = libraryService.batchBorrowBooks(user.getId(), batch);
+                    borrowed.put(user.getId(), results.stream()
+                            .filter(BatchItemResultDTO::isSuccess)
+                            .map(result -> result.getRecord().getId())
+                            .collect(Collectors.toList()));
+                    return results;
+                });
+            }
+            assertEquals(readers, runConcurrently(borrows));
+            
+            List<Supplier<List<BatchItemResultDTO>>> returns = new ArrayList<>();
+            for (Map.Entry<Long, List<Long>> entry : borrowed.entrySet()) {
+                returns.add(() -> libraryService.batchReturnBooks(entry.getKey(), entry.getValue()));
+            }
+            assertEquals(readers, runConcurrently(returns));
+        } finally {
+            syncing.set(false);
+            System.out.println("汇总执行 " + syncs.get(10, TimeUnit.SECONDS) + " 轮");
+            syncer.shutdown();
+        }
+        
+        // 热门图书借出不超过册数，归还后各槽和图书行都回到原有册数
+        assertEquals(copies, borrowRecordRepository.findByBookId(hot.getId()).size());
+        assertEquals(copies, slotTotal(hot.getId()));
+        bookInventoryService.syncHotTitles();
+        assertEquals(copies, bookRepository.findById(hot.getId()).orElseThrow().getAvailableCopies());
+        for (Long bookId : plainIds) {
+            assertEquals(readers, borrowRecordRepository.findByBookId(bookId).size());
+            assertEquals(readers, bookRepository.findById(bookId).orElseThrow().getAvailableCopies());
+        }
+        for (User user : users) {
+            assertEquals(0, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+        }
+    }
+    
+    private int slotTotal(Long bookId) {
+        return bookInventoryService.getInventorySlots(bookId).stream()
+                .mapToInt(BookInventorySlot::getAvailableCopies)
+                .sum();
+    }
+    
+    // 所有任务同时开始，返回成功的个数
+    private <T> int runConcurrently(List<Supplier<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), 32));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Supplier<T> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return task.get() != null;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return succeeded;
+    }
+    
+    private BorrowRequestDTO request(Long userId, Long bookId) {
+        BorrowRequestDTO request = new BorrowRequestDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        return request;
+    }
+    
+    private Book newBook(String isbn, int copies) {
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle("并发借阅测试");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        book.setTotalCopies(copies);
+        book.setAvailableCopies(copies);
+        return book;
+    }
+    
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPasswordHash("password123");
+        user.setRealName("并发读者");
+        return user;
+    }
+}
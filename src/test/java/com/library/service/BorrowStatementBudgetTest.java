@@ -0,0 +1,253 @@
+package com.library.service;
+
+import com.library.config.SqlStatementCounter;
+import com.library.config.TestSecurityConfig;
+import com.library.dto.BatchItemResultDTO;
+import com.library.dto.BatchItemResultDTO.FailureReason;
+import com.library.dto.BorrowRequestDTO;
+import com.library.entity.Book;
+import com.library.entity.BorrowRecord;
+import com.library.entity.User;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 借阅、归还的 SQL 语句预算测试
+ *
+ * 用 {@link SqlStatementCounter} 统计经服务代理的一次借阅、归还执行的语句数（含本地锁切面和提交后的事件监听），
+ * 超出预算即失败，防止逐个加载、更新后重新查询之类的写法再次出现。批量借还的语句数不随本数增长。
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestSecurityConfig.class)
+class BorrowStatementBudgetTest {
+    
+    /**
+     * 借阅：取回用户、图书和重复借阅判断 1 条，占用名额、插入记录、扣减库存各 1 条，重新读取用户、图书各 1 条
+     */
+    private static final long BORROW_BUDGET = 6;
+    
+    /**
+     * 归还：本地锁查记录对应的读者和图书 1 条，取回记录、用户和图书 1 条，更新记录、用户、库存各 1 条，
+     * 重新读取记录、用户、图书各 1 条
+     */
+    private static final long RETURN_BUDGET = 8;
+    
+    /**
+     * 批量借还：锁定读者、图书、借阅记录，查询分槽图书和已借各 1 条，号段分配、批量插入、批量更新各 1 到 2 条，与本数无关
+     */
+    private static final long BATCH_BUDGET = 10;
+    
+    private static final int BATCH_SIZE = 20;
+    
+    @Autowired
+    private BorrowRecordService borrowRecordService;
+    
+    @Autowired
+    private LibraryService libraryService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    
+    @Test
+    void testBorrowAndReturnStayWithinBudget() {
+        System.out.println("=== 测试借阅、归还的 SQL 语句数 ===");
+        Book book = bookRepository.save(newBook("978-7-030-00001-1", 3));
+        User user = userRepository.save(newUser("budget_reader"));
+        
+        AtomicReference<BorrowRecord> borrowed = new AtomicReference<>();
+        long borrowStatements = sqlStatementCounter.count(
+                () -> borrowed.set(borrowRecordService.createBorrowRecord(request(user.getId(), book.getId()))));
+        System.out.println("借阅执行 SQL: " + borrowStatements);
+        assertTrue(borrowStatements <= BORROW_BUDGET,
+                "借阅执行了 " + borrowStatements + " 条 SQL，预算 " + BORROW_BUDGET);
+        
+        // 返回值里的用户、图书在条件更新后重新读取过，与数据库一致
+        BorrowRecord record = borrowed.get();
+        assertEquals(1, record.getUser().getCurrentBorrowed());
+        assertEquals(2, record.getBook().getAvailableCopies());
+        assertEquals(2, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        assertEquals(1, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+        
+        AtomicReference<BorrowRecord> returned = new AtomicReference<>();
+        long returnStatements = sqlStatementCounter.count(
+                () -> returned.set(borrowRecordService.returnBook(record.getId())));
+        System.out.println("归还执行 SQL: " + returnStatements);
+        assertTrue(returnStatements <= RETURN_BUDGET,
+                "归还执行了 " + returnStatements + " 条 SQL，预算 " + RETURN_BUDGET);
+        
+        assertEquals(BorrowRecord.BorrowStatus.RETURNED, returned.get().getStatus());
+        assertNull(returned.get().getActiveLoan());
+        assertEquals(0, returned.get().getUser().getCurrentBorrowed());
+        assertEquals(3, returned.get().getBook().getAvailableCopies());
+        assertEquals(3, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        assertEquals(0, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+    }
+    
+    @Test
+    void testRejectedBorrowStopsAfterOneQuery() {
+        System.out.println("=== 测试重复借阅只查询一次 ===");
+        Book book = bookRepository.save(newBook("978-7-030-00002-1", 3));
+        User user = userRepository.save(newUser("budget_duplicate"));
+        borrowRecordService.createBorrowRecord(request(user.getId(), book.getId()));
+        
+        long statements = sqlStatementCounter.count(() -> assertThrows(IllegalStateException.class,
+                () -> borrowRecordService.createBorrowRecord(request(user.getId(), book.getId()))));
+        assertEquals(1, statements);
+    }
+    
+    @Test
+    void testBatchBorrowAndReturnAreSetBased() {
+        System.out.println("=== 测试批量借还的 SQL 语句数 ===");
+        User user = newUser("budget_batch");
+        user.setMaxBorrowLimit(BATCH_SIZE + 5);
+        Long userId = userRepository.save(user).getId();
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            bookIds.add(bookRepository.save(newBook(String.format("978-7-030-1%04d-1", i), 2)).getId());
+        }
+        Long soldOut = bookRepository.save(newBook("978-7-030-00003-1", 0)).getId();
+        
+        // 重复的图书、不存在的图书、无库存的图书逐项失败，不影响其他图书
+        List<Long> request = new ArrayList<>(bookIds);
+        request.add(bookIds.get(0));
+        request.add(-1L);
+        request.add(soldOut);
+        AtomicReference<List<BatchItemResultDTO>> borrowed = new AtomicReference<>();
+        long borrowStatements = sqlStatementCounter.count(
+                () -> borrowed.set(libraryService.batchBorrowBooks(userId, request)));
+        System.out.println("批量借阅 " + request.size() + " 本执行 SQL: " + borrowStatements);
+        assertTrue(borrowStatements <= BATCH_BUDGET,
+                "批量借阅执行了 " + borrowStatements + " 条 SQL，预算 " + BATCH_BUDGET);
+        
+        List<BatchItemResultDTO> results = borrowed.get();
+        assertEquals(request.size(), results.size());
+        assertTrue(results.subList(0, BATCH_SIZE).stream().allMatch(BatchItemResultDTO::isSuccess));
+        assertEquals(FailureReason.DUPLICATE_IN_BATCH, results.get(BATCH_SIZE).getReason());
+        assertEquals(FailureReason.BOOK_NOT_FOUND, results.get(BATCH_SIZE + 1).getReason());
+        assertEquals(FailureReason.BOOK_UNAVAILABLE, results.get(BATCH_SIZE + 2).getReason());
+        assertEquals(BATCH_SIZE, userRepository.findById(userId).orElseThrow().getCurrentBorrowed());
+        assertEquals(1, bookRepository.findById(bookIds.get(0)).orElseThrow().getAvailableCopies());
+        
+        // 归还：已归还的记录和重复的记录逐项失败
+        List<Long> recordIds = results.subList(0, BATCH_SIZE).stream()
+                .map(result -> result.getRecord().getId())
+                .collect(Collectors.toList());
+        borrowRecordService.returnBook(recordIds.get(0));
+        List<Long> returnRequest = new ArrayList<>(recordIds);
+        returnRequest.add(recordIds.get(1));
+        AtomicReference<List<BatchItemResultDTO>> returned = new AtomicReference<>();
+        long returnStatements = sqlStatementCounter.count(
+                () -> returned.set(libraryService.batchReturnBooks(userId, returnRequest)));
+        System.out.println("批量归还 " + returnRequest.size() + " 条执行 SQL: " + returnStatements);
+        assertTrue(returnStatements <= BATCH_BUDGET,
+                "批量归还执行了 " + returnStatements + " 条 SQL，预算 " + BATCH_BUDGET);
+        
+        List<BatchItemResultDTO> returnResults = returned.get();
+        assertEquals(FailureReason.ALREADY_RETURNED, returnResults.get(0).getReason());
+        assertTrue(returnResults.subList(1, BATCH_SIZE).stream().allMatch(BatchItemResultDTO::isSuccess));
+        assertEquals(FailureReason.DUPLICATE_IN_BATCH, returnResults.get(BATCH_SIZE).getReason());
+        assertEquals(0, userRepository.findById(userId).orElseThrow().getCurrentBorrowed());
+        for (Long bookId : bookIds) {
+            assertEquals(2, bookRepository.findById(bookId).orElseThrow().getAvailableCopies());
+        }
+    }
+    
+    @Test
+    void testBatchBorrowStopsAtBorrowLimit() {
+        System.out.println("=== 测试批量借阅不超出借阅上限 ===");
+        Long userId = userRepository.save(newUser("budget_limit")).getId();
+        Long other = userRepository.save(newUser("budget_other")).getId();
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            bookIds.add(bookRepository.save(newBook(String.format("978-7-030-2%04d-1", i), 1)).getId());
+        }
+        
+        List<BatchItemResultDTO> results = libraryService.batchBorrowBooks(userId, bookIds);
+        int limit = userRepository.findById(userId).orElseThrow().getMaxBorrowLimit();
+        assertEquals(limit, results.stream().filter(BatchItemResultDTO::isSuccess).count());
+        assertTrue(results.subList(limit, bookIds.size()).stream()
+                .allMatch(result -> result.getReason() == FailureReason.BORROW_LIMIT_REACHED));
+        assertEquals(limit, userRepository.findById(userId).orElseThrow().getCurrentBorrowed());
+        assertEquals(1, bookRepository.findById(bookIds.get(limit)).orElseThrow().getAvailableCopies());
+        
+        // 其他读者不能归还这位读者的记录
+        List<BatchItemResultDTO> returned = libraryService.batchReturnBooks(other,
+                List.of(results.get(0).getRecord().getId()));
+        assertEquals(FailureReason.NOT_OWNER, returned.get(0).getReason());
+        assertEquals(limit, userRepository.findById(userId).orElseThrow().getCurrentBorrowed());
+    }
+    
+    @Test
+    void testBatchBorrowConflictFailsOnlyConflictingItem() {
+        System.out.println("=== 测试批量借阅写入冲突只影响冲突的图书 ===");
+        User user = userRepository.save(newUser("budget_conflict"));
+        Long conflicted = bookRepository.save(newBook("978-7-030-31000-1", 2)).getId();
+        Long other = bookRepository.save(newBook("978-7-030-31001-1", 2)).getId();
+        
+        // 状态为丢失但仍占着借阅中标记的记录：校验按借阅中状态查不到它，写入时才违反唯一约束
+        BorrowRecord lost = new BorrowRecord();
+        lost.setUser(user);
+        lost.setBook(bookRepository.findById(conflicted).orElseThrow());
+        lost.setBorrowDate(LocalDate.now());
+        lost.setDueDate(LocalDate.now().plusDays(30));
+        lost.setStatus(BorrowRecord.BorrowStatus.LOST);
+        borrowRecordRepository.save(lost);
+        
+        List<BatchItemResultDTO> results = libraryService.batchBorrowBooks(user.getId(), List.of(conflicted, other));
+        assertEquals(FailureReason.ALREADY_BORROWED, results.get(0).getReason());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(1, userRepository.findById(user.getId()).orElseThrow().getCurrentBorrowed());
+        assertEquals(2, bookRepository.findById(conflicted).orElseThrow().getAvailableCopies());
+        assertEquals(1, bookRepository.findById(other).orElseThrow().getAvailableCopies());
+    }
+    
+    private BorrowRequestDTO request(Long userId, Long bookId) {
+        BorrowRequestDTO request = new BorrowRequestDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        return request;
+    }
+    
+    private Book newBook(String isbn, int copies) {
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle("语句预算测试");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        book.setTotalCopies(copies);
+        book.setAvailableCopies(copies);
+        return book;
+    }
+    
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPasswordHash("password123");
+        user.setRealName("预算读者");
+        return user;
+    }
+}
@@ -0,0 +1,172 @@
+package com.library.service;
+
+import com.library.aop.OptimisticRetryAspect;
+import com.library.config.TestSecurityConfig;
+import com.library.dto.BorrowRequestDTO;
+import com.library.entity.Book;
+import com.library.entity.BorrowRecord;
+import com.library.entity.User;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.repository.UserRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 经 LibraryService 入口的乐观锁重试测试
+ *
+ * 借阅记录保存之后、提交之前，由另一个事务抢先修改同一行（版本号加一），制造一次确定的版本冲突；
+ * 入口方法不开事务时，重试切面在新事务中重新执行，冲突对调用方不可见。
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, LibraryServiceRetryTest.ConflictInjector.class})
+class LibraryServiceRetryTest {
+    
+    @Autowired
+    private LibraryService libraryService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @Autowired
+    private OptimisticRetryAspect optimisticRetryAspect;
+    
+    @Autowired
+    private ConflictInjector conflictInjector;
+    
+    @Test
+    void testRenewRetriesConflictThroughLibraryService() {
+        System.out.println("=== 测试经 LibraryService 续借时的冲突重试 ===");
+        BorrowRecord record = libraryService.borrowBook(request(
+                userRepository.save(newUser("retry_renew")).getId(),
+                bookRepository.save(newBook("978-7-040-00001-1")).getId()));
+        LocalDate dueDate = record.getDueDate();
+        long retries = retries("renewBorrow");
+        
+        conflictInjector.arm(record.getId());
+        BorrowRecord renewed = libraryService.renewBook(record.getId(), 7);
+        assertEquals(1, conflictInjector.injected());
+        assertEquals(retries + 1, retries("renewBorrow"));
+        assertEquals(dueDate.plusDays(7), renewed.getDueDate());
+        assertEquals(dueDate.plusDays(7), borrowRecordRepository.findById(record.getId()).orElseThrow().getDueDate());
+    }
+    
+    @Test
+    void testOverdueFineRetriesConflictThroughLibraryService() {
+        System.out.println("=== 测试经 LibraryService 计算超期罚款时的冲突重试 ===");
+        User user = userRepository.save(newUser("retry_fine"));
+        BorrowRecord record = libraryService.borrowBook(request(
+                user.getId(), bookRepository.save(newBook("978-7-040-00002-1")).getId()));
+        BorrowRecord overdue = borrowRecordRepository.findById(record.getId()).orElseThrow();
+        overdue.setDueDate(LocalDate.now().minusDays(4));
+        borrowRecordRepository.save(overdue);
+        long retries = retries("applyOverdueFine");
+        
+        // 第一次尝试回滚后重新计算，罚款只计入一次
+        conflictInjector.arm(record.getId());
+        libraryService.processOverdueFines();
+        assertEquals(1, conflictInjector.injected());
+        assertEquals(retries + 1, retries("applyOverdueFine"));
+        assertEquals(2.0, borrowRecordRepository.findById(record.getId()).orElseThrow().getFineAmount());
+        assertEquals(2.0, userRepository.findById(user.getId()).orElseThrow().getFineAmount());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long retries(String method) {
+        return optimisticRetryAspect.metrics().entrySet().stream()
+                .filter(entry -> entry.getKey().endsWith("." + method))
+                .mapToLong(entry -> (Long) ((Map<String, Object>) entry.getValue()).get("retries"))
+                .sum();
+    }
+    
+    private BorrowRequestDTO request(Long userId, Long bookId) {
+        BorrowRequestDTO request = new BorrowRequestDTO();
+        request.setUserId(userId);
+        request.setBookId(bookId);
+        return request;
+    }
+    
+    private Book newBook(String isbn) {
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle("冲突重试测试");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        book.setTotalCopies(1);
+        book.setAvailableCopies(1);
+        return book;
+    }
+    
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPasswordHash("password123");
+        user.setRealName("重试读者");
+        return user;
+    }
+    
+    /**
+     * 保存指定借阅记录时，在独立事务里把同一行的版本号加一并提交，只触发一次
+     */
+    @Aspect
+    @TestConfiguration
+    static class ConflictInjector {
+        
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+        
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+        
+        private volatile Long armedRecordId;
+        private final AtomicInteger injected = new AtomicInteger();
+        
+        void arm(Long recordId) {
+            injected.set(0);
+            armedRecordId = recordId;
+        }
+        
+        int injected() {
+            return injected.get();
+        }
+        
+        @Around("execution(* com.library.repository.BorrowRecordRepository+.save(..)) && args(record)")
+        public Object afterSave(ProceedingJoinPoint joinPoint, Object record) throws Throwable {
+            Object result = joinPoint.proceed();
+            Long recordId = armedRecordId;
+            if (record instanceof BorrowRecord && recordId != null && recordId.equals(((BorrowRecord) record).getId())) {
+                armedRecordId = null;
+                TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+                concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                concurrent.executeWithoutResult(status -> jdbcTemplate.update(
+                        "UPDATE borrow_records SET version = version + 1 WHERE id = ?", recordId));
+                injected.incrementAndGet();
+            }
+            return result;
+        }
+    }
+}
@@ -1,16 +1,30 @@
 package com.library.service;
 
 import com.library.config.TestSecurityConfig;
+import com.library.dto.BookDTO;
 import com.library.dto.BorrowRequestDTO;
 import com.library.entity.Book;
+import com.library.entity.BorrowRecord;
+import com.library.entity.ImportJob;
 import com.library.entity.User;
+import com.library.repository.BookRepository;
+import com.library.repository.BorrowRecordRepository;
+import com.library.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -34,5 +48,216 @@ class ServiceTest {
     @Autowired
     private LibraryService libraryService;
     
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private BookImportService bookImportService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
     // ... 其他测试方法保持不变
+    
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 缓存在事务提交后失效，这里不能用回滚事务
+    void testBookCacheEvictedAfterUpdate() {
+        System.out.println("=== 测试图书缓存失效 ===");
+        
+        Book book = new Book();
+        book.setIsbn("978-7-000-00007-1");
+        book.setTitle("缓存测试");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        Book saved = bookService.addBook(book);
+        
+        // 1. 第二次读取命中缓存，返回同一个对象；缓存的是 DTO，实体每次重新读取
+        BookDTO first = bookService.getBookDTOById(saved.getId());
+        assertSame(first, bookService.getBookDTOById(saved.getId()));
+        BookDTO byIsbn = bookService.getBookDTOByIsbn(saved.getIsbn()).orElseThrow();
+        assertSame(byIsbn, bookService.getBookDTOByIsbn(saved.getIsbn()).orElseThrow());
+        assertNotSame(bookService.getBookById(saved.getId()).orElseThrow(),
+                bookService.getBookById(saved.getId()).orElseThrow());
+        System.out.println("缓存命中成功");
+        
+        // 2. 更新提交后缓存失效，读到新标题
+        Book changes = new Book();
+        changes.setTitle("缓存测试-新标题");
+        bookService.updateBook(saved.getId(), changes);
+        assertEquals("缓存测试-新标题", bookService.getBookById(saved.getId()).orElseThrow().getTitle());
+        assertEquals("缓存测试-新标题", bookService.getBookDTOById(saved.getId()).getTitle());
+        assertEquals("缓存测试-新标题", bookService.getBookDTOByIsbn(saved.getIsbn()).orElseThrow().getTitle());
+        System.out.println("更新后缓存失效成功");
+        
+        bookService.deleteBook(saved.getId());
+    }
+    
+    @Test
+    void testExportBooks() throws Exception {
+        System.out.println("=== 测试图书导出 ===");
+        
+        Book book = new Book();
+        book.setIsbn("978-7-000-00012-1");
+        book.setTitle("导出测试, \"含引号\"");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        bookService.addBook(book);
+        
+        // 1. NDJSON：每行一个对象
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        long rows = exportService.exportBooks(ExportService.Format.NDJSON, ndjson);
+        String ndjsonText = ndjson.toString(StandardCharsets.UTF_8);
+        assertTrue(rows >= 1);
+        assertEquals(rows, ndjsonText.lines().count());
+        assertTrue(ndjsonText.contains("\"isbn\":\"978-7-000-00012-1\""));
+        System.out.println("NDJSON 导出 " + rows + " 行");
+        
+        // 2. CSV：表头 + 每行一条，含逗号和引号的字段加引号转义
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(rows, exportService.exportBooks(ExportService.Format.CSV, csv));
+        String csvText = csv.toString(StandardCharsets.UTF_8);
+        assertTrue(csvText.startsWith("id,isbn,title,author"));
+        assertEquals(rows + 1, csvText.lines().count());
+        assertTrue(csvText.contains("\"导出测试, \"\"含引号\"\"\""));
+        System.out.println("CSV 导出测试完成");
+    }
+    
+    @Test
+    void testBulkImport() throws Exception {
+        System.out.println("=== 测试图书批量导入 ===");
+        
+        Book existing = new Book();
+        existing.setIsbn("978-7-000-00013-0");
+        existing.setTitle("已有图书");
+        existing.setAuthor("测试作者");
+        existing.setCategory("测试");
+        bookService.addBook(existing);
+        
+        String csv = "isbn,title,author,category,totalCopies\n"
+                + "978-7-000-00013-1,导入一,作者甲,测试,2\n"
+                + "978-7-000-00013-0,库中已存在,作者乙,测试,1\n"
+                + "978-7-000-00013-1,文件内重复,作者甲,测试,1\n"
+                + "978-7-000-00013-2,,缺少标题,测试,1\n"
+                + "978-7-000-00013-3,导入三,作者丙,,\n";
+        ImportJob job = bookImportService.createJob("books.csv", ImportJob.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        
+        // 1. 重复的 ISBN 跳过，缺少必填字段的计为无效
+        ImportJob finished = bookImportService.runJob(job.getId());
+        assertEquals(ImportJob.Status.COMPLETED, finished.getStatus());
+        assertEquals(5L, finished.getProcessedRecords());
+        assertEquals(2L, finished.getInsertedCount());
+        assertEquals(2L, finished.getDuplicateCount());
+        assertEquals(1L, finished.getInvalidCount());
+        System.out.println("导入完成: " + finished.getInsertedCount() + " 本, "
+                + String.format("%.0f", finished.getRecordsPerSecond()) + " 条/秒");
+        
+        // 2. 插入的图书补全默认值和拼音字段
+        Book imported = bookService.getBookByIsbn("978-7-000-00013-3").orElseThrow();
+        assertEquals("未分类", imported.getCategory());
+        assertEquals(1, imported.getAvailableCopies());
+        assertEquals("daorusan", imported.getTitlePinyin());
+        assertEquals(2, bookService.getBookByIsbn("978-7-000-00013-1").orElseThrow().getTotalCopies());
+        
+        // 3. 已完成的任务再次执行不会重复导入
+        assertEquals(2L, bookImportService.runJob(job.getId()).getInsertedCount());
+        System.out.println("批量导入测试完成");
+    }
+    
+    @Test
+    void testBulkImportChecksColumnLengths() throws Exception {
+        System.out.println("=== 测试批量导入按实体列定义校验长度 ===");
+        
+        // 出版日期列未写长度，按 @Column 默认的 255 校验，超长的记录计为无效而不是让整批写入失败
+        String csv = "isbn,title,author,publishDate\n"
+                + "978-7-000-00016-1,长度校验一,作者甲,2020-01\n"
+                + "978-7-000-00016-2,长度校验二,作者乙," + "9".repeat(256) + "\n";
+        ImportJob job = bookImportService.createJob("lengths.csv", ImportJob.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        
+        ImportJob finished = bookImportService.runJob(job.getId());
+        assertEquals(ImportJob.Status.COMPLETED, finished.getStatus());
+        assertEquals(1L, finished.getInsertedCount());
+        assertEquals(1L, finished.getInvalidCount());
+        assertTrue(finished.getLastError().contains("publishDate"));
+        assertFalse(bookService.getBookByIsbn("978-7-000-00016-2").isPresent());
+        System.out.println("导入长度校验测试完成");
+    }
+    
+    @Test
+    void testMultiGetBooks() {
+        System.out.println("=== 测试批量获取图书 ===");
+        
+        List<Book> saved = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Book book = new Book();
+            book.setIsbn("978-7-000-00015-" + i);
+            book.setTitle("批量获取" + i);
+            book.setAuthor("测试作者");
+            book.setCategory("测试");
+            saved.add(bookService.addBook(book));
+        }
+        Long first = saved.get(0).getId();
+        Long third = saved.get(2).getId();
+        
+        // 1. 已缓存的直接返回，其余一次查询；按请求顺序去重，不存在的ID跳过
+        BookDTO cached = bookService.getBookDTOById(third);
+        List<BookDTO> books = bookService.getBookDTOsByIds(List.of(third, -1L, first, first));
+        assertEquals(List.of(third, first), books.stream().map(BookDTO::getId).toList());
+        assertSame(cached, books.get(0));
+        
+        // 2. 查询结果写回缓存，单条读取直接命中
+        assertSame(books.get(1), bookService.getBookDTOById(first));
+        
+        // 3. 按ISBN批量获取
+        List<BookDTO> byIsbn = bookService.getBookDTOsByIsbns(List.of("978-7-000-00015-2", "不存在的ISBN"));
+        assertEquals(1, byIsbn.size());
+        assertEquals(saved.get(1).getId(), byIsbn.get(0).getId());
+        System.out.println("批量获取测试完成");
+    }
+    
+    @Test
+    void testBackfillActiveLoans() {
+        System.out.println("=== 测试存量借阅记录补标记 ===");
+        
+        User user = new User();
+        user.setUsername("backfill_reader");
+        user.setPasswordHash("password123");
+        user.setRealName("补标记读者");
+        userRepository.save(user);
+        Book book = new Book();
+        book.setIsbn("978-7-000-00016-1");
+        book.setTitle("补标记测试");
+        book.setAuthor("测试作者");
+        book.setCategory("测试");
+        bookRepository.save(book);
+        
+        // 标记加入之前的数据：未归还记录的标记为空；同一用户同一图书有两条未归还记录
+        BorrowRecord first = borrowRecordRepository.save(legacyRecord(user, book, BorrowRecord.BorrowStatus.BORROWED));
+        BorrowRecord duplicate = borrowRecordRepository.save(legacyRecord(user, book, BorrowRecord.BorrowStatus.OVERDUE));
+        BorrowRecord returned = borrowRecordRepository.save(legacyRecord(user, book, BorrowRecord.BorrowStatus.RETURNED));
+        
+        borrowRecordService.backfillActiveLoans();
+        assertEquals(Boolean.TRUE, borrowRecordRepository.findById(first.getId()).orElseThrow().getActiveLoan());
+        assertNull(borrowRecordRepository.findById(duplicate.getId()).orElseThrow().getActiveLoan());
+        assertNull(borrowRecordRepository.findById(returned.getId()).orElseThrow().getActiveLoan());
+        System.out.println("补标记测试完成");
+    }
+    
+    private BorrowRecord legacyRecord(User user, Book book, BorrowRecord.BorrowStatus status) {
+        BorrowRecord record = new BorrowRecord();
+        record.setUser(user);
+        record.setBook(book);
+        record.setBorrowDate(LocalDate.now().minusDays(40));
+        record.setDueDate(LocalDate.now().minusDays(10));
+        record.setStatus(status);
+        record.setActiveLoan(null);
+        return record;
+    }
 }
\ No newline at end of file